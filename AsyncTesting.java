@@ -0,0 +1,106 @@
+package todo_website_testing;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class runs the Testing helpers asynchronously, returning a CompletableFuture instead of blocking the caller.
+ * Calls run on the shared Workers executor, on virtual threads when the running Java has them.
+ * A session answers one command at a time, so each call holds the session's lock from InstrumentedDriver, the same lock
+ * every command sent to a pool session takes. Calls on the same WebDriver, and the scenario's own commands, queue behind
+ * each other, while calls on different sessions run at the same time. Errors recorded by an async call, and the ids and
+ * classes it touches, are added to the scenario that started it.
+ * Calls made inside an open TaskScope, like the one ScenarioRunner opens for each scenario, are forked into it:
+ * the scenario waits for them before it ends, and they are cancelled if it fails.
+ */
+public class AsyncTesting {
+
+	/**
+	 * The lock of each session that is not decorated by InstrumentedDriver. Only async calls take these.
+	 * Sessions that are no longer referenced drop out on their own.
+	 */
+	private static final Map<WebDriver, ReentrantLock> LOCKS = Collections.synchronizedMap(new WeakHashMap<WebDriver, ReentrantLock>());
+
+	/**
+	 * This method takes a given WebDriver and helper, and runs the helper against the session without blocking the caller.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param helper The helper being run, for example driver -> Testing.confirmItemsLeft(driver).
+	 * @return The CompletableFuture of the helper's result.
+	 */
+	public static <T> CompletableFuture<T> call(WebDriver driver, Function<WebDriver, T> helper) {
+		Results.Context context = Results.current();
+		Set<String> touched = ImpactMap.current();
+		ReentrantLock lock = InstrumentedDriver.isInstrumented(driver) ? InstrumentedDriver.getLock(driver)
+				: LOCKS.computeIfAbsent(driver, key -> new ReentrantLock());
+		Callable<T> task = () -> {
+			Results.attach(context);
+			ImpactMap.attach(touched);
+			try {
+				//one command at a time on each session
+				lock.lockInterruptibly();
+				try {
+					return helper.apply(driver);
+				}//try
+				finally {
+					lock.unlock();
+				}//finally
+			}//try
+			finally {
+				Results.attach(null);
+				ImpactMap.attach(null);
+			}//finally
+		};
+		TaskScope scope = TaskScope.current();
+		if(scope != null) {
+			return scope.fork(task);
+		}//if
+		else {
+			CompletableFuture<T> result = new CompletableFuture<T>();
+			Workers.shared().submit(() -> {
+				try {
+					result.complete(task.call());
+				}//try
+				catch(Throwable e) {
+					result.completeExceptionally(e);
+				}//catch
+			});
+			return result;
+		}//else
+	}//call
+
+	/**
+	 * This method takes a given WebDriver and reads the whole todo page state without blocking the caller.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The CompletableFuture of the TodoSnapshot.
+	 */
+	public static CompletableFuture<TodoSnapshot> snapshot(WebDriver driver) {
+		return call(driver, TodoSnapshot::take);
+	}//snapshot
+
+	/**
+	 * This method takes a given WebDriver and BatchRead, and resolves every read without blocking the caller.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param reads The BatchRead holding the reads.
+	 * @return The CompletableFuture of the BatchRead.Result.
+	 */
+	public static CompletableFuture<BatchRead.Result> read(WebDriver driver, BatchRead reads) {
+		return call(driver, reads::read);
+	}//read
+
+	/**
+	 * This method takes a given WebDriver and runs the given assertion helper against it without blocking the caller.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param assertion The helper returning the number of errors it found.
+	 * @return The CompletableFuture of the number of errors.
+	 */
+	public static CompletableFuture<Integer> check(WebDriver driver, Function<WebDriver, Integer> assertion) {
+		return call(driver, assertion);
+	}//check
+
+}//AsyncTesting
@@ -0,0 +1,61 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class compares the results of the same scenarios run on two backends. Both should find the same errors,
+ * so a scenario that passes on one and fails on the other, or fails a different check, points at a difference
+ * between the engines rather than the site: something the fast backend cannot be trusted with, or a real bug only
+ * one of them shows.
+ */
+public class BackendComparison {
+
+	/**
+	 * This method takes the reports of two runs of the same scenarios, in the same order, and records every difference as an error.
+	 * @param first The DriverBackend of the first run.
+	 * @param firstReport The ScenarioReport of the first run.
+	 * @param second The DriverBackend of the second run.
+	 * @param secondReport The ScenarioReport of the second run.
+	 * @return The number of scenarios the backends disagree on.
+	 */
+	public static int compare(DriverBackend first, ScenarioReport firstReport, DriverBackend second, ScenarioReport secondReport) {
+		int differences = 0;
+		List<ScenarioReport.ScenarioResult> firstResults = firstReport.getResults();
+		List<ScenarioReport.ScenarioResult> secondResults = secondReport.getResults();
+		for(int i = 0; i < Math.min(firstResults.size(), secondResults.size()); i++) {
+			List<String> firstChecks = describe(firstResults.get(i));
+			List<String> secondChecks = describe(secondResults.get(i));
+			if(!firstChecks.equals(secondChecks)) {
+				differences += Results.fail("Backends disagree on scenario \"" + firstResults.get(i).getName() + "\": "
+						+ first + " found " + firstChecks.size() + " error" + ((firstChecks.size() != 1) ? "s" : "")
+						+ ", " + second + " found " + secondChecks.size() + ".", firstChecks, secondChecks);
+			}//if
+			else {}//else
+		}//for
+		System.out.println("Backends: " + first + " ran " + firstResults.size() + " scenarios in " + firstReport.getWallClockMillis()
+				+ " ms, " + second + " in " + secondReport.getWallClockMillis() + " ms. They disagree on " + differences + ".");
+		return differences;
+	}//compare
+
+	/**
+	 * This method takes a scenario result and lists the checks that failed in it, in a form both backends would share.
+	 */
+	private static List<String> describe(ScenarioReport.ScenarioResult result) {
+		List<String> checks = new ArrayList<String>();
+		for(StepResult step : result.getSteps()) {
+			//budgets depend on the engine's speed, so only the failed checks are compared
+			if(step.isBudget()) {
+				continue;
+			}//if
+			else {}//else
+			String check = step.getAssertion();
+			if(step.getExpected() != null || step.getActual() != null) {
+				check += " expected=\"" + step.getExpected() + "\" actual=\"" + step.getActual() + "\"";
+			}//if
+			else {}//else
+			checks.add(check);
+		}//for
+		return checks;
+	}//describe
+
+}//BackendComparison
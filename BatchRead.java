@@ -0,0 +1,158 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * This class collects several element reads and resolves them all in one executeScript call.
+ * Each read finds an element by id, class, CSS selector or XPath and reads one property from it:
+ * "text", "value", "checked", "present", "element" (the WebElement itself), or any other name as an attribute.
+ * <pre>
+ * BatchRead.Result result = new BatchRead()
+ *     .byId("value", "task-input", "value")
+ *     .byId("placeholder", "task-input", "placeholder")
+ *     .read(driver);
+ * </pre>
+ */
+public class BatchRead {
+
+	/**
+	 * The script that resolves every query. Each query is [key, locator type, locator, property].
+	 */
+	static final String BATCH_SCRIPT =
+			"var queries = arguments[0], out = {};"
+			+ "for (var i = 0; i < queries.length; i++) {"
+			+ "  var q = queries[i], e;"
+			+ "  if (q[1] == 'id') { e = document.getElementById(q[2]); }"
+			+ "  else if (q[1] == 'class') { e = document.getElementsByClassName(q[2])[0]; }"
+			+ "  else if (q[1] == 'css') { e = document.querySelector(q[2]); }"
+			+ "  else { e = document.evaluate(q[2], document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue; }"
+			+ "  var p = q[3];"
+			+ "  if (p == 'present') { out[q[0]] = !!e; }"
+			+ "  else if (!e) { out[q[0]] = null; }"
+			+ "  else if (p == 'element') { out[q[0]] = e; }"
+			+ "  else if (p == 'text') { out[q[0]] = (e.innerText || e.textContent || '').trim(); }"
+			+ "  else if (p == 'value') { out[q[0]] = e.value; }"
+			+ "  else if (p == 'checked') { out[q[0]] = !!e.checked; }"
+			+ "  else { out[q[0]] = e.getAttribute(p); }"
+			+ "}"
+			+ "return out;";
+
+	/**
+	 * This class holds the values read by a BatchRead, keyed by the names given to each read.
+	 */
+	public static class Result {
+		private final Map<String, Object> values;
+
+		Result(Map<String, Object> values) {
+			this.values = Collections.unmodifiableMap(values);
+		}//Result
+
+		/**
+		 * This method returns a read value as a String.
+		 * @param key The name given to the read.
+		 * @return The value in String format, or null if the element was not found.
+		 */
+		public String getString(String key) {
+			Object value = values.get(key);
+			return (value != null) ? value.toString() : null;
+		}//getString
+
+		/**
+		 * This method returns a "checked" or "present" read as a boolean.
+		 * @param key The name given to the read.
+		 * @return The value, or false if the element was not found.
+		 */
+		public boolean getBoolean(String key) {
+			return Boolean.TRUE.equals(values.get(key));
+		}//getBoolean
+
+		/**
+		 * This method returns an "element" read as a WebElement.
+		 * @param key The name given to the read.
+		 * @return The WebElement, or null if it was not found.
+		 */
+		public WebElement getElement(String key) {
+			return (WebElement) values.get(key);
+		}//getElement
+
+		public Map<String, Object> asMap() { return values; }
+	}//Result
+
+	private final List<List<String>> queries = new ArrayList<List<String>>();
+
+	/**
+	 * This method adds a read of the element with the given id.
+	 * @param key The name the value is stored under.
+	 * @param elementId The String of the ID of the element.
+	 * @param property The property being read.
+	 * @return This BatchRead, to add more reads.
+	 */
+	public BatchRead byId(String key, String elementId, String property) {
+		return add(key, "id", elementId, property);
+	}//byId
+
+	/**
+	 * This method adds a read of the first element with the given class.
+	 * @param key The name the value is stored under.
+	 * @param className The String of the class of the element.
+	 * @param property The property being read.
+	 * @return This BatchRead, to add more reads.
+	 */
+	public BatchRead byClass(String key, String className, String property) {
+		return add(key, "class", className, property);
+	}//byClass
+
+	/**
+	 * This method adds a read of the first element matching the given CSS selector.
+	 * @param key The name the value is stored under.
+	 * @param selector The String of the CSS selector of the element.
+	 * @param property The property being read.
+	 * @return This BatchRead, to add more reads.
+	 */
+	public BatchRead byCss(String key, String selector, String property) {
+		return add(key, "css", selector, property);
+	}//byCss
+
+	/**
+	 * This method adds a read of the first element matching the given XPath.
+	 * @param key The name the value is stored under.
+	 * @param pathText The String of the XPath of the element.
+	 * @param property The property being read.
+	 * @return This BatchRead, to add more reads.
+	 */
+	public BatchRead byXPath(String key, String pathText, String property) {
+		return add(key, "xpath", pathText, property);
+	}//byXPath
+
+	/**
+	 * This method takes a given WebDriver and resolves every read in one round-trip.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The Result holding every value read.
+	 */
+	@SuppressWarnings("unchecked")
+	public Result read(WebDriver driver) {
+		return new Result((Map<String, Object>) ((JavascriptExecutor) driver).executeScript(BATCH_SCRIPT, queries));
+	}//read
+
+	private BatchRead add(String key, String type, String locator, String property) {
+		if(type.equals("id")) {
+			ImpactMap.touchId(locator);
+		}//if
+		else if(type.equals("class")) {
+			ImpactMap.touchClass(locator);
+		}//else if
+		else if(type.equals("css")) {
+			ImpactMap.touchSelector(locator);
+		}//else if
+		else {}//else
+		queries.add(Arrays.asList(key, type, locator, property));
+		return this;
+	}//add
+
+}//BatchRead
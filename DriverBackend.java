@@ -0,0 +1,95 @@
+package todo_website_testing;
+import java.lang.reflect.Constructor;
+import java.util.function.Function;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class is a kind of browser the scenarios can run on. Firefox renders the page for real and is used for full runs.
+ * HtmlUnit is an in-process headless engine with no rendering, so the checks that only read DOM state and text run
+ * in a fraction of the time. It is loaded by name, so it is only needed on the classpath when it is picked.
+ */
+public class DriverBackend {
+
+	/** The class of the HtmlUnit driver, looked up when the backend is used. */
+	public static final String HTMLUNIT_DRIVER = "org.openqa.selenium.htmlunit.HtmlUnitDriver";
+
+	/** Firefox through geckodriver, launched with the given LaunchProfile. */
+	public static final DriverBackend FIREFOX = new DriverBackend("firefox", true, Testing::startSession);
+
+	/** HtmlUnit with JavaScript turned on, running inside this JVM. The LaunchProfile only records its startup time. */
+	public static final DriverBackend HTMLUNIT = new DriverBackend("htmlunit", false, DriverBackend::startHtmlUnit);
+
+	private final String name;
+	private final boolean rendering;
+	private final Function<LaunchProfile, WebDriver> starter;
+
+	private DriverBackend(String name, boolean rendering, Function<LaunchProfile, WebDriver> starter) {
+		this.name = name;
+		this.rendering = rendering;
+		this.starter = starter;
+	}//DriverBackend
+
+	/**
+	 * This method takes the name of a backend and returns it.
+	 * @param name "firefox" or "htmlunit".
+	 * @return The DriverBackend with that name.
+	 */
+	public static DriverBackend forName(String name) {
+		if(name.equalsIgnoreCase(FIREFOX.name)) {
+			return FIREFOX;
+		}//if
+		else if(name.equalsIgnoreCase(HTMLUNIT.name)) {
+			return HTMLUNIT;
+		}//else if
+		else {
+			throw new IllegalArgumentException("Unknown backend \"" + name + "\", expected firefox or htmlunit.");
+		}//else
+	}//forName
+
+	/**
+	 * This method takes the command line arguments and returns the backend they pick with --backend, firefox by default.
+	 * @param args The command line arguments given to main.
+	 * @return The DriverBackend.
+	 */
+	public static DriverBackend fromConfig(String[] args) {
+		return forName(Settings.get(args, "backend", FIREFOX.name));
+	}//fromConfig
+
+	public String getName() { return name; }
+	/** True if the backend renders the page, so paint timings and performance entries can be read from it. */
+	public boolean isRendering() { return rendering; }
+
+	/**
+	 * This method starts a new session on this backend.
+	 * @param profile The LaunchProfile the session is started with. Its startup time is recorded.
+	 * @return The WebDriver of the new session.
+	 */
+	public WebDriver start(LaunchProfile profile) {
+		return starter.apply(profile);
+	}//start
+
+	/**
+	 * This method creates an HtmlUnit session with JavaScript turned on.
+	 */
+	private static WebDriver startHtmlUnit(LaunchProfile profile) {
+		long start = System.nanoTime();
+		try {
+			Constructor<?> constructor = Class.forName(HTMLUNIT_DRIVER).getConstructor(boolean.class);
+			WebDriver driver = (WebDriver) constructor.newInstance(true);
+			profile.recordStartup((System.nanoTime() - start) / 1000000L);
+			return driver;
+		}//try
+		catch(ClassNotFoundException e) {
+			throw new IllegalStateException("The htmlunit backend needs org.seleniumhq.selenium:htmlunit-driver on the classpath.", e);
+		}//catch
+		catch(ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not start an HtmlUnit session.", e);
+		}//catch
+	}//startHtmlUnit
+
+	@Override
+	public String toString() {
+		return name;
+	}//toString
+
+}//DriverBackend
@@ -0,0 +1,175 @@
+package todo_website_testing;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class keeps a latency histogram for every remote WebDriver command, grouped by the Testing helper that sent it.
+ * InstrumentedDriver records into it, and a MetricsSink writes it out at the end of the run.
+ */
+public class DriverMetrics {
+
+	/** The upper bounds of the histogram buckets in milliseconds. The last bucket has no upper bound. */
+	static final double[] BUCKET_BOUNDS_MS = {0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+	/**
+	 * This class is the histogram of one helper and command pair.
+	 */
+	public static class Histogram {
+		private final String helper;
+		private final String command;
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong errors = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		Histogram(String helper, String command) {
+			this.helper = helper;
+			this.command = command;
+		}//Histogram
+
+		void record(long nanos, boolean failed) {
+			double millis = nanos / 1000000.0;
+			int bucket = 0;
+			while(bucket < BUCKET_BOUNDS_MS.length && millis > BUCKET_BOUNDS_MS[bucket]) {
+				bucket++;
+			}//while
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			if(failed) {
+				errors.incrementAndGet();
+			}//if
+			else {}//else
+		}//record
+
+		public String getHelper() { return helper; }
+		public String getCommand() { return command; }
+		public long getCount() { return count.get(); }
+		public long getErrors() { return errors.get(); }
+		public double getTotalMillis() { return totalNanos.get() / 1000000.0; }
+		public double getMaxMillis() { return maxNanos.get() / 1000000.0; }
+
+		/**
+		 * This method returns how many commands fell in each bucket, in the order of BUCKET_BOUNDS_MS, then the unbounded bucket.
+		 * @return The bucket counts.
+		 */
+		public long[] getBuckets() {
+			long[] copy = new long[buckets.length()];
+			for(int i = 0; i < copy.length; i++) {
+				copy[i] = buckets.get(i);
+			}//for
+			return copy;
+		}//getBuckets
+	}//Histogram
+
+	private final Map<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	/**
+	 * This method saves how long one remote command took.
+	 * @param helper The name of the helper that sent the command.
+	 * @param command The name of the WebDriver or WebElement method.
+	 * @param nanos How long the command took in nanoseconds.
+	 * @param failed True if the command threw an exception.
+	 */
+	public void record(String helper, String command, long nanos, boolean failed) {
+		histograms.computeIfAbsent(helper + "\u0000" + command, key -> new Histogram(helper, command)).record(nanos, failed);
+	}//record
+
+	/**
+	 * This method returns every histogram, the slowest helper and command pair first.
+	 * @return The List<Histogram> sorted by total time.
+	 */
+	public List<Histogram> getHistograms() {
+		List<Histogram> sorted = new ArrayList<Histogram>(histograms.values());
+		sorted.sort((a, b) -> Double.compare(b.getTotalMillis(), a.getTotalMillis()));
+		return sorted;
+	}//getHistograms
+
+	/**
+	 * This method adds up the commands sent by every helper.
+	 * @return The total number of round-trips.
+	 */
+	public long getTotalRoundTrips() {
+		long total = 0;
+		for(Histogram histogram : histograms.values()) {
+			total += histogram.getCount();
+		}//for
+		return total;
+	}//getTotalRoundTrips
+
+	/**
+	 * This method prints the helper and command pairs that took the most time.
+	 * @param limit The largest number of lines to print.
+	 */
+	public void printTop(int limit) {
+		System.out.println("Sent " + getTotalRoundTrips() + " WebDriver commands. Slowest helpers:");
+		List<Histogram> sorted = getHistograms();
+		for(int i = 0; i < Math.min(limit, sorted.size()); i++) {
+			Histogram histogram = sorted.get(i);
+			System.out.println(String.format("  %-28s %-20s %6d calls %10.1f ms total %8.1f ms max",
+					histogram.getHelper(), histogram.getCommand(), histogram.getCount(),
+					histogram.getTotalMillis(), histogram.getMaxMillis()));
+		}//for
+	}//printTop
+
+	/**
+	 * This method writes every histogram as a JSON document.
+	 * @return The histograms in JSON format.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\"bucketBoundsMs\":[");
+		for(int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+			json.append(i > 0 ? "," : "").append(BUCKET_BOUNDS_MS[i]);
+		}//for
+		json.append("],\"commands\":[");
+		List<Histogram> sorted = getHistograms();
+		for(int i = 0; i < sorted.size(); i++) {
+			Histogram histogram = sorted.get(i);
+			json.append(i > 0 ? "," : "").append("{\"helper\":\"").append(histogram.getHelper())
+					.append("\",\"command\":\"").append(histogram.getCommand())
+					.append("\",\"count\":").append(histogram.getCount())
+					.append(",\"errors\":").append(histogram.getErrors())
+					.append(",\"totalMs\":").append(histogram.getTotalMillis())
+					.append(",\"maxMs\":").append(histogram.getMaxMillis())
+					.append(",\"buckets\":[");
+			long[] buckets = histogram.getBuckets();
+			for(int j = 0; j < buckets.length; j++) {
+				json.append(j > 0 ? "," : "").append(buckets[j]);
+			}//for
+			json.append("]}");
+		}//for
+		return json.append("]}\n").toString();
+	}//toJson
+
+	/**
+	 * This method writes every histogram in the Prometheus text format, with cumulative buckets.
+	 * @return The histograms in Prometheus text format.
+	 */
+	public String toPrometheusText() {
+		StringBuilder text = new StringBuilder();
+		text.append("# HELP webdriver_command_seconds Latency of remote WebDriver commands by Testing helper.\n");
+		text.append("# TYPE webdriver_command_seconds histogram\n");
+		for(Histogram histogram : getHistograms()) {
+			String labels = "helper=\"" + histogram.getHelper() + "\",command=\"" + histogram.getCommand() + "\"";
+			long[] buckets = histogram.getBuckets();
+			long cumulative = 0;
+			for(int i = 0; i < buckets.length; i++) {
+				cumulative += buckets[i];
+				String bound = (i < BUCKET_BOUNDS_MS.length) ? BigDecimal.valueOf(BUCKET_BOUNDS_MS[i] / 1000.0).toPlainString() : "+Inf";
+				text.append("webdriver_command_seconds_bucket{").append(labels).append(",le=\"").append(bound).append("\"} ")
+						.append(cumulative).append('\n');
+			}//for
+			text.append("webdriver_command_seconds_sum{").append(labels).append("} ").append(histogram.getTotalMillis() / 1000.0).append('\n');
+			text.append("webdriver_command_seconds_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+		}//for
+		return text.toString();
+	}//toPrometheusText
+
+}//DriverMetrics
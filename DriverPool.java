@@ -0,0 +1,328 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * This class keeps a pool of warm browser sessions that are lent out to scenarios and given back afterwards.
+ * Sessions are started once, reset between scenarios (storage cleared, page reloaded) and replaced when they break,
+ * so the browser startup cost is paid once per session instead of once per scenario.
+ */
+public class DriverPool implements AutoCloseable {
+
+	/** How long borrow waits for a free session before giving up. */
+	public static final long BORROW_TIMEOUT_MS = Long.getLong("pool.borrow.ms", 60000);
+
+	/** The script that clears everything the to-do site keeps between page loads. */
+	static final String RESET_SCRIPT = "window.localStorage.clear(); window.sessionStorage.clear();";
+
+	private final int size;
+	private final String page;
+	private final LaunchProfile profile;
+	private final DriverMetrics metrics;
+	private final DriverBackend backend;
+	private final LinkedBlockingQueue<WebDriver> idle = new LinkedBlockingQueue<WebDriver>();
+	private final Set<WebDriver> sessions = Collections.synchronizedSet(new HashSet<WebDriver>());
+	private final Thread shutdownHook = new Thread(this::close, "driver-pool-shutdown");
+	private int evictions = 0;
+	private boolean closed = false;
+
+	/**
+	 * This constructor creates a pool of the given size and starts every session on the given page.
+	 * @param size The number of sessions in the pool.
+	 * @param page The url of the web page every session is reset to, in String format.
+	 * @param profile The LaunchProfile every session is started with.
+	 */
+	public DriverPool(int size, String page, LaunchProfile profile) {
+		this(size, page, profile, null);
+	}//DriverPool
+
+	/**
+	 * This constructor creates a pool of the given size whose sessions record every remote command into the given metrics.
+	 * @param size The number of sessions in the pool.
+	 * @param page The url of the web page every session is reset to, in String format.
+	 * @param profile The LaunchProfile every session is started with.
+	 * @param metrics The DriverMetrics the sessions record into, or null to only count their round-trips.
+	 */
+	public DriverPool(int size, String page, LaunchProfile profile, DriverMetrics metrics) {
+		this(size, page, profile, metrics, DriverBackend.FIREFOX);
+	}//DriverPool
+
+	/**
+	 * This constructor creates a pool of the given size whose sessions run on the given backend.
+	 * @param size The number of sessions in the pool.
+	 * @param page The url of the web page every session is reset to, in String format.
+	 * @param profile The LaunchProfile every session is started with.
+	 * @param metrics The DriverMetrics the sessions record into, or null to only count their round-trips.
+	 * @param backend The DriverBackend the sessions are started on.
+	 */
+	public DriverPool(int size, String page, LaunchProfile profile, DriverMetrics metrics, DriverBackend backend) {
+		if(size < 1) {
+			throw new IllegalArgumentException("Pool size must be at least 1, was " + size + ".");
+		}//if
+		else {}//else
+		this.size = size;
+		this.page = page;
+		this.profile = profile;
+		this.metrics = metrics;
+		this.backend = backend;
+		//end the sessions even if the run is killed before close is called
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+		prewarm();
+	}//DriverPool
+
+	/**
+	 * This method returns the number of sessions the pool keeps.
+	 * @return The size of the pool in int format.
+	 */
+	public int getSize() {
+		return size;
+	}//getSize
+
+	/**
+	 * This method returns the backend the sessions of the pool run on.
+	 * @return The DriverBackend.
+	 */
+	public DriverBackend getBackend() {
+		return backend;
+	}//getBackend
+
+	/**
+	 * This method returns the number of broken sessions that have been replaced.
+	 * @return The number of evictions in int format.
+	 */
+	public synchronized int getEvictions() {
+		return evictions;
+	}//getEvictions
+
+	/**
+	 * This method lends out a healthy session that is showing a fresh copy of the page.
+	 * It waits for a session to be given back if they are all in use.
+	 * @return The WebDriver lent out of the pool.
+	 */
+	public WebDriver borrow() {
+		while(true) {
+			WebDriver driver;
+			try {
+				driver = idle.poll(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			}//try
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for a session.", e);
+			}//catch
+			if(driver == null) {
+				throw new IllegalStateException("No session was given back within " + BORROW_TIMEOUT_MS + " ms.");
+			}//if
+			else if(isHealthy(driver)) {
+				return driver;
+			}//else if
+			else {
+				//broken session, swap it for a new one and try again
+				evict(driver);
+			}//else
+		}//while
+	}//borrow
+
+	/**
+	 * This method takes back a session that was borrowed, and resets it for the next scenario.
+	 * @param driver The WebDriver being given back to the pool.
+	 */
+	public void giveBack(WebDriver driver) {
+		if(!sessions.contains(driver)) {
+			throw new IllegalArgumentException("The given session does not belong to this pool.");
+		}//if
+		else if(isClosed()) {
+			sessions.remove(driver);
+			Testing.endSession(driver);
+		}//else if
+		else if(reset(driver)) {
+			idle.offer(driver);
+		}//else if
+		else {
+			evict(driver);
+		}//else
+	}//giveBack
+
+	/**
+	 * This method ends every session in the pool.
+	 */
+	@Override
+	public void close() {
+		synchronized(this) {
+			closed = true;
+		}//synchronized
+		List<WebDriver> toEnd;
+		synchronized(sessions) {
+			toEnd = new ArrayList<WebDriver>(sessions);
+			sessions.clear();
+		}//synchronized
+		idle.clear();
+		for(WebDriver driver : toEnd) {
+			quietlyEnd(driver);
+		}//for
+		if(Thread.currentThread() != shutdownHook) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			}//try
+			catch(IllegalStateException e) {}//catch the JVM is already shutting down
+		}//if
+		else {}//else
+	}//close
+
+	/**
+	 * This method starts every session of the pool at the same time and waits for all of them to be ready.
+	 */
+	private void prewarm() {
+		ExecutorService starter = Workers.newExecutor("pool-start", size);
+		List<Future<WebDriver>> started = new ArrayList<Future<WebDriver>>();
+		try {
+			for(int i = 0; i < size; i++) {
+				started.add(starter.submit(this::newSession));
+			}//for
+			for(Future<WebDriver> future : started) {
+				idle.offer(future.get());
+			}//for
+		}//try
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			abandon(started);
+			throw new IllegalStateException("Interrupted while starting the pool.", e);
+		}//catch
+		catch(ExecutionException e) {
+			abandon(started);
+			throw new IllegalStateException("Could not start a pooled session.", e.getCause());
+		}//catch
+		finally {
+			starter.shutdown();
+		}//finally
+	}//prewarm
+
+	/**
+	 * This method takes the sessions being started when the pool failed to start and ends the pool. The ones not started
+	 * yet are cancelled, the ones still starting end themselves when they find the pool closed, and this waits for them,
+	 * so no browser is left running.
+	 */
+	private void abandon(List<Future<WebDriver>> started) {
+		for(Future<WebDriver> future : started) {
+			future.cancel(false);
+		}//for
+		close();
+		boolean interrupted = Thread.interrupted();
+		for(Future<WebDriver> future : started) {
+			while(!future.isDone()) {
+				try {
+					quietlyEnd(future.get());
+				}//try
+				catch(InterruptedException e) {
+					interrupted = true;
+				}//catch
+				catch(ExecutionException e) {
+					//the session did not start, or ended itself
+				}//catch
+			}//while
+		}//for
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}//if
+		else {}//else
+	}//abandon
+
+	/**
+	 * This method starts one session and opens the page on it.
+	 * @return The new WebDriver, ready to be lent out.
+	 */
+	private WebDriver newSession() {
+		//decorated even without metrics, so every command on the session takes its lock
+		WebDriver driver = InstrumentedDriver.wrap(backend.start(profile), metrics);
+		//a session that finished starting after the pool was closed would never be ended by close
+		synchronized(this) {
+			if(closed) {
+				quietlyEnd(driver);
+				throw new IllegalStateException("The pool was closed while a session was starting.");
+			}//if
+			else {}//else
+			sessions.add(driver);
+		}//synchronized
+		Testing.openWebPage(driver, page);
+		Testing.waitForPageReady(driver);
+		//a backend that does not render has no paint timings to read
+		if(backend.isRendering()) {
+			profile.recordFirstPaint(Testing.getFirstPaintMillis(driver));
+		}//if
+		else {}//else
+		return driver;
+	}//newSession
+
+	/**
+	 * This method takes a given WebDriver and checks the session still answers and is on the pool's page.
+	 * @param driver The WebDriver being checked.
+	 * @return True if the session can be used, false otherwise.
+	 */
+	private boolean isHealthy(WebDriver driver) {
+		try {
+			Object alive = ((JavascriptExecutor) driver).executeScript("return 1;");
+			return alive != null && driver.getCurrentUrl().startsWith(page);
+		}//try
+		catch(WebDriverException e) {
+			return false;
+		}//catch
+	}//isHealthy
+
+	/**
+	 * This method takes a given WebDriver, clears the site's stored state and navigates back to the page.
+	 * @param driver The WebDriver being reset.
+	 * @return True if the session was reset, false if it is broken.
+	 */
+	private boolean reset(WebDriver driver) {
+		try {
+			((JavascriptExecutor) driver).executeScript(RESET_SCRIPT);
+			TodoItemIndex.invalidate(driver);
+			Testing.openWebPage(driver, page);
+			return Testing.waitForPageReady(driver) == 0;
+		}//try
+		catch(WebDriverException e) {
+			return false;
+		}//catch
+	}//reset
+
+	/**
+	 * This method takes a given broken WebDriver, ends it and starts a new session in its place.
+	 * @param driver The WebDriver being evicted.
+	 */
+	private void evict(WebDriver driver) {
+		sessions.remove(driver);
+		quietlyEnd(driver);
+		synchronized(this) {
+			evictions++;
+		}//synchronized
+		if(!isClosed()) {
+			idle.offer(newSession());
+		}//if
+		else {}//else
+	}//evict
+
+	private synchronized boolean isClosed() {
+		return closed;
+	}//isClosed
+
+	/**
+	 * This method takes a given WebDriver and ends it, ignoring errors from sessions that are already gone.
+	 */
+	private static void quietlyEnd(WebDriver driver) {
+		try {
+			Testing.endSession(driver);
+		}//try
+		catch(WebDriverException e) {}//catch the session is already gone
+	}//quietlyEnd
+
+}//DriverPool
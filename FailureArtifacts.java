@@ -0,0 +1,248 @@
+package todo_website_testing;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * This class captures what the page looked like when a check failed: a screenshot, the markup of the todo list and the
+ * filter bar, and what the page wrote to its console. The page is read on the thread that failed, since the session
+ * answers one command at a time, so the capture shows the page at the failure. Hashing, compressing and writing the files
+ * run on the shared Workers executor, and the scenario waits for them only before its session is reset.
+ * Each file is stored once under the hash of its content, gzipped, so the same empty list failing in fifty scenarios
+ * costs one file. Every failure gets a small manifest naming its files, which its StepResult links to.
+ */
+public class FailureArtifacts {
+
+	/** The most failures captured in one scenario. The rest are recorded without artifacts. */
+	public static final int PER_SCENARIO = Integer.getInteger("artifacts.per.scenario", 3);
+
+	/** The longest a scenario waits for its captures to be stored before it is reported. */
+	public static final long WAIT_MS = Long.getLong("artifacts.wait.ms", 10000L);
+
+	/** The most console lines kept by the page. */
+	private static final int CONSOLE_LINES = 200;
+
+	/**
+	 * The script that records what the page writes to its console, and its uncaught errors, from now until it is reloaded.
+	 */
+	static final String HOOK_SCRIPT =
+			"if (window.__todoConsole) { return; }"
+			+ "var log = window.__todoConsole = [];"
+			+ "var keep = function(line) { log.push(line); if (log.length > " + CONSOLE_LINES + ") { log.shift(); } };"
+			+ "var text = function(a) { try { return typeof a === 'string' ? a : JSON.stringify(a); } catch (e) { return String(a); } };"
+			+ "['log', 'info', 'warn', 'error', 'debug'].forEach(function(level) {"
+			+ "  var original = console[level];"
+			+ "  console[level] = function() {"
+			+ "    keep(level + ' ' + Array.prototype.map.call(arguments, text).join(' '));"
+			+ "    return original.apply(console, arguments);"
+			+ "  };"
+			+ "});"
+			+ "window.addEventListener('error', function(e) { keep('uncaught ' + e.message + ' at ' + e.filename + ':' + e.lineno); });"
+			+ "window.addEventListener('unhandledrejection', function(e) { keep('unhandled rejection ' + text(e.reason)); });";
+
+	/**
+	 * The script that reads the markup of the todo list and the filter bar, and the console lines recorded so far.
+	 */
+	static final String CAPTURE_SCRIPT =
+			Locators.RESOLVER
+			+ "var html = function(e) { return e ? e.outerHTML : null; };"
+			+ "var tab = one('filterTabs');"
+			+ "return {list: html(one('todoList')), filters: tab ? html(tab.parentNode) : null,"
+			+ "  console: window.__todoConsole ? window.__todoConsole.slice() : null};";
+
+	private final Path directory;
+	private final Set<String> stored = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger captures = new AtomicInteger();
+	private final AtomicInteger duplicates = new AtomicInteger();
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	/**
+	 * This constructor creates a capture that stores its files under the artifacts folder of the given results folder.
+	 * @param resultsDirectory The Path of the results folder. The links in the results are relative to it.
+	 */
+	public FailureArtifacts(Path resultsDirectory) {
+		this.directory = resultsDirectory;
+	}//FailureArtifacts
+
+	/**
+	 * This method takes a given WebDriver and starts recording what the page writes to its console.
+	 * It is done when a scenario starts, and needs doing again if the scenario reloads the page.
+	 * @param driver The WebDriver being used for the automation.
+	 */
+	public void hook(WebDriver driver) {
+		try {
+			((JavascriptExecutor) driver).executeScript(HOOK_SCRIPT);
+		}//try
+		catch(WebDriverException e) {
+			//the capture will say the console was not recorded
+		}//catch
+	}//hook
+
+	/**
+	 * This method takes a given WebDriver, reads its page and screenshot, and starts storing them in the background.
+	 * @param driver The WebDriver the failure happened on.
+	 * @param scenario The name of the scenario the failure happened in.
+	 * @param link The path of the manifest, from nextLink.
+	 * @return The Future of the storing. It never fails, a capture that could not be taken says so in its manifest.
+	 */
+	@SuppressWarnings("unchecked")
+	Future<?> capture(WebDriver driver, String scenario, String link) {
+		Map<String, Object> page = null;
+		byte[] screenshot = null;
+		String problem = null;
+		try {
+			page = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(CAPTURE_SCRIPT, Locators.asScriptArgument());
+			if(driver instanceof TakesScreenshot) {
+				screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+			}//if
+			else {}//else
+		}//try
+		catch(WebDriverException | ClassCastException e) {
+			problem = "Could not capture the page. " + e.getMessage();
+		}//catch
+		Map<String, Object> read = page;
+		byte[] image = screenshot;
+		String readProblem = problem;
+		return Workers.shared().submit(() -> write(scenario, link, read, image, readProblem));
+	}//capture
+
+	/**
+	 * This method returns the path of the manifest of the next capture, so it can be linked before the capture is taken.
+	 * @param scenario The name of the scenario the failure happened in.
+	 * @return The path of the manifest, relative to the results folder.
+	 */
+	String nextLink(String scenario) {
+		return "artifacts/failure-" + captures.incrementAndGet() + "-" + scenario.replaceAll("[^A-Za-z0-9_-]+", "_") + ".json";
+	}//nextLink
+
+	/**
+	 * This method runs on a worker. It stores each part of the page read that was not stored yet and writes the manifest.
+	 */
+	@SuppressWarnings("unchecked")
+	private void write(String scenario, String link, Map<String, Object> page, byte[] image, String readProblem) {
+		String dom = null, console = null, screenshot = null, problem = readProblem;
+		try {
+			if(page != null) {
+				String markup = "<!-- #todos-list -->\n" + page.get("list") + "\n<!-- filter bar -->\n" + page.get("filters") + "\n";
+				dom = store(markup.getBytes(StandardCharsets.UTF_8), "html");
+				List<Object> lines = (List<Object>) page.get("console");
+				if(lines != null) {
+					StringBuilder text = new StringBuilder();
+					for(Object line : lines) {
+						text.append(line).append('\n');
+					}//for
+					console = store(text.toString().getBytes(StandardCharsets.UTF_8), "txt");
+				}//if
+				else {
+					problem = "The console was not recorded, the page was reloaded after the scenario started.";
+				}//else
+			}//if
+			else {}//else the problem says why the page could not be read
+			if(image != null) {
+				screenshot = store(image, "png");
+			}//if
+			else {}//else
+		}//try
+		catch(ClassCastException e) {
+			problem = "Could not capture the page. " + e.getMessage();
+		}//catch
+		catch(IOException e) {
+			problem = "Could not store the capture. " + e.getMessage();
+		}//catch
+		String manifest = "{\"scenario\":" + StepResult.quote(scenario) + ",\"screenshot\":" + StepResult.quote(screenshot)
+				+ ",\"dom\":" + StepResult.quote(dom) + ",\"console\":" + StepResult.quote(console)
+				+ ",\"problem\":" + StepResult.quote(problem) + "}\n";
+		try {
+			Path file = directory.resolve(link);
+			Files.createDirectories(file.getParent());
+			Files.write(file, manifest.getBytes(StandardCharsets.UTF_8));
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not write " + link + ". " + e.getMessage());
+		}//catch
+	}//write
+
+	/**
+	 * This method takes the given content and stores it gzipped under its hash, unless a file with the same content is stored.
+	 * @param content The content in bytes.
+	 * @param extension The kind of content, used as the file extension.
+	 * @return The name of the stored file, relative to the artifacts folder.
+	 * @throws IOException If the file could not be written.
+	 */
+	private String store(byte[] content, String extension) throws IOException {
+		String name = hash(content) + "." + extension + ".gz";
+		Path file = directory.resolve("artifacts").resolve(name);
+		//files from earlier runs are kept, so they count as stored too
+		if(stored.contains(name) || Files.exists(file)) {
+			stored.add(name);
+			duplicates.incrementAndGet();
+			return name;
+		}//if
+		else {}//else
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2 + 64);
+		try(GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			gzip.write(content);
+		}//try
+		Files.createDirectories(file.getParent());
+		//write to a temporary file and move it in place, so a file under a hash name is always complete
+		Path partial = Files.createTempFile(file.getParent(), name, ".part");
+		try {
+			Files.write(partial, compressed.toByteArray());
+			Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}//try
+		finally {
+			Files.deleteIfExists(partial);
+		}//finally
+		//only a file that was written counts as stored, so a failed write is tried again by the next capture
+		if(stored.add(name)) {
+			bytesWritten.addAndGet(compressed.size());
+		}//if
+		else {}//else another capture wrote the same content at the same time
+		return name;
+	}//store
+
+	/**
+	 * This method takes the given bytes and returns the first 128 bits of their SHA-256 hash in hex.
+	 */
+	private static String hash(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+			StringBuilder hex = new StringBuilder();
+			for(int i = 0; i < 16; i++) {
+				hex.append(String.format("%02x", digest[i]));
+			}//for
+			return hex.toString();
+		}//try
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}//catch
+	}//hash
+
+	/**
+	 * This method prints how many failures were captured, and how much the deduplication saved.
+	 */
+	public void printSummary() {
+		System.out.println("Artifacts: captured " + captures.get() + " failure" + ((captures.get() != 1) ? "s" : "")
+				+ ", " + stored.size() + " distinct file" + ((stored.size() != 1) ? "s" : "") + " (" + (bytesWritten.get() / 1024) + " KB written), "
+				+ duplicates.get() + " duplicate" + ((duplicates.get() != 1) ? "s" : "") + " not stored again.");
+	}//printSummary
+
+}//FailureArtifacts
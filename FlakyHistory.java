@@ -0,0 +1,190 @@
+package todo_website_testing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class keeps the recent outcomes of every step and scenario in a local file, so flakiness is tracked across runs.
+ * Each outcome is one letter: P passed the first time, R passed only after a retry or rerun, F failed every time.
+ * Only the last HISTORY_LENGTH outcomes of each are kept, so a step that has settled leaves quarantine on its own.
+ * A step or scenario is quarantined once enough of its recent outcomes needed a retry.
+ */
+public class FlakyHistory {
+
+	/** The outcomes kept for each step and scenario. */
+	public static final int HISTORY_LENGTH = 20;
+
+	public static final char PASSED = 'P';
+	public static final char RETRIED = 'R';
+	public static final char FAILED = 'F';
+
+	private final Path file;
+	private final double quarantineRate;
+	private final int minimumRuns;
+	private final Map<String, StringBuilder> outcomes = new TreeMap<String, StringBuilder>();
+
+	/**
+	 * This constructor creates an empty history kept in the given file.
+	 * @param file The Path of the file the history is saved to.
+	 * @param quarantineRate The share of recent outcomes that needed a retry for a step to be quarantined, from 0 to 1.
+	 * @param minimumRuns The number of outcomes needed before a step can be quarantined.
+	 */
+	public FlakyHistory(Path file, double quarantineRate, int minimumRuns) {
+		this.file = file;
+		this.quarantineRate = quarantineRate;
+		this.minimumRuns = minimumRuns;
+	}//FlakyHistory
+
+	/**
+	 * This method takes the command line arguments and loads the history they select. --flaky-history is the file
+	 * (flaky-history.tsv by default), --quarantine-rate the share of retried outcomes (0.3) and --quarantine-min-runs
+	 * the outcomes needed first (5).
+	 * @param args The command line arguments given to main.
+	 * @return The FlakyHistory, empty if the file does not exist yet.
+	 * @throws IOException If the file exists but could not be read.
+	 */
+	public static FlakyHistory fromConfig(String[] args) throws IOException {
+		FlakyHistory history = new FlakyHistory(Paths.get(Settings.get(args, "flaky-history", "flaky-history.tsv")),
+				Double.parseDouble(Settings.get(args, "quarantine-rate", "0.3")), Settings.getInt(args, "quarantine-min-runs", 5));
+		history.load();
+		return history;
+	}//fromConfig
+
+	/**
+	 * This method reads the saved outcomes, one "key TAB outcomes" line each, if the file exists.
+	 * @throws IOException If the file could not be read.
+	 */
+	public synchronized void load() throws IOException {
+		if(!Files.exists(file)) {
+			return;
+		}//if
+		else {}//else
+		for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			int tab = line.lastIndexOf('\t');
+			if(tab > 0) {
+				outcomes.put(line.substring(0, tab), new StringBuilder(line.substring(tab + 1)));
+			}//if
+			else {}//else skip malformed lines
+		}//for
+	}//load
+
+	/**
+	 * This method writes every step and scenario with its recent outcomes to the file.
+	 * @throws IOException If the file could not be written.
+	 */
+	public synchronized void save() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for(Map.Entry<String, StringBuilder> entry : outcomes.entrySet()) {
+			lines.add(entry.getKey() + "\t" + entry.getValue());
+		}//for
+		Files.write(file, lines, StandardCharsets.UTF_8);
+	}//save
+
+	/**
+	 * This method records the outcome of one run of a step.
+	 * @param step The name of the step.
+	 * @param outcome PASSED, RETRIED or FAILED.
+	 */
+	public void recordStep(String step, char outcome) {
+		record("step:" + step, outcome);
+	}//recordStep
+
+	/**
+	 * This method records the outcome of one run of a scenario, counting reruns as retries.
+	 * @param scenario The name of the scenario.
+	 * @param outcome PASSED, RETRIED or FAILED.
+	 */
+	public void recordScenario(String scenario, char outcome) {
+		record("scenario:" + scenario, outcome);
+	}//recordScenario
+
+	private synchronized void record(String key, char outcome) {
+		StringBuilder recent = outcomes.computeIfAbsent(key, name -> new StringBuilder());
+		recent.append(outcome);
+		if(recent.length() > HISTORY_LENGTH) {
+			recent.delete(0, recent.length() - HISTORY_LENGTH);
+		}//if
+		else {}//else
+	}//record
+
+	public boolean isStepQuarantined(String step) {
+		return isQuarantined("step:" + step);
+	}//isStepQuarantined
+
+	public boolean isScenarioQuarantined(String scenario) {
+		return isQuarantined("scenario:" + scenario);
+	}//isScenarioQuarantined
+
+	/**
+	 * This method takes a given key and checks if enough of its recent outcomes needed a retry.
+	 * A step that always fails is broken, not flaky, so failures do not count towards quarantine.
+	 */
+	private synchronized boolean isQuarantined(String key) {
+		StringBuilder recent = outcomes.get(key);
+		if(recent == null || recent.length() < minimumRuns) {
+			return false;
+		}//if
+		else {
+			return getFlakyRate(recent) >= quarantineRate;
+		}//else
+	}//isQuarantined
+
+	private static double getFlakyRate(CharSequence recent) {
+		int retried = 0;
+		for(int i = 0; i < recent.length(); i++) {
+			if(recent.charAt(i) == RETRIED) {
+				retried++;
+			}//if
+			else {}//else
+		}//for
+		return (double) retried / recent.length();
+	}//getFlakyRate
+
+	/**
+	 * This method takes a given list of scenarios and returns it with the quarantined ones moved to the end,
+	 * so the stable scenarios finish first. The order is otherwise kept.
+	 * @param scenarios The List<Scenario> being run.
+	 * @return A new List<Scenario> in the order they should run.
+	 */
+	public List<Scenario> prioritise(List<Scenario> scenarios) {
+		List<Scenario> stable = new ArrayList<Scenario>();
+		List<Scenario> quarantined = new ArrayList<Scenario>();
+		for(Scenario scenario : scenarios) {
+			if(isScenarioQuarantined(scenario.getName())) {
+				quarantined.add(scenario);
+			}//if
+			else {
+				stable.add(scenario);
+			}//else
+		}//for
+		stable.addAll(quarantined);
+		return stable;
+	}//prioritise
+
+	/**
+	 * This method prints every step and scenario that needed a retry recently, with its flaky rate and whether it is quarantined.
+	 */
+	public synchronized void printReport() {
+		boolean header = false;
+		for(Map.Entry<String, StringBuilder> entry : outcomes.entrySet()) {
+			double rate = getFlakyRate(entry.getValue());
+			if(rate > 0) {
+				if(!header) {
+					System.out.println("Flaky steps and scenarios (last " + HISTORY_LENGTH + " runs):");
+					header = true;
+				}//if
+				else {}//else
+				System.out.println(String.format("  %-40s %3.0f%% retried  %s%s", entry.getKey(), rate * 100, entry.getValue(),
+						isQuarantined(entry.getKey()) ? "  QUARANTINED" : ""));
+			}//if
+			else {}//else
+		}//for
+	}//printReport
+
+}//FlakyHistory
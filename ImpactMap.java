@@ -0,0 +1,299 @@
+package todo_website_testing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * This class remembers which ids, classes and helpers each scenario touched, and the fingerprint of the site it ran against.
+ * On the next run the site is fingerprinted again, and only the scenarios that touched something that changed are run,
+ * along with new scenarios and the ones that failed last time. A change to the site's scripts, or to markup that names
+ * no id or class, runs every scenario.
+ * Scenarios record what they touch through the helpers: every id, class and selector they look up is noted on their thread.
+ * Scenarios compiled from scenario files are remembered with the hash of their steps, so an edited file runs them again.
+ */
+public class ImpactMap {
+
+	/**
+	 * This class is what one scenario touched the last time it ran, and whether it passed.
+	 */
+	public static class Touches {
+		private final Set<String> tokens;
+		private final boolean passed;
+
+		Touches(Set<String> tokens, boolean passed) {
+			this.tokens = Collections.unmodifiableSet(new TreeSet<String>(tokens));
+			this.passed = passed;
+		}//Touches
+
+		/** The ids as "#id", classes as ".class" and helpers as "helper:name" the scenario touched. */
+		public Set<String> getTokens() { return tokens; }
+		public boolean isPassed() { return passed; }
+	}//Touches
+
+	private static final ThreadLocal<Set<String>> TOUCHED = new ThreadLocal<Set<String>>();
+
+	private static volatile ImpactMap installed;
+
+	private final Path file;
+	private final Map<String, Touches> scenarios = new TreeMap<String, Touches>();
+	private SiteFingerprint fingerprint;
+
+	/**
+	 * This constructor creates an empty map kept in the given file.
+	 * @param file The Path of the file the map is saved to.
+	 */
+	public ImpactMap(Path file) {
+		this.file = file;
+	}//ImpactMap
+
+	/**
+	 * This method takes the command line arguments and loads the map they select, --impact-map (impact-map.tsv by default).
+	 * @param args The command line arguments given to main.
+	 * @return The ImpactMap, empty if the file does not exist yet.
+	 * @throws IOException If the file exists but could not be read.
+	 */
+	public static ImpactMap fromConfig(String[] args) throws IOException {
+		ImpactMap map = new ImpactMap(Paths.get(Settings.get(args, "impact-map", "impact-map.tsv")));
+		map.load();
+		return map;
+	}//fromConfig
+
+	/**
+	 * This method installs the map every scenario records what it touched into, or removes it when given null.
+	 * @param impactMap The ImpactMap, or null to not record.
+	 */
+	public static void install(ImpactMap impactMap) {
+		installed = impactMap;
+	}//install
+
+	/**
+	 * This method starts noting what the scenario on the current thread touches, if a map is installed.
+	 */
+	public static void begin() {
+		if(installed != null) {
+			//async calls the scenario makes note into the same set from their own threads
+			TOUCHED.set(Collections.synchronizedSet(new TreeSet<String>()));
+		}//if
+		else {}//else
+	}//begin
+
+	/**
+	 * This method returns what the scenario on the current thread has touched so far, to hand to a task it starts on another thread.
+	 * @return The Set<String> being noted into, or null if nothing is being noted on this thread.
+	 */
+	public static Set<String> current() {
+		return TOUCHED.get();
+	}//current
+
+	/**
+	 * This method takes what a scenario on another thread is noting into, and notes what the current thread touches there too.
+	 * @param touched The Set<String> returned by current, or null to stop noting on this thread.
+	 */
+	public static void attach(Set<String> touched) {
+		if(touched != null) {
+			TOUCHED.set(touched);
+		}//if
+		else {
+			TOUCHED.remove();
+		}//else
+	}//attach
+
+	/**
+	 * This method stops noting on the current thread and records what the scenario touched in the installed map.
+	 * @param scenario The Scenario that ran.
+	 * @param passed True if the scenario passed.
+	 */
+	public static void end(Scenario scenario, boolean passed) {
+		Set<String> touched = TOUCHED.get();
+		TOUCHED.remove();
+		ImpactMap current = installed;
+		if(touched != null && current != null) {
+			synchronized(touched) {
+				current.record(key(scenario), new Touches(touched, passed));
+			}//synchronized
+		}//if
+		else {}//else
+	}//end
+
+	/**
+	 * This method takes a given scenario and returns the key it is remembered under: its name,
+	 * followed by the hash of its steps if it was compiled from a scenario file.
+	 * @param scenario The Scenario.
+	 * @return The key in String format.
+	 */
+	static String key(Scenario scenario) {
+		if(scenario instanceof StepPlan) {
+			return scenario.getName() + " @" + ((StepPlan) scenario).getSourceHash();
+		}//if
+		else {
+			return scenario.getName();
+		}//else
+	}//key
+
+	/**
+	 * This method notes that the scenario on the current thread looked up the element with the given id.
+	 * @param elementId The id of the element in String format.
+	 */
+	public static void touchId(String elementId) {
+		touch("#" + elementId);
+	}//touchId
+
+	/**
+	 * This method notes that the scenario on the current thread looked up or checked the given classes.
+	 * @param classNames The class, or classes separated by spaces, in String format.
+	 */
+	public static void touchClass(String classNames) {
+		if(TOUCHED.get() == null) {
+			return;
+		}//if
+		else {}//else
+		for(String className : classNames.trim().split("\\s+")) {
+			touch("." + className);
+		}//for
+	}//touchClass
+
+	/**
+	 * This method notes the ids and classes of the given CSS selector as touched by the scenario on the current thread.
+	 * @param selector The CSS selector in String format.
+	 */
+	public static void touchSelector(String selector) {
+		if(TOUCHED.get() == null) {
+			return;
+		}//if
+		else {}//else
+		for(String token : SiteFingerprint.selectorTokens(selector)) {
+			touch(token);
+		}//for
+	}//touchSelector
+
+	private static void touch(String token) {
+		Set<String> touched = TOUCHED.get();
+		if(touched != null) {
+			touched.add(token);
+			//only Testing helpers are named without their class
+			String helper = InstrumentedDriver.currentHelper();
+			if(!helper.contains(".")) {
+				touched.add("helper:" + helper);
+			}//if
+			else {}//else
+		}//if
+		else {}//else
+	}//touch
+
+	private synchronized void record(String scenario, Touches touches) {
+		scenarios.put(scenario, touches);
+	}//record
+
+	/**
+	 * This method returns what the given scenario touched the last time it ran.
+	 * @param scenario The Scenario.
+	 * @return The Touches, or null if the scenario has not run with the map, or its scenario file was edited since.
+	 */
+	public synchronized Touches getTouches(Scenario scenario) {
+		return scenarios.get(key(scenario));
+	}//getTouches
+
+	/**
+	 * This method takes a given list of scenarios and the fingerprint of the site now, and returns the scenarios to run:
+	 * the ones that touched something that changed, the new ones and the ones that failed last time.
+	 * With no earlier fingerprint, or none now, every scenario is run.
+	 * @param all The List<Scenario> that could be run.
+	 * @param current The SiteFingerprint of the site now, or null if it could not be taken. It is saved as the fingerprint of this run.
+	 * @return The List<Scenario> affected, in the order given.
+	 */
+	public synchronized List<Scenario> select(List<Scenario> all, SiteFingerprint current) {
+		if(current == null) {
+			//keep the earlier fingerprint, so the next run is compared with a site that is known
+			System.out.println("Impact: the site could not be fingerprinted, running all " + all.size() + " scenarios.");
+			return new ArrayList<Scenario>(all);
+		}//if
+		else {}//else
+		SiteFingerprint previous = fingerprint;
+		fingerprint = current;
+		if(previous == null) {
+			System.out.println("Impact: no earlier fingerprint of the site, running all " + all.size() + " scenarios.");
+			return new ArrayList<Scenario>(all);
+		}//if
+		else {}//else
+		Set<String> changed = current.changedSince(previous);
+		List<Scenario> affected = new ArrayList<Scenario>();
+		for(Scenario scenario : all) {
+			Touches touches = scenarios.get(key(scenario));
+			if(touches == null || !touches.isPassed() || changed.contains(SiteFingerprint.ANY)
+					|| !Collections.disjoint(touches.getTokens(), changed)) {
+				affected.add(scenario);
+			}//if
+			else {}//else not affected, skip
+		}//for
+		System.out.println("Impact: " + (changed.isEmpty() ? "the site did not change" : "changed " + changed)
+				+ ", running " + affected.size() + " of " + all.size() + " scenarios.");
+		return affected;
+	}//select
+
+	/**
+	 * This method reads the saved map, if the file exists. Each line is a scenario with whether it passed and its tokens,
+	 * an asset with its hash, or a segment with its hash.
+	 * @throws IOException If the file could not be read.
+	 */
+	public synchronized void load() throws IOException {
+		if(!Files.exists(file)) {
+			return;
+		}//if
+		else {}//else
+		Map<String, String> assets = new TreeMap<String, String>();
+		Map<String, String> segments = new TreeMap<String, String>();
+		for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			String[] fields = line.split("\t", -1);
+			if(fields[0].equals("scenario") && fields.length == 4) {
+				Set<String> tokens = new TreeSet<String>();
+				for(String token : fields[3].split(" ")) {
+					if(!token.isEmpty()) {
+						tokens.add(token);
+					}//if
+					else {}//else
+				}//for
+				scenarios.put(fields[1], new Touches(tokens, fields[2].equals("passed")));
+			}//if
+			else if(fields[0].equals("asset") && fields.length == 3) {
+				assets.put(fields[1], fields[2]);
+			}//else if
+			else if(fields[0].equals("segment") && fields.length == 3) {
+				segments.put(fields[1], fields[2]);
+			}//else if
+			else {}//else skip malformed lines
+		}//for
+		fingerprint = assets.isEmpty() ? null : new SiteFingerprint(assets, segments);
+	}//load
+
+	/**
+	 * This method writes every scenario with what it touched, and the fingerprint of the site, to the file.
+	 * @throws IOException If the file could not be written.
+	 */
+	public synchronized void save() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for(Map.Entry<String, Touches> entry : scenarios.entrySet()) {
+			lines.add("scenario\t" + entry.getKey() + "\t" + (entry.getValue().isPassed() ? "passed" : "failed")
+					+ "\t" + String.join(" ", entry.getValue().getTokens()));
+		}//for
+		if(fingerprint != null) {
+			for(Map.Entry<String, String> asset : fingerprint.getAssets().entrySet()) {
+				lines.add("asset\t" + asset.getKey() + "\t" + asset.getValue());
+			}//for
+			for(Map.Entry<String, String> segment : fingerprint.getSegments().entrySet()) {
+				lines.add("segment\t" + segment.getKey() + "\t" + segment.getValue());
+			}//for
+		}//if
+		else {}//else
+		Files.write(file, lines, StandardCharsets.UTF_8);
+	}//save
+
+}//ImpactMap
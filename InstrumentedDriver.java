@@ -0,0 +1,274 @@
+package todo_website_testing;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * This class decorates a WebDriver so every remote command sent through it, or through the WebElements it hands out, is counted.
+ * The decorated driver implements the same interfaces as the original, so it can be given to any Testing helper.
+ * If it is given DriverMetrics, every command is also timed and tagged with the Testing helper that sent it.
+ * A session answers one command at a time, so every command takes the session's lock, whichever thread sends it.
+ * The lock parks a virtual thread instead of pinning it, and AsyncTesting holds it for a whole helper call.
+ */
+public class InstrumentedDriver implements InvocationHandler {
+
+	/**
+	 * The interfaces whose objects only hold a reference to the session. Getting one is not a remote command,
+	 * but the calls made on it are, so they are decorated too.
+	 */
+	private static final Set<Class<?>> LOCAL_HANDLES = new LinkedHashSet<Class<?>>(Arrays.<Class<?>>asList(
+			WebDriver.Options.class, WebDriver.Navigation.class, WebDriver.TargetLocator.class,
+			WebDriver.Window.class, WebDriver.Timeouts.class));
+
+	private static final StackWalker STACK = StackWalker.getInstance();
+
+	private final Object target;
+	private final AtomicLong roundTrips;
+	private final DriverMetrics metrics;
+	private final ReentrantLock lock;
+
+	private InstrumentedDriver(Object target, AtomicLong roundTrips, DriverMetrics metrics, ReentrantLock lock) {
+		this.target = target;
+		this.roundTrips = roundTrips;
+		this.metrics = metrics;
+		this.lock = lock;
+	}//InstrumentedDriver
+
+	/**
+	 * This method takes a given WebDriver and returns a decorated driver that counts its round-trips.
+	 * @param driver The WebDriver being decorated.
+	 * @return The decorated WebDriver.
+	 */
+	public static WebDriver wrap(WebDriver driver) {
+		return wrap(driver, null);
+	}//wrap
+
+	/**
+	 * This method takes a given WebDriver and returns a decorated driver that counts its round-trips
+	 * and records the latency of each one into the given metrics.
+	 * @param driver The WebDriver being decorated.
+	 * @param metrics The DriverMetrics the commands are recorded into, or null to only count them.
+	 * @return The decorated WebDriver.
+	 */
+	public static WebDriver wrap(WebDriver driver, DriverMetrics metrics) {
+		return (WebDriver) decorate(driver, new AtomicLong(), metrics, new ReentrantLock());
+	}//wrap
+
+	/**
+	 * This method returns the name of the Testing helper the current call came from.
+	 * It is the outermost Testing method on the stack, so a command sent by confirmItemsLeft inside confirmEmptyState
+	 * is tagged confirmEmptyState. Calls from outside Testing are tagged with the nearest class and method instead.
+	 * @return The name of the helper in String format.
+	 */
+	static String currentHelper() {
+		return STACK.walk(frames -> {
+			String outermost = null;
+			String nearest = null;
+			for(StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+				String className = frame.getClassName();
+				if(className.equals(Testing.class.getName()) && !frame.getMethodName().equals("main")
+						&& !frame.getMethodName().startsWith("lambda$")) {
+					outermost = frame.getMethodName();
+				}//if
+				else if(nearest == null && !className.equals(InstrumentedDriver.class.getName()) && !className.equals(Results.class.getName())
+						&& !className.startsWith("java.") && !className.startsWith("jdk.") && !className.contains("$Proxy")) {
+					nearest = className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+				}//else if
+				else {}//else
+			}//for
+			return (outermost != null) ? outermost : (nearest != null) ? nearest : "unknown";
+		});
+	}//currentHelper
+
+	/**
+	 * This method takes a given decorated WebDriver and returns how many remote commands have been sent through it.
+	 * @param driver The WebDriver returned by wrap.
+	 * @return The number of round-trips so far.
+	 */
+	public static long getRoundTrips(WebDriver driver) {
+		return handler(driver).roundTrips.get();
+	}//getRoundTrips
+
+	/**
+	 * This method takes a given decorated WebDriver and returns the lock its commands take.
+	 * Holding it keeps every other thread from sending a command to the session in the meantime.
+	 * @param driver The WebDriver returned by wrap.
+	 * @return The ReentrantLock of the session.
+	 */
+	public static ReentrantLock getLock(WebDriver driver) {
+		return handler(driver).lock;
+	}//getLock
+
+	/**
+	 * This method takes a given decorated WebDriver and returns the original driver under it.
+	 * @param driver The WebDriver returned by wrap.
+	 * @return The original WebDriver.
+	 */
+	public static WebDriver unwrap(WebDriver driver) {
+		return (WebDriver) handler(driver).target;
+	}//unwrap
+
+	/**
+	 * This method takes a given WebDriver and checks if it was decorated by this class.
+	 * @param driver The WebDriver being checked.
+	 * @return True if the driver was returned by wrap, false otherwise.
+	 */
+	public static boolean isInstrumented(WebDriver driver) {
+		return Proxy.isProxyClass(driver.getClass()) && Proxy.getInvocationHandler(driver) instanceof InstrumentedDriver;
+	}//isInstrumented
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if(method.getDeclaringClass() == Object.class) {
+			//equals, hashCode and toString act on the original object
+			return method.invoke(target, unwrapAll(args));
+		}//if
+		else {}//else
+		boolean remote = !LOCAL_HANDLES.contains(method.getReturnType());
+		if(remote) {
+			roundTrips.incrementAndGet();
+			//one command at a time on the session
+			lock.lock();
+		}//if
+		else {}//else
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			return decorateAll(method.invoke(target, unwrapAll(args)));
+		}//try
+		catch(InvocationTargetException e) {
+			failed = true;
+			throw e.getCause();
+		}//catch
+		finally {
+			if(remote) {
+				lock.unlock();
+			}//if
+			else {}//else
+			if(remote && metrics != null) {
+				metrics.record(currentHelper(), method.getName(), System.nanoTime() - start, failed);
+			}//if
+			else {}//else
+		}//finally
+	}//invoke
+
+	/**
+	 * This method takes a given result and decorates any WebElement or session handle in it, inside lists and maps too.
+	 */
+	private Object decorateAll(Object result) {
+		if(result instanceof WebElement || isLocalHandle(result)) {
+			return decorate(result, roundTrips, metrics, lock);
+		}//if
+		else if(result instanceof List) {
+			List<Object> decorated = new ArrayList<Object>();
+			for(Object item : (List<?>) result) {
+				decorated.add(decorateAll(item));
+			}//for
+			return decorated;
+		}//else if
+		else if(result instanceof Map) {
+			Map<Object, Object> decorated = new LinkedHashMap<Object, Object>();
+			for(Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+				decorated.put(entry.getKey(), decorateAll(entry.getValue()));
+			}//for
+			return decorated;
+		}//else if
+		else {
+			return result;
+		}//else
+	}//decorateAll
+
+	/**
+	 * This method takes given call arguments and swaps any decorated object for its original, so the driver can send it.
+	 */
+	private static Object[] unwrapAll(Object[] args) {
+		if(args == null) {
+			return null;
+		}//if
+		else {}//else
+		Object[] unwrapped = new Object[args.length];
+		for(int i = 0; i < args.length; i++) {
+			unwrapped[i] = unwrapOne(args[i]);
+		}//for
+		return unwrapped;
+	}//unwrapAll
+
+	private static Object unwrapOne(Object arg) {
+		if(arg != null && Proxy.isProxyClass(arg.getClass()) && Proxy.getInvocationHandler(arg) instanceof InstrumentedDriver) {
+			return ((InstrumentedDriver) Proxy.getInvocationHandler(arg)).target;
+		}//if
+		else if(arg instanceof Object[]) {
+			//keep the array type, so varargs such as sendKeys(CharSequence...) still match
+			Object[] array = (Object[]) arg;
+			Object[] unwrapped = (Object[]) Array.newInstance(array.getClass().getComponentType(), array.length);
+			for(int i = 0; i < array.length; i++) {
+				unwrapped[i] = unwrapOne(array[i]);
+			}//for
+			return unwrapped;
+		}//else if
+		else if(arg instanceof List) {
+			List<Object> unwrapped = new ArrayList<Object>();
+			for(Object item : (List<?>) arg) {
+				unwrapped.add(unwrapOne(item));
+			}//for
+			return unwrapped;
+		}//else if
+		else {
+			return arg;
+		}//else
+	}//unwrapOne
+
+	private static boolean isLocalHandle(Object result) {
+		for(Class<?> handle : LOCAL_HANDLES) {
+			if(handle.isInstance(result)) {
+				return true;
+			}//if
+			else {}//else
+		}//for
+		return false;
+	}//isLocalHandle
+
+	/**
+	 * This method takes a given object and creates a proxy for it that implements every interface it does.
+	 */
+	private static Object decorate(Object target, AtomicLong roundTrips, DriverMetrics metrics, ReentrantLock lock) {
+		Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+		for(Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+			collectInterfaces(type, interfaces);
+		}//for
+		return Proxy.newProxyInstance(InstrumentedDriver.class.getClassLoader(),
+				interfaces.toArray(new Class<?>[0]), new InstrumentedDriver(target, roundTrips, metrics, lock));
+	}//decorate
+
+	private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+		for(Class<?> implemented : type.getInterfaces()) {
+			if(interfaces.add(implemented)) {
+				collectInterfaces(implemented, interfaces);
+			}//if
+			else {}//else
+		}//for
+	}//collectInterfaces
+
+	private static InstrumentedDriver handler(WebDriver driver) {
+		if(!isInstrumented(driver)) {
+			throw new IllegalArgumentException("The given driver was not decorated by InstrumentedDriver.");
+		}//if
+		else {
+			return (InstrumentedDriver) Proxy.getInvocationHandler(driver);
+		}//else
+	}//handler
+
+}//InstrumentedDriver
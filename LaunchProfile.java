@@ -0,0 +1,185 @@
+package todo_website_testing;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.FirefoxProfile;
+
+/**
+ * This class describes how firefox is launched for a session, and keeps the startup and first-paint times it measured.
+ * The "full" profile is a normal browser window with default options. The "lean" profile is headless with a small viewport,
+ * no animations or smooth scrolling, no images or remote fonts, and the eager page-load strategy.
+ * Each setting is read through Settings, for example --headless=true, -Dtodo.headless=true or TODO_HEADLESS=true.
+ */
+public class LaunchProfile {
+
+	private final String name;
+	private final boolean headless;
+	private final int width;
+	private final int height;
+	private final boolean disableAnimations;
+	private final boolean blockImages;
+	private final boolean blockRemoteFonts;
+	private final String pageLoadStrategy;
+	private final String profileDir;
+	private final List<Long> startupMillis = new ArrayList<Long>();
+	private final List<Long> firstPaintMillis = new ArrayList<Long>();
+
+	LaunchProfile(String name, boolean headless, int width, int height, boolean disableAnimations,
+			boolean blockImages, boolean blockRemoteFonts, String pageLoadStrategy, String profileDir) {
+		this.name = name;
+		this.headless = headless;
+		this.width = width;
+		this.height = height;
+		this.disableAnimations = disableAnimations;
+		this.blockImages = blockImages;
+		this.blockRemoteFonts = blockRemoteFonts;
+		this.pageLoadStrategy = pageLoadStrategy;
+		this.profileDir = profileDir;
+	}//LaunchProfile
+
+	/**
+	 * This method returns the profile startSession() has always used: a normal window with default options.
+	 * @return The full LaunchProfile.
+	 */
+	public static LaunchProfile full() {
+		return new LaunchProfile("full", false, 0, 0, false, false, false, "normal", null);
+	}//full
+
+	/**
+	 * This method returns the fastest profile for checking page logic.
+	 * @return The lean LaunchProfile.
+	 */
+	public static LaunchProfile lean() {
+		return new LaunchProfile("lean", true, 800, 600, true, true, true, "eager", null);
+	}//lean
+
+	/**
+	 * This method takes the command line arguments and builds the profile they, the system properties and the environment select.
+	 * @param args The command line arguments given to main.
+	 * @return The selected LaunchProfile, based on the lean profile unless --profile=full is given.
+	 * @throws IllegalArgumentException If the viewport setting is not WIDTHxHEIGHT, or the page load setting is not a page load strategy.
+	 */
+	public static LaunchProfile fromConfig(String[] args) {
+		LaunchProfile base = "full".equals(Settings.get(args, "profile")) ? full() : lean();
+		String viewport = Settings.get(args, "viewport");
+		int width = base.width;
+		int height = base.height;
+		if(viewport != null) {
+			//viewport is given as WIDTHxHEIGHT
+			String[] size = viewport.toLowerCase().split("x");
+			if(size.length != 2 || !size[0].trim().matches("[0-9]{1,5}") || !size[1].trim().matches("[0-9]{1,5}")
+					|| Integer.parseInt(size[0].trim()) == 0 || Integer.parseInt(size[1].trim()) == 0) {
+				throw new IllegalArgumentException("The viewport setting must be WIDTHxHEIGHT in pixels, like 1280x720, was \"" + viewport + "\".");
+			}//if
+			else {}//else
+			width = Integer.parseInt(size[0].trim());
+			height = Integer.parseInt(size[1].trim());
+		}//if
+		else {}//else keep the base viewport
+		String pageLoad = Settings.get(args, "page-load", base.pageLoadStrategy);
+		boolean known = false;
+		for(PageLoadStrategy strategy : PageLoadStrategy.values()) {
+			known |= strategy.name().equalsIgnoreCase(pageLoad);
+		}//for
+		if(!known) {
+			throw new IllegalArgumentException("The page load setting must be none, eager or normal, was \"" + pageLoad + "\".");
+		}//if
+		else {}//else
+		return new LaunchProfile(base.name,
+				Settings.getFlag(args, "headless", base.headless),
+				width,
+				height,
+				Settings.getFlag(args, "disable-animations", base.disableAnimations),
+				Settings.getFlag(args, "block-images", base.blockImages),
+				Settings.getFlag(args, "block-fonts", base.blockRemoteFonts),
+				pageLoad.toLowerCase(),
+				Settings.get(args, "profile-dir", base.profileDir));
+	}//fromConfig
+
+	public String getName() { return name; }
+	public boolean isHeadless() { return headless; }
+	public String getPageLoadStrategy() { return pageLoadStrategy; }
+
+	/**
+	 * This method turns the profile into the FirefoxOptions used to start a session.
+	 * @return The FirefoxOptions for this profile.
+	 */
+	public FirefoxOptions toOptions() {
+		FirefoxOptions options = new FirefoxOptions();
+		if(profileDir != null) {
+			//start from a profile directory that is already set up
+			options.setProfile(new FirefoxProfile(new File(profileDir)));
+		}//if
+		else {}//else
+		if(headless) {
+			options.addArguments("-headless");
+		}//if
+		else {}//else
+		if(width > 0 && height > 0) {
+			options.addArguments("--width=" + width, "--height=" + height);
+		}//if
+		else {}//else
+		if(disableAnimations) {
+			options.addPreference("ui.prefersReducedMotion", 1);
+			options.addPreference("toolkit.cosmeticAnimations.enabled", false);
+			options.addPreference("general.smoothScroll", false);
+		}//if
+		else {}//else
+		if(blockImages) {
+			options.addPreference("permissions.default.image", 2);
+		}//if
+		else {}//else
+		if(blockRemoteFonts) {
+			options.addPreference("gfx.downloadable_fonts.enabled", false);
+		}//if
+		else {}//else
+		options.setPageLoadStrategy(PageLoadStrategy.fromString(pageLoadStrategy));
+		return options;
+	}//toOptions
+
+	/**
+	 * This method saves how long one session took to start.
+	 * @param millis The startup time in milliseconds.
+	 */
+	public synchronized void recordStartup(long millis) {
+		startupMillis.add(millis);
+	}//recordStartup
+
+	/**
+	 * This method saves how long the page took to first paint after it was opened.
+	 * @param millis The first-paint time in milliseconds. Negative values mean the browser did not report one and are skipped.
+	 */
+	public synchronized void recordFirstPaint(long millis) {
+		if(millis >= 0) {
+			firstPaintMillis.add(millis);
+		}//if
+		else {}//else
+	}//recordFirstPaint
+
+	/**
+	 * This method prints the settings of the profile and the average of the times it measured.
+	 */
+	public synchronized void printTimings() {
+		System.out.println("Launch profile \"" + name + "\" (headless=" + headless + ", viewport=" + width + "x" + height
+				+ ", page load=" + pageLoadStrategy + "): " + describe("startup", startupMillis) + ", " + describe("first paint", firstPaintMillis) + ".");
+	}//printTimings
+
+	/**
+	 * This method describes the average and the number of samples of a list of times.
+	 */
+	private static String describe(String label, List<Long> samples) {
+		if(samples.isEmpty()) {
+			return label + " not measured";
+		}//if
+		else {
+			long total = 0;
+			for(long sample : samples) {
+				total += sample;
+			}//for
+			return label + " " + (total / samples.size()) + " ms average over " + samples.size();
+		}//else
+	}//describe
+
+}//LaunchProfile
@@ -0,0 +1,262 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * This class is the one place the page's elements are located from. Each logical element has a primary CSS selector,
+ * usually an id or class, and fallbacks tried in order if it matches nothing. The old absolute paths are kept as the last
+ * fallback, so a layout change only costs a fallback instead of failing the run.
+ * In the page, the selector that worked is remembered until the page is reloaded, and tried first next time.
+ * Handles found from Java are cached for each session until a helper changes the page. Every lookup is counted,
+ * with how many needed a fallback, and printSummary relays them.
+ */
+public class Locators {
+
+	/**
+	 * This class is one logical element and the selectors it can be found with, the primary one first.
+	 */
+	public static class Locator {
+		private final String name;
+		private final List<String> selectors;
+
+		Locator(String name, String... selectors) {
+			this.name = name;
+			this.selectors = Collections.unmodifiableList(Arrays.asList(selectors));
+		}//Locator
+
+		public String getName() { return name; }
+		public List<String> getSelectors() { return selectors; }
+	}//Locator
+
+	private static final Map<String, Locator> REGISTRY = new LinkedHashMap<String, Locator>();
+
+	/**
+	 * The lookups and fallbacks counted for each locator. It is declared before the locators, which register into it.
+	 */
+	private static final Map<String, AtomicLong[]> USAGE = new HashMap<String, AtomicLong[]>();
+
+	public static final Locator FILTER_TABS = register("filterTabs", "span[data-filter]", "body > div > div:nth-of-type(2) > span");
+	public static final Locator TODO_LIST = register("todoList", "#todos-list");
+	public static final Locator TODO_ITEMS = register("todoItems", "#todos-list > li", "#todos-list li");
+	/** Found inside a todo item. */
+	public static final Locator ITEM_CHECKBOX = register("itemCheckbox", ".todo-checkbox", "input[type='checkbox']");
+	/** Found inside a todo item. */
+	public static final Locator ITEM_CHECKMARK = register("itemCheckmark", ".checkmark");
+	/** Found inside a todo item. */
+	public static final Locator ITEM_DELETE = register("itemDelete", ".button-delete", "button");
+	public static final Locator ITEMS_LEFT = register("itemsLeft", "#items-left");
+	public static final Locator EMPTY_STATE = register("emptyState", ".empty-state");
+	public static final Locator EMPTY_STATE_ICON = register("emptyStateIcon", ".empty-state i", "body > div > div:nth-of-type(3) > div > i");
+	public static final Locator EMPTY_STATE_MESSAGE = register("emptyStateMessage", "#empty-task-message", ".empty-state p");
+
+	/**
+	 * The functions scripts use to find elements through the registry, which they are given as arguments[0].
+	 * all(name, root) and one(name, root) search inside root, or the document. For each name, used holds the highest
+	 * index of a selector that matched during the script, or -1 if none did, and should be returned for recordUsage.
+	 */
+	static final String RESOLVER =
+			"var __registry = arguments[0], used = {};"
+			+ "var __cache = window.__todoLocatorCache || (window.__todoLocatorCache = {});"
+			+ "var note = function(name, k) { if (!(name in used) || k > used[name]) { used[name] = k; } };"
+			+ "var all = function(name, root) {"
+			+ "  var selectors = __registry[name], first = __cache[name] || 0, order = [first];"
+			+ "  for (var k = 0; k < selectors.length; k++) { if (k != first) { order.push(k); } }"
+			+ "  for (var n = 0; n < order.length; n++) {"
+			+ "    var found = (root || document).querySelectorAll(selectors[order[n]]);"
+			+ "    if (found.length > 0) { __cache[name] = order[n]; note(name, order[n]); return found; }"
+			+ "  }"
+			+ "  note(name, -1);"
+			+ "  return [];"
+			+ "};"
+			+ "var one = function(name, root) { var found = all(name, root); return found.length > 0 ? found[0] : null; };";
+
+	/**
+	 * The handles found from Java for each session, by locator name, with the list generation they were found at.
+	 * They are dropped when a helper changes the page, and not served once the page reports another generation.
+	 */
+	private static final Map<WebDriver, Handles> HANDLES = Collections.synchronizedMap(new WeakHashMap<WebDriver, Handles>());
+
+	/**
+	 * This class holds the handles found in one session at one generation of its todo list.
+	 */
+	private static class Handles {
+		private final long generation;
+		private final Map<String, List<WebElement>> byName = new HashMap<String, List<WebElement>>();
+
+		Handles(long generation) {
+			this.generation = generation;
+		}//Handles
+	}//Handles
+
+	private static Locator register(String name, String... selectors) {
+		Locator locator = new Locator(name, selectors);
+		REGISTRY.put(name, locator);
+		USAGE.put(name, new AtomicLong[] {new AtomicLong(), new AtomicLong(), new AtomicLong()});
+		return locator;
+	}//register
+
+	/**
+	 * This method returns every locator by name, with its selectors, in the form scripts are given them.
+	 * @return The Map of locator names to their List<String> of selectors.
+	 */
+	static Map<String, List<String>> asScriptArgument() {
+		Map<String, List<String>> registry = new LinkedHashMap<String, List<String>>();
+		for(Locator locator : REGISTRY.values()) {
+			registry.put(locator.getName(), locator.getSelectors());
+		}//for
+		return registry;
+	}//asScriptArgument
+
+	/**
+	 * This method takes the used map a script returned and counts each lookup, and the ones that needed a fallback.
+	 * @param used The Map of locator names to the index of the selector that matched, -1 if none did.
+	 */
+	static void recordUsage(Map<String, Object> used) {
+		if(used == null) {
+			return;
+		}//if
+		else {}//else
+		for(Map.Entry<String, Object> entry : used.entrySet()) {
+			record(entry.getKey(), ((Number) entry.getValue()).intValue());
+			touch(REGISTRY.get(entry.getKey()));
+		}//for
+	}//recordUsage
+
+	/**
+	 * This method notes the ids and classes of every selector of the given locator as touched by the current scenario.
+	 */
+	private static void touch(Locator locator) {
+		if(locator != null) {
+			for(String selector : locator.getSelectors()) {
+				ImpactMap.touchSelector(selector);
+			}//for
+		}//if
+		else {}//else
+	}//touch
+
+	private static void record(String name, int index) {
+		AtomicLong[] usage = USAGE.get(name);
+		if(usage == null) {
+			return;
+		}//if
+		else {}//else
+		usage[0].incrementAndGet();
+		if(index > 0) {
+			usage[1].incrementAndGet();
+		}//if
+		else if(index < 0) {
+			usage[2].incrementAndGet();
+		}//else if
+		else {}//else
+	}//record
+
+	/**
+	 * This method takes a given WebDriver and returns every element the locator finds, from the session cache if the
+	 * page has not changed since they were found. The cache is keyed on the generation of the MutationObserver TodoItemIndex
+	 * installs, and is only served while that generation is known without asking, that is while no command was sent since
+	 * it was read. Otherwise the elements are found again, in the same single script that reads the generation.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param locator The Locator of the elements.
+	 * @return The List<WebElement> found. It is empty if no selector matched.
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<WebElement> findAll(WebDriver driver, Locator locator) {
+		long known = TodoItemIndex.knownGeneration(driver);
+		Handles handles = HANDLES.get(driver);
+		if(handles != null && known >= 0 && handles.generation == known) {
+			synchronized(handles) {
+				List<WebElement> cached = handles.byName.get(locator.getName());
+				if(cached != null) {
+					touch(locator);
+					return cached;
+				}//if
+				else {}//else
+			}//synchronized
+		}//if
+		else {}//else
+		Map<String, Object> raw = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(
+				RESOLVER + TodoItemIndex.OBSERVER_SCRIPT
+				+ "return {elements: Array.prototype.slice.call(all(arguments[1])), used: used, generation: generation};",
+				asScriptArgument(), locator.getName());
+		recordUsage((Map<String, Object>) raw.get("used"));
+		TodoItemIndex.observe(driver, raw.get("generation"));
+		List<WebElement> elements = Collections.unmodifiableList(new ArrayList<WebElement>((List<WebElement>) raw.get("elements")));
+		long generation = ((Number) raw.get("generation")).longValue();
+		if(generation >= 0) {
+			//keep the handles of the same generation together, and start over when it moved on
+			handles = HANDLES.compute(driver, (key, current) -> (current != null && current.generation == generation) ? current : new Handles(generation));
+			synchronized(handles) {
+				handles.byName.put(locator.getName(), elements);
+			}//synchronized
+		}//if
+		else {}//else without the observer there is nothing to tell a stale handle by, so nothing is kept
+		return elements;
+	}//findAll
+
+	/**
+	 * This method takes a given WebElement and returns the first element inside it the locator finds.
+	 * Each selector is tried in order, so only a fallback costs more than one lookup.
+	 * @param root The WebElement being searched inside.
+	 * @param locator The Locator of the element.
+	 * @return The WebElement found, or null if no selector matched.
+	 */
+	public static WebElement findIn(WebElement root, Locator locator) {
+		touch(locator);
+		List<String> selectors = locator.getSelectors();
+		for(int i = 0; i < selectors.size(); i++) {
+			List<WebElement> found = root.findElements(By.cssSelector(selectors.get(i)));
+			if(!found.isEmpty()) {
+				record(locator.getName(), i);
+				return found.get(0);
+			}//if
+			else {}//else
+		}//for
+		record(locator.getName(), -1);
+		return null;
+	}//findIn
+
+	/**
+	 * This method takes a given WebDriver and drops the handles cached for its session. Helpers that change the page call this.
+	 * @param driver The WebDriver being used for the automation.
+	 */
+	public static void invalidate(WebDriver driver) {
+		HANDLES.remove(driver);
+	}//invalidate
+
+	/**
+	 * This method prints how many times each locator was resolved in the page, how many needed a fallback and how many found nothing.
+	 * Handles served from the session cache are not counted.
+	 */
+	public static void printSummary() {
+		System.out.println("Locator lookups:");
+		for(Locator locator : REGISTRY.values()) {
+			AtomicLong[] usage = USAGE.get(locator.getName());
+			if(usage[0].get() > 0) {
+				System.out.println(String.format("  %-20s %8d lookups %6d fallbacks %6d not found%s", locator.getName(), usage[0].get(),
+						usage[1].get(), usage[2].get(), (usage[1].get() > 0) ? "  CHECK \"" + locator.getSelectors().get(0) + "\"" : ""));
+			}//if
+			else {}//else
+		}//for
+	}//printSummary
+
+	/**
+	 * This method returns how many lookups of the given locator needed a fallback.
+	 * @param locator The Locator being checked.
+	 * @return The number of fallback lookups.
+	 */
+	public static long getFallbacks(Locator locator) {
+		return USAGE.get(locator.getName())[1].get();
+	}//getFallbacks
+
+}//Locators
@@ -0,0 +1,56 @@
+package todo_website_testing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * This interface is where the DriverMetrics of a run are sent when it ends.
+ */
+public interface MetricsSink {
+
+	/**
+	 * This method takes the given metrics and writes them out.
+	 * @param metrics The DriverMetrics of the run.
+	 * @throws IOException If the metrics could not be written.
+	 */
+	void write(DriverMetrics metrics) throws IOException;
+
+	/**
+	 * This method returns a sink that writes the metrics to the given file as JSON.
+	 * @param file The path of the file in String format.
+	 * @return The MetricsSink.
+	 */
+	static MetricsSink json(String file) {
+		return metrics -> Files.write(Paths.get(file), metrics.toJson().getBytes(StandardCharsets.UTF_8));
+	}//json
+
+	/**
+	 * This method returns a sink that writes the metrics to the given file in the Prometheus text format.
+	 * @param file The path of the file in String format.
+	 * @return The MetricsSink.
+	 */
+	static MetricsSink prometheus(String file) {
+		return metrics -> Files.write(Paths.get(file), metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8));
+	}//prometheus
+
+	/**
+	 * This method takes the command line arguments and returns the sink they select with --metrics=json|prometheus|none
+	 * and --metrics-file.
+	 * @param args The command line arguments given to main.
+	 * @return The selected MetricsSink, or null for none.
+	 */
+	static MetricsSink fromConfig(String[] args) {
+		String format = Settings.get(args, "metrics", "json");
+		if(format.equals("json")) {
+			return json(Settings.get(args, "metrics-file", "driver-metrics.json"));
+		}//if
+		else if(format.equals("prometheus")) {
+			return prometheus(Settings.get(args, "metrics-file", "driver-metrics.prom"));
+		}//else if
+		else {
+			return null;
+		}//else
+	}//fromConfig
+
+}//MetricsSink
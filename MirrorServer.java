@@ -0,0 +1,191 @@
+package todo_website_testing;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class serves a vendored copy of the to-do site (HTML, CSS, JS and the font-awesome assets) from memory,
+ * on an ephemeral loopback port, so the tests do not depend on GitHub Pages or the network.
+ * The copy is read from a directory given with --site-dir, or from the todo_website/ folder on the classpath.
+ */
+public class MirrorServer implements AutoCloseable {
+
+	/** The classpath folder the vendored site is read from when no directory is given. */
+	public static final String CLASSPATH_ROOT = "todo_website";
+
+	private static final Map<String, String> CONTENT_TYPES = new HashMap<String, String>();
+	static {
+		CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+		CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+		CONTENT_TYPES.put("js", "application/javascript; charset=utf-8");
+		CONTENT_TYPES.put("json", "application/json; charset=utf-8");
+		CONTENT_TYPES.put("svg", "image/svg+xml");
+		CONTENT_TYPES.put("png", "image/png");
+		CONTENT_TYPES.put("ico", "image/x-icon");
+		CONTENT_TYPES.put("woff", "font/woff");
+		CONTENT_TYPES.put("woff2", "font/woff2");
+		CONTENT_TYPES.put("ttf", "font/ttf");
+		CONTENT_TYPES.put("eot", "application/vnd.ms-fontobject");
+	}//static
+
+	private final HttpServer server;
+	private final ExecutorService handlers;
+	private final Path siteDir;
+	private final Map<String, byte[]> files = new ConcurrentHashMap<String, byte[]>();
+
+	/**
+	 * This constructor loads the site into memory and starts serving it on a free loopback port.
+	 */
+	private MirrorServer(Path siteDir) throws IOException {
+		this.siteDir = siteDir;
+		if(siteDir != null) {
+			preload(siteDir);
+		}//if
+		else {}//else classpath files are loaded on first request
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		handlers = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "mirror-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(handlers);
+		server.start();
+	}//MirrorServer
+
+	/**
+	 * This method takes a given directory and starts a mirror of the site in it, or of the classpath copy if it is null.
+	 * @param siteDir The directory holding the vendored site in String format, or null to use the classpath.
+	 * @return The running MirrorServer.
+	 */
+	public static MirrorServer start(String siteDir) {
+		try {
+			return new MirrorServer(siteDir != null ? Paths.get(siteDir) : null);
+		}//try
+		catch(IOException e) {
+			throw new UncheckedIOException("Could not start the mirror server.", e);
+		}//catch
+	}//start
+
+	/**
+	 * This method takes a given directory and checks if a vendored copy of the site is there, or on the classpath if it is null.
+	 * @param siteDir The directory holding the vendored site in String format, or null to check the classpath.
+	 * @return True if an index.html was found, false otherwise.
+	 */
+	public static boolean isAvailable(String siteDir) {
+		if(siteDir != null) {
+			return Files.isRegularFile(Paths.get(siteDir, "index.html"));
+		}//if
+		else {
+			return MirrorServer.class.getClassLoader().getResource(CLASSPATH_ROOT + "/index.html") != null;
+		}//else
+	}//isAvailable
+
+	/**
+	 * This method returns the url of the mirrored page, to be given to openWebPage.
+	 * @return The url of the page in String format.
+	 */
+	public String getUrl() {
+		return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort() + "/";
+	}//getUrl
+
+	/**
+	 * This method stops the server.
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		handlers.shutdownNow();
+	}//close
+
+	/**
+	 * This method takes a given directory and reads every file in it into memory, keyed by its url path.
+	 */
+	private void preload(Path root) throws IOException {
+		try(Stream<Path> walk = Files.walk(root)) {
+			for(Path file : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+				String path = "/" + root.relativize(file).toString().replace('\\', '/');
+				files.put(path, Files.readAllBytes(file));
+			}//for
+		}//try
+	}//preload
+
+	/**
+	 * This method answers one request with the matching file, or a 404 if there is none.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String path = exchange.getRequestURI().getPath();
+			if(path.endsWith("/")) {
+				path = path + "index.html";
+			}//if
+			else {}//else
+			byte[] body = find(path);
+			if(body == null) {
+				exchange.sendResponseHeaders(404, -1);
+			}//if
+			else if("HEAD".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Content-Type", contentType(path));
+				exchange.sendResponseHeaders(200, -1);
+			}//else if
+			else {
+				exchange.getResponseHeaders().set("Content-Type", contentType(path));
+				exchange.sendResponseHeaders(200, body.length);
+				try(OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}//try
+			}//else
+		}//try
+		finally {
+			exchange.close();
+		}//finally
+	}//handle
+
+	/**
+	 * This method takes a given url path and returns the file for it, loading it from the classpath the first time.
+	 */
+	private byte[] find(String path) throws IOException {
+		byte[] body = files.get(path);
+		if(body != null || siteDir != null || path.contains("..")) {
+			return body;
+		}//if
+		else {
+			try(InputStream in = MirrorServer.class.getClassLoader().getResourceAsStream(CLASSPATH_ROOT + path)) {
+				if(in == null) {
+					return null;
+				}//if
+				else {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					in.transferTo(out);
+					body = out.toByteArray();
+					files.put(path, body);
+					return body;
+				}//else
+			}//try
+		}//else
+	}//find
+
+	/**
+	 * This method takes a given url path and returns the content type for its extension.
+	 */
+	private static String contentType(String path) {
+		String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase();
+		return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+	}//contentType
+
+}//MirrorServer
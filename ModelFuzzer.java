@@ -0,0 +1,513 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class tests the todo page against a model of what it should show. It keeps a model of the list (the items,
+ * which are completed, the active filter and the items left count), generates random sequences of addTask,
+ * clickCheckbox, clickTab and deleteItem, and after every batch of operations checks the page against the model
+ * with one snapshot read. Task texts mix plain words, unicode, duplicates of existing tasks and 10 000 character tasks.
+ * A batch of operations is done in one script through the page's own controls, as TaskSeeder does, so a single
+ * browser runs thousands of operations a minute. When the page and the model disagree, the failing sequence is
+ * shrunk to the fewest operations, with the shortest texts, that still fail, and that sequence is reported.
+ */
+public class ModelFuzzer {
+
+	/** The operations done in one script before the page is checked. */
+	public static final int BATCH_SIZE = Integer.getInteger("fuzz.batch", 20);
+
+	/** The operations in one run. The page is reset between runs, so a failing run is short enough to shrink. */
+	public static final int RUN_LENGTH = Integer.getInteger("fuzz.run.length", 100);
+
+	/** The most replays spent shrinking a failing sequence. */
+	public static final int SHRINK_RUNS = Integer.getInteger("fuzz.shrink.runs", 200);
+
+	/** The length of the longest task texts. */
+	static final int LONG_TEXT = 10000;
+
+	static final String[] WORDS = {"wash", "the", "car", "change", "kitchen", "light", "buy", "milk", "call", "mom",
+			"water", "plants", "pay", "rent", "walk", "dog", "fix", "sink", "read", "book"};
+
+	static final String[] UNICODE = {"caf\u00e9 cr\u00e8me", "\u4e70\u725b\u5976", "\u0417\u0430\u0434\u0430\u0447\u0430 \u21165", "\ud83e\uddf9 clean the \ud83d\udec1", "\u0645\u0647\u0645\u0629 \u062c\u062f\u064a\u062f\u0629", "e\u0301te\u0301",
+			"\uff46\uff55\uff4c\uff4c \uff57\uff49\uff44\uff54\uff48", "na\u00efve fa\u00e7ade", "\u65e5\u672c\u8a9e\u306e\u30bf\u30b9\u30af", "\ud83d\udc69\u200d\ud83d\udc69\u200d\ud83d\udc67 family", "\u2211 x\u00b2 \u2264 \u221e", "<b>not bold</b>", "&amp; \"quoted\""};
+
+	static final String[] FILTERS = {"all", "active", "completed"};
+
+	/**
+	 * The script that does a batch of operations through the page's controls. Arguments are the locator registry
+	 * and the operations, each [kind, argument]. Items are picked by their position among the items shown.
+	 */
+	static final String OPERATIONS_SCRIPT =
+			Locators.RESOLVER
+			+ "var ops = arguments[1];"
+			+ "var input = document.getElementById('task-input'), button = document.getElementById('button-add-task');"
+			+ "var shown = function() {"
+			+ "  var out = [], lis = all('todoItems');"
+			+ "  for (var k = 0; k < lis.length; k++) { if (lis[k].getClientRects().length > 0) { out.push(lis[k]); } }"
+			+ "  return out;"
+			+ "};"
+			+ "for (var i = 0; i < ops.length; i++) {"
+			+ "  var kind = ops[i][0], arg = ops[i][1];"
+			+ "  if (kind == 'add') {"
+			+ "    if (!input || !button) { return {failed: i, reason: 'the input bar or add button is missing', locators: used}; }"
+			+ "    input.value = arg;"
+			+ "    input.dispatchEvent(new Event('input', {bubbles: true}));"
+			+ "    button.click();"
+			+ "  } else if (kind == 'tab') {"
+			+ "    var tabs = all('filterTabs'), tab = null;"
+			+ "    for (var t = 0; t < tabs.length; t++) { if (tabs[t].getAttribute('data-filter') == arg) { tab = tabs[t]; } }"
+			+ "    if (!tab) { return {failed: i, reason: 'tab ' + arg + ' is missing', locators: used}; }"
+			+ "    tab.click();"
+			+ "  } else {"
+			+ "    var items = shown(), item = items[arg];"
+			+ "    if (!item) { return {failed: i, reason: 'only ' + items.length + ' items are shown', locators: used}; }"
+			+ "    var target = (kind == 'toggle') ? one('itemCheckbox', item) : one('itemDelete', item);"
+			+ "    if (!target) { return {failed: i, reason: 'the item has no ' + (kind == 'toggle' ? 'checkbox' : 'delete button'), locators: used}; }"
+			+ "    target.click();"
+			+ "  }"
+			+ "}"
+			+ "return {failed: -1, locators: used};";
+
+	/**
+	 * This class is one operation on the page. Toggles and deletes name the task they act on by the id of the add
+	 * that made it, so removing other operations while shrinking does not move them onto a different task.
+	 */
+	public static class Operation {
+		private final String kind;
+		private final String text;
+		private final int task;
+
+		Operation(String kind, String text, int task) {
+			this.kind = kind;
+			this.text = text;
+			this.task = task;
+		}//Operation
+
+		public String getKind() { return kind; }
+		/** The task text of an add, or the filter of a tab click. */
+		public String getText() { return text; }
+		/** The id of the task an add makes, or a toggle or delete acts on. */
+		public int getTask() { return task; }
+
+		/**
+		 * This method returns the operation with a different task text, for shrinking.
+		 */
+		Operation withText(String newText) {
+			return new Operation(kind, newText, task);
+		}//withText
+
+		/**
+		 * This method returns the operation in the form the script is given it.
+		 * @param position The position of the task among the shown items, for a toggle or delete.
+		 */
+		List<Object> toScriptArgument(int position) {
+			List<Object> op = new ArrayList<Object>();
+			op.add(kind);
+			if(kind.equals("add") || kind.equals("tab")) {
+				op.add(text);
+			}//if
+			else {
+				op.add(position);
+			}//else
+			return op;
+		}//toScriptArgument
+
+		@Override
+		public String toString() {
+			if(kind.equals("add")) {
+				String shown = (text.length() > 40) ? text.substring(0, 40) + "... (" + text.length() + " chars)" : text;
+				return "addTask #" + task + " \"" + shown + "\"";
+			}//if
+			else if(kind.equals("tab")) {
+				return "clickTab " + text;
+			}//else if
+			else if(kind.equals("toggle")) {
+				return "clickCheckbox #" + task;
+			}//else if
+			else {
+				return "deleteItem #" + task;
+			}//else
+		}//toString
+	}//Operation
+
+	/**
+	 * This class is what the page should show: every task in the order it was added, which are completed, and the filter.
+	 */
+	static class Model {
+		private final List<String> texts = new ArrayList<String>();
+		private final List<Boolean> completed = new ArrayList<Boolean>();
+		private final List<Integer> tasks = new ArrayList<Integer>();
+		private String filter = "all";
+
+		/**
+		 * This method returns the positions in the whole list of the items the current filter shows.
+		 */
+		List<Integer> shown() {
+			List<Integer> positions = new ArrayList<Integer>();
+			for(int i = 0; i < texts.size(); i++) {
+				if(filter.equals("all") || (filter.equals("completed") == completed.get(i))) {
+					positions.add(i);
+				}//if
+				else {}//else
+			}//for
+			return positions;
+		}//shown
+
+		int getActiveCount() {
+			int count = 0;
+			for(boolean done : completed) {
+				count += done ? 0 : 1;
+			}//for
+			return count;
+		}//getActiveCount
+
+		/**
+		 * This method applies an operation to the model.
+		 * @return The position among the shown items of the task a toggle or delete acts on, 0 for an add or tab click,
+		 * or -1 if the task is gone or not shown, in which case the operation is skipped.
+		 */
+		int apply(Operation op) {
+			if(op.getKind().equals("add")) {
+				texts.add(op.getText());
+				completed.add(false);
+				tasks.add(op.getTask());
+				return 0;
+			}//if
+			else if(op.getKind().equals("tab")) {
+				filter = op.getText();
+				return 0;
+			}//else if
+			else {}//else
+			List<Integer> shown = shown();
+			int index = tasks.indexOf(op.getTask());
+			int position = shown.indexOf(index);
+			if(position < 0) {
+				return -1;
+			}//if
+			else if(op.getKind().equals("toggle")) {
+				completed.set(index, !completed.get(index));
+			}//else if
+			else {
+				texts.remove(index);
+				completed.remove(index);
+				tasks.remove(index);
+			}//else
+			return position;
+		}//apply
+
+		/**
+		 * This method takes a given TodoSnapshot and compares it to the model.
+		 * @return The first difference as {what, expected, found}, or null if the page matches.
+		 */
+		String[] compare(TodoSnapshot snapshot) {
+			List<TodoSnapshot.TodoItem> items = new ArrayList<TodoSnapshot.TodoItem>();
+			for(TodoSnapshot.TodoItem item : snapshot.getItems()) {
+				if(item.isDisplayed()) {
+					items.add(item);
+				}//if
+				else {}//else hidden by the filter
+			}//for
+			List<Integer> shown = shown();
+			if(items.size() != shown.size()) {
+				return new String[] {"Wrong number of tasks shown on the " + filter + " tab.", String.valueOf(shown.size()), String.valueOf(items.size())};
+			}//if
+			else {}//else
+			for(int i = 0; i < shown.size(); i++) {
+				String text = texts.get(shown.get(i));
+				boolean done = completed.get(shown.get(i));
+				TodoSnapshot.TodoItem item = items.get(i);
+				if(!text.equals(item.getText()) || done != item.isChecked()) {
+					return new String[] {"Shown task " + i + " on the " + filter + " tab is not the expected task.",
+							describe(text, done), describe(item.getText(), item.isChecked())};
+				}//if
+				else {}//else
+			}//for
+			TodoSnapshot.FilterTab tab = snapshot.getTab(filter);
+			if(tab == null || !tab.isActive()) {
+				return new String[] {"Wrong filter tab is active.", filter, snapshot.getActiveFilterTab()};
+			}//if
+			else {}//else
+			int active = getActiveCount();
+			String itemsLeft = active + " active item" + ((active != 1) ? "s" : "") + " left";
+			if(!itemsLeft.equals(snapshot.getItemsLeftText())) {
+				return new String[] {"Wrong items left message.", itemsLeft, snapshot.getItemsLeftText()};
+			}//if
+			else {}//else
+			if(shown.isEmpty()) {
+				String message = filter.equals("all") ? Scenarios.ALL_TAB_MSG
+						: filter.equals("active") ? Scenarios.ACTIVE_TAB_MSG : Scenarios.COMPLETED_TAB_MSG;
+				if(!message.equals(snapshot.getMessageText())) {
+					return new String[] {"Wrong empty state message on the " + filter + " tab.", message, snapshot.getMessageText()};
+				}//if
+				else {}//else
+			}//if
+			else {}//else
+			return null;
+		}//compare
+
+		private static String describe(String text, boolean done) {
+			String shown = (text != null && text.length() > 40) ? text.substring(0, 40) + "... (" + text.length() + " chars)" : text;
+			return "\"" + shown + "\"" + (done ? " (completed)" : " (active)");
+		}//describe
+	}//Model
+
+	/**
+	 * This class is how a replay of a sequence ended.
+	 */
+	static class Outcome {
+		private final String[] difference;
+		private final int operations;
+
+		Outcome(String[] difference, int operations) {
+			this.difference = difference;
+			this.operations = operations;
+		}//Outcome
+
+		boolean isFailed() { return difference != null; }
+	}//Outcome
+
+	private final Random random;
+	private final long seed;
+	private int nextTask;
+	private int operationsRun;
+	private int replays;
+
+	/**
+	 * This constructor creates a fuzzer whose operations come from the given seed, so a failing run can be repeated.
+	 * @param seed The seed of the random operations.
+	 */
+	public ModelFuzzer(long seed) {
+		this.seed = seed;
+		this.random = new Random(seed);
+	}//ModelFuzzer
+
+	/**
+	 * This method returns a scenario that runs the given number of random operations and reports the first
+	 * difference from the model, shrunk to its smallest failing sequence. Its name does not change with the seed,
+	 * so its history is kept across runs. The seed is given in its result instead.
+	 * @param operations The number of operations.
+	 * @param seed The seed of the random operations.
+	 * @return The Scenario.
+	 */
+	public static Scenario scenario(int operations, long seed) {
+		return Scenario.longRunning("model fuzz " + operations, driver -> new ModelFuzzer(seed).run(driver, operations));
+	}//scenario
+
+	/**
+	 * This method takes a given WebDriver showing a fresh page and runs random operations on it in runs of RUN_LENGTH,
+	 * resetting the page between runs, until the operations are used up or the page disagrees with the model.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param operations The number of operations.
+	 * @return The number of errors found in int format.
+	 */
+	public int run(WebDriver driver, int operations) {
+		long start = System.nanoTime();
+		int errorCtr = 0;
+		boolean fresh = true;
+		while(operationsRun < operations && errorCtr == 0) {
+			if(!fresh) {
+				restart(driver);
+			}//if
+			else {}//else
+			fresh = false;
+			//generate the whole run against its own model, so every operation has a target
+			Model model = new Model();
+			List<Operation> sequence = new ArrayList<Operation>();
+			int length = Math.min(RUN_LENGTH, operations - operationsRun);
+			for(int i = 0; i < length; i++) {
+				Operation op = next(model);
+				model.apply(op);
+				sequence.add(op);
+			}//for
+			Outcome outcome = replay(driver, sequence);
+			operationsRun += outcome.operations;
+			if(outcome.isFailed()) {
+				List<Operation> smallest = shrink(driver, new ArrayList<Operation>(sequence.subList(0, outcome.operations)));
+				restart(driver);
+				Outcome last = replay(driver, smallest);
+				String[] difference = last.isFailed() ? last.difference : outcome.difference;
+				//the found value is followed by the smallest sequence that gets it, so the result holds everything needed to repeat it
+				StringBuilder found = new StringBuilder(String.valueOf(difference[2])).append(" after the smallest failing sequence:");
+				for(Operation op : smallest) {
+					found.append("\n  ").append(op);
+				}//for
+				errorCtr += Results.fail(difference[0] + " Found after " + operationsRun + " operations (seed " + seed + "), smallest failing sequence has "
+						+ smallest.size() + " operations.", difference[1], found);
+			}//if
+			else {}//else
+		}//while
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000L);
+		System.out.println("Fuzzer: ran " + operationsRun + " operations (seed " + seed + ") in " + millis + " ms (" + (operationsRun * 60000L / millis)
+				+ " per minute), " + replays + " replays.");
+		return errorCtr;
+	}//run
+
+	/**
+	 * This method takes the model and returns a random operation that has a target in it.
+	 */
+	Operation next(Model model) {
+		List<Integer> shown = model.shown();
+		int roll = random.nextInt(100);
+		if(roll < 35 || (shown.isEmpty() && roll < 85)) {
+			return new Operation("add", nextText(model), nextTask++);
+		}//if
+		else if(roll < 50 || shown.isEmpty()) {
+			return new Operation("tab", FILTERS[random.nextInt(FILTERS.length)], -1);
+		}//else if
+		else {
+			int task = model.tasks.get(shown.get(random.nextInt(shown.size())));
+			return new Operation((roll < 78) ? "toggle" : "delete", null, task);
+		}//else
+	}//next
+
+	/**
+	 * This method returns a task text: plain words, unicode, a duplicate of a task in the model, or a 10 000 character task.
+	 */
+	String nextText(Model model) {
+		int roll = random.nextInt(100);
+		if(roll < 20 && !model.texts.isEmpty()) {
+			return model.texts.get(random.nextInt(model.texts.size()));
+		}//if
+		else if(roll < 40) {
+			return UNICODE[random.nextInt(UNICODE.length)] + " " + random.nextInt(1000);
+		}//else if
+		else if(roll < 43) {
+			StringBuilder text = new StringBuilder();
+			while(text.length() < LONG_TEXT) {
+				text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}//while
+			return text.substring(0, LONG_TEXT).trim();
+		}//else if
+		else {
+			int words = 1 + random.nextInt(4);
+			StringBuilder text = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+			for(int i = 1; i < words; i++) {
+				text.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+			}//for
+			return text.toString();
+		}//else
+	}//nextText
+
+	/**
+	 * This method takes a given WebDriver showing a fresh page and does the given operations in batches,
+	 * checking the page against the model after each batch. Operations with no target in the model are skipped.
+	 * @return The Outcome, with the number of operations done up to the end of the batch that failed.
+	 */
+	@SuppressWarnings("unchecked")
+	Outcome replay(WebDriver driver, List<Operation> sequence) {
+		replays++;
+		Model model = new Model();
+		List<Object> batch = new ArrayList<Object>();
+		for(int i = 0; i < sequence.size(); i++) {
+			int position = model.apply(sequence.get(i));
+			if(position >= 0) {
+				batch.add(sequence.get(i).toScriptArgument(position));
+			}//if
+			else {}//else its task was removed while shrinking
+			if(batch.size() == BATCH_SIZE || i == sequence.size() - 1) {
+				Map<String, Object> done = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(OPERATIONS_SCRIPT,
+						Locators.asScriptArgument(), batch);
+				Locators.recordUsage((Map<String, Object>) done.get("locators"));
+				TodoItemIndex.invalidate(driver);
+				int failed = ((Number) done.get("failed")).intValue();
+				if(failed >= 0) {
+					return new Outcome(new String[] {"An operation could not find its target: " + done.get("reason") + ".",
+							"operation " + failed + " of the batch done", "not done"}, i + 1);
+				}//if
+				else {}//else
+				String[] difference = model.compare(TodoSnapshot.take(driver));
+				if(difference != null) {
+					return new Outcome(difference, i + 1);
+				}//if
+				else {}//else
+				batch.clear();
+			}//if
+			else {}//else
+		}//for
+		return new Outcome(null, sequence.size());
+	}//replay
+
+	/**
+	 * This method takes a failing sequence and removes operations, then shortens task texts, for as long as it still fails.
+	 * Chunks are removed halving in size, as in delta debugging, until a whole pass removes nothing.
+	 * A toggle or delete whose task was removed is skipped. Each try is a replay on a reset page.
+	 * @return The smallest failing sequence found within SHRINK_RUNS replays.
+	 */
+	List<Operation> shrink(WebDriver driver, List<Operation> failing) {
+		List<Operation> current = failing;
+		int[] budget = {SHRINK_RUNS};
+		boolean changed = true;
+		while(changed && budget[0] > 0) {
+			int before = current.size();
+			current = removeChunks(driver, current, budget);
+			changed = current.size() < before;
+		}//while
+		//shorten the texts that are left, one at a time
+		int budgetLeft = budget[0];
+		for(int i = 0; i < current.size() && budgetLeft > 0; i++) {
+			Operation op = current.get(i);
+			if(op.getKind().equals("add") && op.getText().length() > 1) {
+				List<Operation> candidate = new ArrayList<Operation>(current);
+				candidate.set(i, op.withText("t" + i));
+				budgetLeft--;
+				if(fails(driver, candidate)) {
+					current = candidate;
+				}//if
+				else {}//else the text matters
+			}//if
+			else {}//else
+		}//for
+		return current;
+	}//shrink
+
+	/**
+	 * This method removes chunks of the sequence, halving their size, keeping each removal that still fails.
+	 * @param budget The replays left, counted down as they are used.
+	 * @return The shorter failing sequence.
+	 */
+	private List<Operation> removeChunks(WebDriver driver, List<Operation> failing, int[] budget) {
+		List<Operation> current = failing;
+		int chunk = Math.max(1, current.size() / 2);
+		while(chunk >= 1 && budget[0] > 0) {
+			boolean removed = false;
+			int start = 0;
+			while(start < current.size() && budget[0] > 0) {
+				List<Operation> candidate = new ArrayList<Operation>(current.subList(0, start));
+				candidate.addAll(current.subList(Math.min(current.size(), start + chunk), current.size()));
+				budget[0]--;
+				if(!candidate.isEmpty() && fails(driver, candidate)) {
+					current = candidate;
+					removed = true;
+				}//if
+				else {
+					start += chunk;
+				}//else
+			}//while
+			if(!removed) {
+				chunk /= 2;
+			}//if
+			else {}//else try the same size again on the smaller sequence
+		}//while
+		return current;
+	}//removeChunks
+
+	private boolean fails(WebDriver driver, List<Operation> sequence) {
+		restart(driver);
+		return replay(driver, sequence).isFailed();
+	}//fails
+
+	/**
+	 * This method takes a given WebDriver, clears what the site stored and reloads the page, so it starts empty on the "All" tab.
+	 */
+	static void restart(WebDriver driver) {
+		((JavascriptExecutor) driver).executeScript(DriverPool.RESET_SCRIPT);
+		driver.navigate().refresh();
+		TodoItemIndex.invalidate(driver);
+		Testing.waitForPageReady(driver);
+	}//restart
+
+}//ModelFuzzer
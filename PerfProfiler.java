@@ -0,0 +1,355 @@
+package todo_website_testing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class profiles how fast the todo site itself is while the scenarios run.
+ * When a scenario starts, it reads the Navigation Timing and Paint Timing of the page load. After each addTask,
+ * clickTab and deleteItem it reads the time from the click to the next frame, the long tasks since the last step,
+ * the JS heap size and the DOM node count. Every reading is checked against a budget, and each budget exceeded is recorded
+ * as a result of its own kind, apart from the errors.
+ * Browsers that do not report long tasks or heap size (Firefox reports neither) leave those columns empty.
+ * Only the last MAX_STEPS steps are kept for the report, so a long run does not hold every step it ever took.
+ */
+public class PerfProfiler {
+
+	/** The most steps kept for the report. Older steps are dropped, and counted, once it is full. */
+	public static final int MAX_STEPS = Integer.getInteger("perf.max.steps", 10000);
+
+	/**
+	 * The script that installs the in-page collector, once per page load. It records long tasks, the time of the last
+	 * click or key press, and the time of the first frame after the last DOM mutation.
+	 */
+	static final String INSTALL_SCRIPT =
+			"if (window.__todoPerf) { return; }"
+			+ "var perf = window.__todoPerf = {longTasks: [], longTaskSupported: false, lastInput: 0, lastPaint: 0};"
+			+ "try {"
+			+ "  if (PerformanceObserver.supportedEntryTypes && PerformanceObserver.supportedEntryTypes.indexOf('longtask') >= 0) {"
+			+ "    new PerformanceObserver(function(list) {"
+			+ "      list.getEntries().forEach(function(e) { perf.longTasks.push(e.duration); });"
+			+ "    }).observe({type: 'longtask', buffered: true});"
+			+ "    perf.longTaskSupported = true;"
+			+ "  }"
+			+ "} catch (e) {}"
+			+ "var input = function() { perf.lastInput = performance.now(); };"
+			+ "document.addEventListener('click', input, true);"
+			+ "document.addEventListener('keydown', input, true);"
+			+ "new MutationObserver(function() {"
+			+ "  requestAnimationFrame(function() { setTimeout(function() { perf.lastPaint = performance.now(); }, 0); });"
+			+ "}).observe(document.documentElement, {childList: true, subtree: true, attributes: true, characterData: true});";
+
+	/**
+	 * The script that reads one sample and drains the long tasks seen since the last one.
+	 */
+	static final String SAMPLE_SCRIPT =
+			"var perf = window.__todoPerf || {longTasks: []};"
+			+ "var nav = performance.getEntriesByType('navigation')[0];"
+			+ "var paints = {};"
+			+ "performance.getEntriesByType('paint').forEach(function(p) { paints[p.name] = p.startTime; });"
+			+ "var tasks = perf.longTasks, total = 0;"
+			+ "perf.longTasks = [];"
+			+ "tasks.forEach(function(d) { total += d; });"
+			+ "var render = (perf.lastInput > 0 && perf.lastPaint > perf.lastInput) ? perf.lastPaint - perf.lastInput : null;"
+			+ "perf.lastInput = 0;"
+			+ "return {"
+			+ "  domContentLoaded: nav ? nav.domContentLoadedEventEnd : null,"
+			+ "  load: nav ? nav.loadEventEnd : null,"
+			+ "  firstPaint: ('first-paint' in paints) ? paints['first-paint'] : null,"
+			+ "  firstContentfulPaint: ('first-contentful-paint' in paints) ? paints['first-contentful-paint'] : null,"
+			+ "  longTaskCount: perf.longTaskSupported ? tasks.length : null,"
+			+ "  longTaskMillis: perf.longTaskSupported ? total : null,"
+			+ "  heapBytes: (performance.memory) ? performance.memory.usedJSHeapSize : null,"
+			+ "  domNodes: document.getElementsByTagName('*').length,"
+			+ "  renderMillis: render"
+			+ "};";
+
+	/**
+	 * This class holds the budgets each reading is checked against. A budget of 0 or less is not checked.
+	 */
+	public static class Budgets {
+		private final long domContentLoadedMillis;
+		private final long firstContentfulPaintMillis;
+		private final long renderMillis;
+		private final long longTaskMillis;
+		private final long heapBytes;
+		private final long domNodes;
+
+		public Budgets(long domContentLoadedMillis, long firstContentfulPaintMillis, long renderMillis,
+				long longTaskMillis, long heapBytes, long domNodes) {
+			this.domContentLoadedMillis = domContentLoadedMillis;
+			this.firstContentfulPaintMillis = firstContentfulPaintMillis;
+			this.renderMillis = renderMillis;
+			this.longTaskMillis = longTaskMillis;
+			this.heapBytes = heapBytes;
+			this.domNodes = domNodes;
+		}//Budgets
+
+		/**
+		 * This method takes the command line arguments and reads the budgets from --perf-budget-dcl, --perf-budget-fcp,
+		 * --perf-budget-render, --perf-budget-longtask (all in ms), --perf-budget-heap-mb and --perf-budget-dom-nodes.
+		 * @param args The command line arguments given to main.
+		 * @return The Budgets.
+		 */
+		public static Budgets fromConfig(String[] args) {
+			return new Budgets(
+					Settings.getInt(args, "perf-budget-dcl", 3000),
+					Settings.getInt(args, "perf-budget-fcp", 2000),
+					Settings.getInt(args, "perf-budget-render", 100),
+					Settings.getInt(args, "perf-budget-longtask", 50),
+					Settings.getInt(args, "perf-budget-heap-mb", 50) * 1024L * 1024L,
+					Settings.getInt(args, "perf-budget-dom-nodes", 1500));
+		}//fromConfig
+	}//Budgets
+
+	/**
+	 * This class holds the readings of one step and the budgets they exceeded.
+	 * Readings the browser does not report are null.
+	 */
+	public static class PerfStep {
+		private final String scenario;
+		private final String step;
+		private final Double domContentLoadedMillis;
+		private final Double firstContentfulPaintMillis;
+		private final Double renderMillis;
+		private final Integer longTaskCount;
+		private final Double longTaskMillis;
+		private final Long heapBytes;
+		private final int domNodes;
+		private final List<String> overBudget = new ArrayList<String>();
+
+		PerfStep(String scenario, String step, Map<String, Object> sample) {
+			this.scenario = scenario;
+			this.step = step;
+			this.domContentLoadedMillis = toDouble(sample.get("domContentLoaded"));
+			this.firstContentfulPaintMillis = toDouble(sample.get("firstContentfulPaint"));
+			this.renderMillis = toDouble(sample.get("renderMillis"));
+			this.longTaskCount = (sample.get("longTaskCount") != null) ? ((Number) sample.get("longTaskCount")).intValue() : null;
+			this.longTaskMillis = toDouble(sample.get("longTaskMillis"));
+			this.heapBytes = (sample.get("heapBytes") != null) ? ((Number) sample.get("heapBytes")).longValue() : null;
+			this.domNodes = (sample.get("domNodes") != null) ? ((Number) sample.get("domNodes")).intValue() : 0;
+		}//PerfStep
+
+		public String getScenario() { return scenario; }
+		public String getStep() { return step; }
+		public Double getDomContentLoadedMillis() { return domContentLoadedMillis; }
+		public Double getFirstContentfulPaintMillis() { return firstContentfulPaintMillis; }
+		public Double getRenderMillis() { return renderMillis; }
+		public Integer getLongTaskCount() { return longTaskCount; }
+		public Double getLongTaskMillis() { return longTaskMillis; }
+		public Long getHeapBytes() { return heapBytes; }
+		public int getDomNodes() { return domNodes; }
+		public List<String> getOverBudget() { return overBudget; }
+
+		private static Double toDouble(Object value) {
+			return (value != null) ? ((Number) value).doubleValue() : null;
+		}//toDouble
+	}//PerfStep
+
+	/**
+	 * The profiler and scenario each session is attached to while a scenario runs on it.
+	 */
+	private static final Map<WebDriver, Attachment> ATTACHED = Collections.synchronizedMap(new WeakHashMap<WebDriver, Attachment>());
+
+	private static class Attachment {
+		private final PerfProfiler profiler;
+		private final String scenario;
+
+		Attachment(PerfProfiler profiler, String scenario) {
+			this.profiler = profiler;
+			this.scenario = scenario;
+		}//Attachment
+	}//Attachment
+
+	private final Budgets budgets;
+	private final boolean budgetErrors;
+	private final ArrayDeque<PerfStep> steps = new ArrayDeque<PerfStep>();
+	private long dropped;
+
+	/**
+	 * This constructor creates a profiler that checks every step against the given budgets, counting each one exceeded as an error.
+	 * @param budgets The Budgets being checked.
+	 */
+	public PerfProfiler(Budgets budgets) {
+		this(budgets, true);
+	}//PerfProfiler
+
+	/**
+	 * This constructor creates a profiler that checks every step against the given budgets.
+	 * @param budgets The Budgets being checked.
+	 * @param budgetErrors True to count each budget exceeded as an error, false to only report it.
+	 */
+	public PerfProfiler(Budgets budgets, boolean budgetErrors) {
+		this.budgets = budgets;
+		this.budgetErrors = budgetErrors;
+	}//PerfProfiler
+
+	/**
+	 * This method takes the command line arguments and returns a profiler if --perf=true is given.
+	 * Budgets exceeded are counted as errors unless --perf-budget-errors=false is given.
+	 * @param args The command line arguments given to main.
+	 * @return The PerfProfiler, or null if profiling is off.
+	 */
+	public static PerfProfiler fromConfig(String[] args) {
+		return Settings.getFlag(args, "perf", false)
+				? new PerfProfiler(Budgets.fromConfig(args), Settings.getFlag(args, "perf-budget-errors", true)) : null;
+	}//fromConfig
+
+	/** True if each budget exceeded is counted as an error, false if it is only reported. */
+	public boolean isBudgetErrors() { return budgetErrors; }
+
+	/**
+	 * This method takes a given WebDriver showing a freshly loaded page, attaches it to this profiler
+	 * and records the page load as the "load" step of the given scenario.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param scenario The name of the scenario about to run.
+	 */
+	public void begin(WebDriver driver, String scenario) {
+		ATTACHED.put(driver, new Attachment(this, scenario));
+		((JavascriptExecutor) driver).executeScript(INSTALL_SCRIPT);
+		sample(driver, scenario, "load", true);
+	}//begin
+
+	/**
+	 * This method takes a given WebDriver, records the "end" step of its scenario and detaches it from this profiler.
+	 * @param driver The WebDriver being used for the automation.
+	 */
+	public void end(WebDriver driver) {
+		Attachment attachment = ATTACHED.remove(driver);
+		if(attachment != null) {
+			sample(driver, attachment.scenario, "end", false);
+		}//if
+		else {}//else
+	}//end
+
+	/**
+	 * This method takes a given WebDriver and detaches it without recording anything, for a scenario that stopped early.
+	 * @param driver The WebDriver being used for the automation.
+	 */
+	public static void detach(WebDriver driver) {
+		ATTACHED.remove(driver);
+	}//detach
+
+	/**
+	 * This method takes a given WebDriver and records a step of its scenario, just after the given helper's click settled.
+	 * It does nothing, and sends nothing to the browser, if the driver is not being profiled.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param helper The name of the helper that clicked.
+	 */
+	public static void step(WebDriver driver, String helper) {
+		Attachment attachment = ATTACHED.get(driver);
+		if(attachment != null) {
+			attachment.profiler.sample(driver, attachment.scenario, helper, false);
+		}//if
+		else {}//else
+	}//step
+
+	/**
+	 * This method takes a given WebDriver, reads one sample, saves it as a step and records each budget it exceeded.
+	 * The page load readings are only checked on the "load" step, since they do not change until the page is reloaded.
+	 */
+	@SuppressWarnings("unchecked")
+	private void sample(WebDriver driver, String scenario, String step, boolean pageLoad) {
+		Map<String, Object> sample = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(SAMPLE_SCRIPT);
+		PerfStep perfStep = new PerfStep(scenario, step, sample);
+		if(pageLoad) {
+			checkBudget(perfStep, "DOMContentLoaded", perfStep.getDomContentLoadedMillis(), budgets.domContentLoadedMillis, "ms");
+			checkBudget(perfStep, "first contentful paint", perfStep.getFirstContentfulPaintMillis(), budgets.firstContentfulPaintMillis, "ms");
+		}//if
+		else {
+			checkBudget(perfStep, "time to render", perfStep.getRenderMillis(), budgets.renderMillis, "ms");
+		}//else
+		checkBudget(perfStep, "long tasks", perfStep.getLongTaskMillis(), budgets.longTaskMillis, "ms");
+		checkBudget(perfStep, "JS heap", perfStep.getHeapBytes(), budgets.heapBytes, "bytes");
+		checkBudget(perfStep, "DOM nodes", perfStep.getDomNodes(), budgets.domNodes, "nodes");
+		synchronized(steps) {
+			if(steps.size() >= MAX_STEPS) {
+				steps.removeFirst();
+				dropped++;
+			}//if
+			else {}//else
+			steps.addLast(perfStep);
+		}//synchronized
+		for(String exceeded : perfStep.getOverBudget()) {
+			Results.overBudget(step, exceeded, budgetErrors);
+		}//for
+	}//sample
+
+	private static void checkBudget(PerfStep step, String reading, Number value, long budget, String unit) {
+		if(value != null && budget > 0 && value.doubleValue() > budget) {
+			step.overBudget.add(reading + " was " + Math.round(value.doubleValue()) + " " + unit + ", over the budget of " + budget + " " + unit);
+		}//if
+		else {}//else
+	}//checkBudget
+
+	/**
+	 * This method returns the last MAX_STEPS steps recorded.
+	 * @return The List<PerfStep> in the order they were recorded.
+	 */
+	public List<PerfStep> getSteps() {
+		synchronized(steps) {
+			return new ArrayList<PerfStep>(steps);
+		}//synchronized
+	}//getSteps
+
+	/**
+	 * This method prints one line per step with its readings.
+	 */
+	public void printReport() {
+		System.out.println("Performance by step:");
+		synchronized(steps) {
+			if(dropped > 0) {
+				System.out.println("  (the first " + dropped + " steps were dropped, only the last " + MAX_STEPS + " are kept)");
+			}//if
+			else {}//else
+		}//synchronized
+		System.out.println(String.format("  %-28s %-18s %8s %8s %8s %10s %10s %8s", "scenario", "step",
+				"dcl ms", "fcp ms", "render", "longtask", "heap KB", "nodes"));
+		for(PerfStep step : getSteps()) {
+			System.out.println(String.format("  %-28s %-18s %8s %8s %8s %10s %10s %8d%s", step.getScenario(), step.getStep(),
+					format(step.getDomContentLoadedMillis()), format(step.getFirstContentfulPaintMillis()), format(step.getRenderMillis()),
+					format(step.getLongTaskMillis()), (step.getHeapBytes() != null) ? String.valueOf(step.getHeapBytes() / 1024) : "-",
+					step.getDomNodes(), step.getOverBudget().isEmpty() ? "" : "  OVER BUDGET"));
+		}//for
+	}//printReport
+
+	/**
+	 * This method writes one CSV row per step, with empty cells for readings the browser does not report.
+	 * @param file The path of the file in String format.
+	 * @throws IOException If the report could not be written.
+	 */
+	public void writeReport(String file) throws IOException {
+		StringBuilder csv = new StringBuilder("scenario,step,dom_content_loaded_ms,first_contentful_paint_ms,render_ms,"
+				+ "long_tasks,long_task_ms,heap_bytes,dom_nodes,over_budget\n");
+		for(PerfStep step : getSteps()) {
+			csv.append(quote(step.getScenario())).append(',').append(quote(step.getStep())).append(',')
+					.append(cell(step.getDomContentLoadedMillis())).append(',').append(cell(step.getFirstContentfulPaintMillis())).append(',')
+					.append(cell(step.getRenderMillis())).append(',').append(cell(step.getLongTaskCount())).append(',')
+					.append(cell(step.getLongTaskMillis())).append(',').append(cell(step.getHeapBytes())).append(',')
+					.append(step.getDomNodes()).append(',').append(quote(String.join("; ", step.getOverBudget()))).append('\n');
+		}//for
+		Files.write(Paths.get(file), csv.toString().getBytes(StandardCharsets.UTF_8));
+	}//writeReport
+
+	private static String format(Double value) {
+		return (value != null) ? String.format("%.1f", value) : "-";
+	}//format
+
+	private static String cell(Object value) {
+		return (value != null) ? value.toString() : "";
+	}//cell
+
+	private static String quote(String value) {
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}//quote
+
+}//PerfProfiler
@@ -0,0 +1,271 @@
+package todo_website_testing;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class writes the results of a run on its own thread, so the scenarios never wait on the console or the disk.
+ * Results are queued without blocking and written in batches: every result and finished scenario is appended
+ * to results.jsonl as it arrives, errors are echoed to the console, and junit.xml and summary.txt are written on close.
+ */
+public class ResultReporter implements AutoCloseable {
+
+	/** The most queued items written in one batch. */
+	private static final int BATCH_SIZE = 256;
+
+	private final Path directory;
+	private final boolean echo;
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+	private final Thread writer;
+	private final List<ScenarioReport.ScenarioResult> scenarios = new ArrayList<ScenarioReport.ScenarioResult>();
+	private volatile boolean closed;
+
+	/**
+	 * The item queued to close the reporter, after everything queued before it.
+	 */
+	private static final Object END = new Object();
+
+	/**
+	 * This constructor creates a reporter that writes into the given folder and starts its writer thread.
+	 * @param directory The Path of the folder the results are written into. It is created if needed.
+	 * @param echo True to print every error to the console as well.
+	 * @throws IOException If the folder or results.jsonl could not be created.
+	 */
+	public ResultReporter(Path directory, boolean echo) throws IOException {
+		this.directory = directory;
+		this.echo = echo;
+		Files.createDirectories(directory);
+		BufferedWriter jsonl = Files.newBufferedWriter(directory.resolve("results.jsonl"), StandardCharsets.UTF_8);
+		writer = new Thread(() -> drain(jsonl), "result-reporter");
+		writer.setDaemon(true);
+		writer.start();
+	}//ResultReporter
+
+	/**
+	 * This method takes the command line arguments and creates the reporter they select. --results-dir is the folder
+	 * (results by default), --echo-errors=false stops printing errors to the console.
+	 * @param args The command line arguments given to main.
+	 * @return The ResultReporter.
+	 * @throws IOException If the folder could not be created.
+	 */
+	public static ResultReporter fromConfig(String[] args) throws IOException {
+		return new ResultReporter(Paths.get(Settings.get(args, "results-dir", "results")), Settings.getFlag(args, "echo-errors", true));
+	}//fromConfig
+
+	/**
+	 * This method queues a result to be written. It never blocks. Results submitted after close are only printed.
+	 * @param result The StepResult being written.
+	 */
+	public void submit(StepResult result) {
+		if(closed) {
+			//too late to be written, so at least print it
+			System.out.println(result.toMessage());
+		}//if
+		else {
+			queue.offer(result);
+		}//else
+	}//submit
+
+	/**
+	 * This method queues a finished scenario to be written. It never blocks.
+	 * @param result The ScenarioResult being written.
+	 */
+	public void submit(ScenarioReport.ScenarioResult result) {
+		queue.offer(result);
+	}//submit
+
+	/**
+	 * This method returns the folder the results are written into.
+	 * @return The Path of the results folder.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}//getDirectory
+
+	/**
+	 * This method runs on the writer thread. It takes whatever is queued, up to a batch at a time, and writes it.
+	 */
+	private void drain(BufferedWriter jsonl) {
+		List<Object> batch = new ArrayList<Object>();
+		boolean done = false;
+		try {
+			while(!done) {
+				batch.add(queue.take());
+				queue.drainTo(batch, BATCH_SIZE - 1);
+				StringBuilder console = new StringBuilder();
+				for(Object item : batch) {
+					if(item == END) {
+						done = true;
+					}//if
+					else if(item instanceof StepResult) {
+						StepResult result = (StepResult) item;
+						jsonl.write(result.toJson());
+						jsonl.newLine();
+						if(echo) {
+							console.append(result.toMessage()).append(System.lineSeparator());
+						}//if
+						else {}//else
+					}//else if
+					else if(item instanceof ScenarioReport.ScenarioResult) {
+						ScenarioReport.ScenarioResult scenario = (ScenarioReport.ScenarioResult) item;
+						scenarios.add(scenario);
+						jsonl.write("{\"type\":\"scenario\",\"name\":" + StepResult.quote(scenario.getName()) + ",\"errors\":" + scenario.getErrors()
+								+ ",\"attempt\":" + scenario.getAttempt()
+								+ ",\"durationMs\":" + scenario.getDurationMillis() + ",\"failure\":" + StepResult.quote(scenario.getFailure()) + "}");
+						jsonl.newLine();
+					}//else if
+					else {}//else
+				}//for
+				jsonl.flush();
+				if(console.length() > 0) {
+					System.out.print(console);
+				}//if
+				else {}//else
+				batch.clear();
+			}//while
+		}//try
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}//catch
+		catch(IOException e) {
+			System.out.println("ERROR- Could not write the results. " + e.getMessage());
+		}//catch
+		finally {
+			try {
+				jsonl.close();
+			}//try
+			catch(IOException e) {
+				System.out.println("ERROR- Could not close results.jsonl. " + e.getMessage());
+			}//catch
+		}//finally
+	}//drain
+
+	/**
+	 * This method waits for everything queued to be written, then writes junit.xml and summary.txt.
+	 */
+	@Override
+	public void close() {
+		if(closed) {
+			return;
+		}//if
+		else {}//else
+		closed = true;
+		queue.offer(END);
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(30));
+		}//try
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}//catch
+		try {
+			Files.write(directory.resolve("junit.xml"), toJUnitXml().getBytes(StandardCharsets.UTF_8));
+			Files.write(directory.resolve("summary.txt"), toSummary().getBytes(StandardCharsets.UTF_8));
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not write the result reports. " + e.getMessage());
+		}//catch
+	}//close
+
+	/**
+	 * This method returns every finished scenario as a JUnit XML test suite, with one test case per scenario.
+	 * @return The report in JUnit XML format.
+	 */
+	String toJUnitXml() {
+		int failures = 0, errors = 0;
+		long totalMillis = 0;
+		for(ScenarioReport.ScenarioResult scenario : scenarios) {
+			if(scenario.getFailure() != null) {
+				errors++;
+			}//if
+			else if(scenario.getErrors() > 0) {
+				failures++;
+			}//else if
+			else {}//else
+			totalMillis += scenario.getDurationMillis();
+		}//for
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		xml.append(String.format(Locale.ROOT, "<testsuite name=\"todo_website_testing\" tests=\"%d\" failures=\"%d\" errors=\"%d\" time=\"%.3f\">%n",
+				scenarios.size(), failures, errors, totalMillis / 1000.0));
+		for(ScenarioReport.ScenarioResult scenario : scenarios) {
+			xml.append(String.format(Locale.ROOT, "  <testcase classname=\"todo_website_testing.Scenarios\" name=\"%s\" time=\"%.3f\"",
+					escape(scenario.getName()), scenario.getDurationMillis() / 1000.0));
+			List<StepResult> steps = scenario.getSteps();
+			if(scenario.getErrors() == 0 && scenario.getFailure() == null) {
+				xml.append("/>\n");
+				continue;
+			}//if
+			else {}//else
+			xml.append(">\n");
+			StringBuilder detail = new StringBuilder();
+			for(StepResult step : steps) {
+				detail.append(step.getStep()).append(": ").append(step.getAssertion());
+				if(step.getExpected() != null || step.getActual() != null) {
+					detail.append(" expected=\"").append(step.getExpected()).append("\" actual=\"").append(step.getActual()).append('"');
+				}//if
+				else {}//else
+				if(step.getArtifacts() != null) {
+					detail.append(" artifacts=").append(step.getArtifacts());
+				}//if
+				else {}//else
+				detail.append('\n');
+			}//for
+			String tag = (scenario.getFailure() != null) ? "error" : "failure";
+			String message = (scenario.getFailure() != null) ? scenario.getFailure()
+					: scenario.getErrors() + " error" + ((scenario.getErrors() != 1) ? "s" : "");
+			xml.append("    <").append(tag).append(" message=\"").append(escape(message)).append("\">")
+					.append(escape(detail.toString())).append("</").append(tag).append(">\n");
+			xml.append("  </testcase>\n");
+		}//for
+		return xml.append("</testsuite>\n").toString();
+	}//toJUnitXml
+
+	/**
+	 * This method returns the totals of the run, and the number of errors in each step, most first.
+	 * @return The summary in String format.
+	 */
+	String toSummary() {
+		int errorCtr = 0, budgets = 0, budgetErrors = 0;
+		Map<String, Integer> byStep = new LinkedHashMap<String, Integer>();
+		for(ScenarioReport.ScenarioResult scenario : scenarios) {
+			errorCtr += scenario.getErrors();
+			budgets += scenario.getBudgetsExceeded();
+			for(StepResult step : scenario.getSteps()) {
+				if(step.isError()) {
+					byStep.merge(step.getStep(), 1, Integer::sum);
+				}//if
+				else {}//else
+				if(step.isBudget() && step.isError()) {
+					budgetErrors++;
+				}//if
+				else {}//else
+			}//for
+		}//for
+		StringBuilder summary = new StringBuilder();
+		summary.append("Ran ").append(scenarios.size()).append(" scenarios. Found ").append(errorCtr)
+				.append(" error").append((errorCtr != 1) ? "s" : "").append(".\n");
+		if(budgets > 0) {
+			summary.append("Exceeded ").append(budgets).append(" performance budget").append((budgets != 1) ? "s" : "")
+					.append(", ").append(budgetErrors).append(" of them counted as errors.\n");
+		}//if
+		else {}//else
+		byStep.entrySet().stream().sorted((a, b) -> b.getValue() - a.getValue())
+				.forEach(entry -> summary.append("  ").append(entry.getValue()).append("  ").append(entry.getKey()).append('\n'));
+		return summary.toString();
+	}//toSummary
+
+	private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}//escape
+
+}//ResultReporter
@@ -0,0 +1,286 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class is where the Testing helpers report their errors. Each error is recorded as a StepResult in the scenario
+ * running on the current thread and handed to the ResultReporter, which prints and writes it on its own thread.
+ * With no reporter installed, errors are printed straight away, as they were before.
+ */
+public class Results {
+
+	/**
+	 * This class holds the results of the scenario running on one thread.
+	 */
+	public static class Context {
+		private final String scenario;
+		private final WebDriver driver;
+		private final int attempt;
+		private final List<StepResult> results = new ArrayList<StepResult>();
+		private final List<Future<?>> captures = new ArrayList<Future<?>>();
+		private int captured;
+		private String step;
+		private long stepStart = System.nanoTime();
+
+		Context(String scenario, WebDriver driver, int attempt) {
+			this.scenario = scenario;
+			this.driver = driver;
+			this.attempt = attempt;
+		}//Context
+
+		public String getScenario() { return scenario; }
+		/** The run of the scenario, starting at 1. */
+		public int getAttempt() { return attempt; }
+
+		/**
+		 * This method returns every result recorded in the scenario so far.
+		 * @return The List<StepResult> in the order they were recorded.
+		 */
+		public synchronized List<StepResult> getResults() { return Collections.unmodifiableList(new ArrayList<StepResult>(results)); }
+
+		/**
+		 * This method returns the number of errors of the scenario, counted from its results.
+		 * Performance budgets exceeded are counted, unless they were recorded as reported only.
+		 * @return The number of errors in int format.
+		 */
+		public synchronized int getErrors() {
+			int errors = 0;
+			for(StepResult result : results) {
+				if(result.isError()) {
+					errors++;
+				}//if
+				else {}//else
+			}//for
+			return errors;
+		}//getErrors
+
+		/**
+		 * This method returns the number of failed checks of the scenario, leaving out the performance budgets exceeded.
+		 * @return The number of failed checks in int format.
+		 */
+		public synchronized int getFailedChecks() {
+			int failed = 0;
+			for(StepResult result : results) {
+				if(!result.isBudget()) {
+					failed++;
+				}//if
+				else {}//else
+			}//for
+			return failed;
+		}//getFailedChecks
+
+		/**
+		 * This method waits for the failure captures of the scenario to be stored, so the links in its results lead to files.
+		 * Captures still being stored after FailureArtifacts.WAIT_MS are left to finish on their own.
+		 */
+		public void awaitCaptures() {
+			List<Future<?>> pending;
+			synchronized(this) {
+				pending = new ArrayList<Future<?>>(captures);
+			}//synchronized
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FailureArtifacts.WAIT_MS);
+			try {
+				for(Future<?> capture : pending) {
+					capture.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				}//for
+			}//try
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}//catch
+			catch(ExecutionException | TimeoutException e) {
+				//a capture that failed or is too slow only loses its artifacts
+			}//catch
+		}//awaitCaptures
+	}//Context
+
+	private static final ThreadLocal<Context> CURRENT = new ThreadLocal<Context>();
+
+	private static volatile ResultReporter reporter;
+	private static volatile FailureArtifacts artifacts;
+
+	/**
+	 * This method returns the installed reporter.
+	 * @return The ResultReporter, or null if errors are printed straight away.
+	 */
+	static ResultReporter getReporter() {
+		return reporter;
+	}//getReporter
+
+	/**
+	 * This method returns the installed failure capture.
+	 * @return The FailureArtifacts, or null if failures are not captured.
+	 */
+	static FailureArtifacts getArtifacts() {
+		return artifacts;
+	}//getArtifacts
+
+	/**
+	 * This method installs the reporter every result is handed to, or removes it when given null.
+	 * @param resultReporter The ResultReporter, or null to print errors straight away.
+	 * @param failureArtifacts The FailureArtifacts capturing the page for errors made in a scenario, or null to capture nothing.
+	 */
+	public static void install(ResultReporter resultReporter, FailureArtifacts failureArtifacts) {
+		reporter = resultReporter;
+		artifacts = failureArtifacts;
+	}//install
+
+	/**
+	 * This method starts recording the results of the given scenario on the current thread.
+	 * @param scenario The name of the scenario.
+	 * @param driver The WebDriver the scenario runs on, used for failure captures.
+	 * @return The Context the results are recorded in.
+	 */
+	public static Context begin(String scenario, WebDriver driver) {
+		return begin(scenario, driver, 1);
+	}//begin
+
+	/**
+	 * This method starts recording the results of the given run of a scenario on the current thread.
+	 * @param scenario The name of the scenario.
+	 * @param driver The WebDriver the scenario runs on, used for failure captures.
+	 * @param attempt The run of the scenario, starting at 1, recorded in each of its results.
+	 * @return The Context the results are recorded in.
+	 */
+	public static Context begin(String scenario, WebDriver driver, int attempt) {
+		Context context = new Context(scenario, driver, attempt);
+		CURRENT.set(context);
+		return context;
+	}//begin
+
+	/**
+	 * This method returns the context results are recorded in on the current thread.
+	 * @return The Context, or null if no scenario is running on this thread.
+	 */
+	public static Context current() {
+		return CURRENT.get();
+	}//current
+
+	/**
+	 * This method takes a context from another thread and records the results of the current thread in it too,
+	 * so a task a scenario hands to another thread still reports into the scenario.
+	 * @param context The Context being joined, or null to stop recording on this thread.
+	 */
+	public static void attach(Context context) {
+		if(context != null) {
+			CURRENT.set(context);
+		}//if
+		else {
+			CURRENT.remove();
+		}//else
+	}//attach
+
+	/**
+	 * This method stops recording results on the current thread.
+	 * @return The Context the results were recorded in, or null if there was none.
+	 */
+	public static Context end() {
+		Context context = CURRENT.get();
+		CURRENT.remove();
+		return context;
+	}//end
+
+	/**
+	 * This method names the step the following results belong to, and starts timing it.
+	 * Without a name, results are put under the Testing helper that made the check.
+	 * @param step The name of the step, or null to go back to the helper names.
+	 */
+	public static void beginStep(String step) {
+		Context context = CURRENT.get();
+		if(context != null) {
+			context.step = step;
+			context.stepStart = System.nanoTime();
+		}//if
+		else {}//else
+	}//beginStep
+
+	/**
+	 * This method records an error with no expected or actual value.
+	 * @param assertion What was being checked, in String format.
+	 * @return 1, so it can be added to an error count.
+	 */
+	public static int fail(String assertion) {
+		return fail(assertion, null, null);
+	}//fail
+
+	/**
+	 * This method records an error.
+	 * @param assertion What was being checked, in String format.
+	 * @param expected The value that should have been found.
+	 * @param actual The value that was found.
+	 * @return 1, so it can be added to an error count.
+	 */
+	public static int fail(String assertion, Object expected, Object actual) {
+		record(StepResult.STEP, true, assertion, expected, actual);
+		return 1;
+	}//fail
+
+	/**
+	 * This method records a performance budget exceeded. It is counted in the scenario's errors unless it is only reported,
+	 * and the page is not captured for it either way.
+	 * @param step The step the reading was taken at, in String format.
+	 * @param assertion The reading that went over its budget, in String format.
+	 * @param error True to count it as an error, false to only report it.
+	 */
+	public static void overBudget(String step, String assertion, boolean error) {
+		record(StepResult.BUDGET, error, "Performance budget exceeded at " + step + ": " + assertion + ".", null, null);
+	}//overBudget
+
+	/**
+	 * This method records a result of the given kind in the scenario running on the current thread, and hands it to the reporter.
+	 */
+	private static void record(String kind, boolean error, String assertion, Object expected, Object actual) {
+		Context context = CURRENT.get();
+		ResultReporter current = reporter;
+		FailureArtifacts capture = artifacts;
+		long now = System.nanoTime();
+		String helper = InstrumentedDriver.currentHelper();
+		StepResult result;
+		if(context != null) {
+			String step = (context.step != null) ? context.step : helper;
+			String link = (current != null && capture != null && StepResult.STEP.equals(kind)) ? capture(context, capture) : null;
+			result = new StepResult(kind, error, context.scenario, context.attempt, step, helper, assertion, expected, actual, (now - context.stepStart) / 1000000.0, link);
+			//tasks attached from other threads can record into the same context
+			synchronized(context) {
+				context.results.add(result);
+				context.stepStart = now;
+			}//synchronized
+		}//if
+		else {
+			result = new StepResult(kind, error, null, 0, helper, helper, assertion, expected, actual, 0, null);
+		}//else
+		if(current != null) {
+			current.submit(result);
+		}//if
+		else {
+			System.out.println(result.toMessage());
+		}//else
+	}//record
+
+	/**
+	 * This method reads the page and starts storing it in the background, unless the scenario has had all the captures it gets.
+	 * @return The path of the capture's manifest, or null if none is taken.
+	 */
+	private static String capture(Context context, FailureArtifacts capture) {
+		synchronized(context) {
+			if(context.captured >= FailureArtifacts.PER_SCENARIO) {
+				return null;
+			}//if
+			else {}//else
+			context.captured++;
+		}//synchronized
+		//the page is read on this thread, outside the lock, so other threads of the scenario can still record results
+		String link = capture.nextLink(context.scenario);
+		Future<?> storing = capture.capture(context.driver, context.scenario, link);
+		synchronized(context) {
+			context.captures.add(storing);
+		}//synchronized
+		return link;
+	}//capture
+
+}//Results
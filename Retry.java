@@ -0,0 +1,87 @@
+package todo_website_testing;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.openqa.selenium.ElementNotInteractableException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class runs the steps that act on the page under their RetryPolicy. When the element is not there yet,
+ * its handle went stale, or the click did not land, the cached handles are dropped, the step backs off,
+ * finds the element again and tries once more. Each outcome is recorded in the installed FlakyHistory.
+ */
+public class Retry {
+
+	private static volatile FlakyHistory history;
+
+	/**
+	 * This method installs the history every step outcome is recorded in, or removes it when given null.
+	 * @param flakyHistory The FlakyHistory, or null to not track flakiness.
+	 */
+	public static void install(FlakyHistory flakyHistory) {
+		history = flakyHistory;
+	}//install
+
+	/**
+	 * This method takes a given WebDriver, finds the target of a step and acts on it, trying again under the step's policy.
+	 * A try fails if resolve returns null, or if resolve or action throw because the element is missing, stale or covered.
+	 * These are thrown before the page changes, so trying again never repeats an action that happened.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param step The name of the step, the Testing helper that runs it.
+	 * @param resolve The function that finds the target on the page, or returns null if it is not there.
+	 * @param action The action taken on the target once it is found.
+	 * @return The target the action was taken on, or null if it was not found in any try.
+	 * @throws org.openqa.selenium.WebDriverException The exception of the last try, if it threw.
+	 */
+	public static <T> T act(WebDriver driver, String step, Function<WebDriver, T> resolve, Consumer<T> action) {
+		FlakyHistory current = history;
+		RetryPolicy policy = RetryPolicy.forStep(step, current != null && current.isStepQuarantined(step));
+		long backoff = policy.getBackoffMillis();
+		for(int attempt = 1; ; attempt++) {
+			boolean last = attempt >= policy.getAttempts();
+			try {
+				T target = resolve.apply(driver);
+				if(target != null) {
+					action.accept(target);
+					record(current, step, (attempt == 1) ? FlakyHistory.PASSED : FlakyHistory.RETRIED);
+					return target;
+				}//if
+				else if(last) {
+					record(current, step, FlakyHistory.FAILED);
+					return null;
+				}//else if
+				else {}//else try again
+			}//try
+			catch(StaleElementReferenceException | NoSuchElementException | ElementNotInteractableException e) {
+				if(last) {
+					record(current, step, FlakyHistory.FAILED);
+					throw e;
+				}//if
+				else {}//else try again
+			}//catch
+			//the handles may be stale, so find them again after backing off
+			TodoItemIndex.invalidate(driver);
+			sleep(backoff);
+			backoff = policy.next(backoff);
+		}//for
+	}//act
+
+	private static void record(FlakyHistory current, String step, char outcome) {
+		if(current != null) {
+			current.recordStep(step, outcome);
+		}//if
+		else {}//else
+	}//record
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}//try
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while backing off.", e);
+		}//catch
+	}//sleep
+
+}//Retry
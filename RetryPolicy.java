@@ -0,0 +1,59 @@
+package todo_website_testing;
+
+/**
+ * This class is how often a step is tried and how long it backs off between tries.
+ * The backoff doubles after every failed try, up to the cap.
+ * Every step uses -Dretry.attempts and -Dretry.backoff.ms unless it has its own, for example -Dretry.deleteItem.attempts=5.
+ */
+public class RetryPolicy {
+
+	/** The tries of a step with no policy of its own. */
+	public static final int DEFAULT_ATTEMPTS = Integer.getInteger("retry.attempts", 3);
+	/** The first backoff of a step with no policy of its own. */
+	public static final long DEFAULT_BACKOFF_MS = Long.getLong("retry.backoff.ms", 100);
+	/** The longest a step backs off between two tries. */
+	public static final long MAX_BACKOFF_MS = Long.getLong("retry.backoff.max.ms", 2000);
+
+	private final int attempts;
+	private final long backoffMillis;
+
+	/**
+	 * This constructor creates a policy with the given number of tries and first backoff.
+	 * @param attempts The number of times the step is tried, at least 1.
+	 * @param backoffMillis How long to wait before the second try, in milliseconds.
+	 */
+	public RetryPolicy(int attempts, long backoffMillis) {
+		if(attempts < 1) {
+			throw new IllegalArgumentException("A step must be tried at least once, was " + attempts + ".");
+		}//if
+		else {}//else
+		this.attempts = attempts;
+		this.backoffMillis = backoffMillis;
+	}//RetryPolicy
+
+	/**
+	 * This method takes the name of a step and returns its policy. A quarantined step is given twice the tries,
+	 * so a known flaky step settles instead of failing the scenario.
+	 * @param step The name of the step, the Testing helper that runs it.
+	 * @param quarantined True if the step is quarantined in the FlakyHistory.
+	 * @return The RetryPolicy of the step.
+	 */
+	public static RetryPolicy forStep(String step, boolean quarantined) {
+		int attempts = Integer.getInteger("retry." + step + ".attempts", DEFAULT_ATTEMPTS);
+		long backoff = Long.getLong("retry." + step + ".backoff.ms", DEFAULT_BACKOFF_MS);
+		return new RetryPolicy(quarantined ? attempts * 2 : attempts, backoff);
+	}//forStep
+
+	public int getAttempts() { return attempts; }
+	public long getBackoffMillis() { return backoffMillis; }
+
+	/**
+	 * This method takes the backoff used before the last try and returns the one to use before the next.
+	 * @param backoff The last backoff in milliseconds.
+	 * @return The next backoff in milliseconds.
+	 */
+	public long next(long backoff) {
+		return Math.min(backoff * 2, MAX_BACKOFF_MS);
+	}//next
+
+}//RetryPolicy
@@ -0,0 +1,594 @@
+package todo_website_testing;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps the timings of every run in one append-only binary file, so a step that got slower is noticed.
+ * Each run records, for every step and scenario, how long it took, how many round-trips it sent and how it ended,
+ * with the version of the site and the commit it ran against. Names are written once and then referred to by number,
+ * and each run is prefixed with its length, so finding the recent runs skips over the old ones without decoding them.
+ * A run is compared with the same step in the BASELINE_RUNS runs before it, by their median and median absolute deviation,
+ * which a few slow outliers in the baseline do not move.
+ */
+public class RunHistory {
+
+	/** The number of earlier runs a step is compared with. */
+	public static final int BASELINE_RUNS = Integer.getInteger("history.baseline.runs", 20);
+
+	/** The fewest earlier runs of a step needed before it is compared. */
+	public static final int MIN_RUNS = Integer.getInteger("history.min.runs", 5);
+
+	/** How many scaled median absolute deviations above the median a step must be to be flagged. */
+	public static final double MAD_LIMIT = Double.parseDouble(System.getProperty("history.mad.limit", "3"));
+
+	/** How much slower than the median a step must also be to be flagged, so steps that never vary are not flagged for noise. */
+	public static final double MIN_SLOWDOWN = Double.parseDouble(System.getProperty("history.min.slowdown", "0.1"));
+
+	/** The MAD times this estimates the standard deviation of normally distributed timings. */
+	private static final double MAD_SCALE = 1.4826;
+
+	private static final byte[] MAGIC = {'T', 'D', 'R', 'H'};
+	private static final short VERSION = 1;
+	private static final byte NAME = 'N';
+	private static final byte RUN = 'R';
+
+	public static final byte PASSED = FlakyHistory.PASSED;
+	public static final byte RETRIED = FlakyHistory.RETRIED;
+	public static final byte FAILED = FlakyHistory.FAILED;
+
+	/**
+	 * This class is one step or scenario in one run.
+	 */
+	public static class Sample {
+		private final float millis;
+		private final int roundTrips;
+		private final byte outcome;
+
+		Sample(float millis, int roundTrips, byte outcome) {
+			this.millis = millis;
+			this.roundTrips = roundTrips;
+			this.outcome = outcome;
+		}//Sample
+
+		public float getMillis() { return millis; }
+		public int getRoundTrips() { return roundTrips; }
+		/** PASSED, RETRIED or FAILED. */
+		public byte getOutcome() { return outcome; }
+	}//Sample
+
+	/**
+	 * This class is one run: when it was, what it ran against, and a Sample for each step and scenario.
+	 * Steps are named "step:" and the helper, scenarios "scenario:" and their name.
+	 */
+	public static class Run {
+		private final long timestamp;
+		private final String siteVersion;
+		private final String commit;
+		private final int suite;
+		private final Map<String, Sample> samples;
+
+		Run(long timestamp, String siteVersion, String commit, int suite, Map<String, Sample> samples) {
+			this.timestamp = timestamp;
+			this.siteVersion = siteVersion;
+			this.commit = commit;
+			this.suite = suite;
+			this.samples = samples;
+		}//Run
+
+		public long getTimestamp() { return timestamp; }
+		public String getSiteVersion() { return siteVersion; }
+		public String getCommit() { return commit; }
+		/** The hash of the names of the scenarios run. Step totals are only compared between runs of the same scenarios. */
+		public int getSuite() { return suite; }
+		public Map<String, Sample> getSamples() { return samples; }
+	}//Run
+
+	/**
+	 * This class is one step or scenario that was significantly slower than its baseline.
+	 */
+	public static class Regression {
+		private final String name;
+		private final double millis;
+		private final double median;
+		private final double mad;
+		private final int baselineRuns;
+		private final int roundTrips;
+		private final double medianRoundTrips;
+
+		Regression(String name, double millis, double median, double mad, int baselineRuns, int roundTrips, double medianRoundTrips) {
+			this.name = name;
+			this.millis = millis;
+			this.median = median;
+			this.mad = mad;
+			this.baselineRuns = baselineRuns;
+			this.roundTrips = roundTrips;
+			this.medianRoundTrips = medianRoundTrips;
+		}//Regression
+
+		public String getName() { return name; }
+		public double getMillis() { return millis; }
+		public double getMedian() { return median; }
+
+		@Override
+		public String toString() {
+			return String.format("  %-40s %10.1f ms  median %10.1f ms  MAD %8.1f ms  %+6.0f%%  round-trips %d (median %.0f)  over %d runs",
+					name, millis, median, mad, (millis / median - 1) * 100, roundTrips, medianRoundTrips, baselineRuns);
+		}//toString
+	}//Regression
+
+	private final Path file;
+	/** The file as it was last read, so the next read only reads what was appended since. */
+	private Index cached;
+
+	/**
+	 * This constructor creates a history kept in the given file. The file is created by the first append.
+	 * @param file The Path of the history file.
+	 */
+	public RunHistory(Path file) {
+		this.file = file;
+	}//RunHistory
+
+	/**
+	 * This method takes the command line arguments and returns the history they select. --run-history is the file
+	 * (run-history.bin by default), and --run-history=false turns it off.
+	 * @param args The command line arguments given to main.
+	 * @return The RunHistory, or null if it is turned off.
+	 */
+	public static RunHistory fromConfig(String[] args) {
+		String path = Settings.get(args, "run-history", "run-history.bin");
+		return "false".equalsIgnoreCase(path) ? null : new RunHistory(Paths.get(path));
+	}//fromConfig
+
+	/**
+	 * This method takes a finished run and returns its Run: the time and round-trips of every helper from the metrics,
+	 * failed if any of its checks failed, and the time and outcome of every scenario, from its last attempt.
+	 * Checks are matched to helpers by the helper that made them, not by their step, which for a scenario file is its line.
+	 * @param report The ScenarioReport of the run.
+	 * @param metrics The DriverMetrics of the run.
+	 * @param siteVersion The version of the site the run was against.
+	 * @param commit The commit of the tests that ran.
+	 * @return The Run.
+	 */
+	public static Run of(ScenarioReport report, DriverMetrics metrics, String siteVersion, String commit) {
+		Map<String, ScenarioReport.ScenarioResult> last = new LinkedHashMap<String, ScenarioReport.ScenarioResult>();
+		Map<String, Integer> failedSteps = new HashMap<String, Integer>();
+		for(ScenarioReport.ScenarioResult result : report.getResults()) {
+			last.put(result.getName(), result);
+		}//for
+		for(ScenarioReport.ScenarioResult result : last.values()) {
+			for(StepResult step : result.getSteps()) {
+				if(!step.isBudget()) {
+					failedSteps.merge(step.getHelper(), 1, Integer::sum);
+				}//if
+				else {}//else
+			}//for
+		}//for
+		Map<String, float[]> steps = new LinkedHashMap<String, float[]>();
+		for(DriverMetrics.Histogram histogram : metrics.getHistograms()) {
+			float[] total = steps.computeIfAbsent(histogram.getHelper(), helper -> new float[2]);
+			total[0] += (float) histogram.getTotalMillis();
+			total[1] += histogram.getCount();
+		}//for
+		Map<String, Sample> samples = new LinkedHashMap<String, Sample>();
+		for(Map.Entry<String, float[]> step : steps.entrySet()) {
+			samples.put("step:" + step.getKey(), new Sample(step.getValue()[0], (int) step.getValue()[1],
+					failedSteps.containsKey(step.getKey()) ? FAILED : PASSED));
+		}//for
+		for(ScenarioReport.ScenarioResult result : last.values()) {
+			//a scenario that was only over its budgets is slow, not failed, and its time is what the history compares
+			byte outcome = !result.isChecksPassed() ? FAILED : (result.getAttempt() > 1) ? RETRIED : PASSED;
+			samples.put("scenario:" + result.getName(), new Sample(result.getDurationMillis(), 0, outcome));
+		}//for
+		return new Run(System.currentTimeMillis(), siteVersion, commit, new TreeSet<String>(last.keySet()).hashCode(), samples);
+	}//of
+
+	/**
+	 * This method takes the command line arguments and returns the commit being tested: --commit if given,
+	 * otherwise the HEAD of the git checkout the run started in.
+	 * @param args The command line arguments given to main.
+	 * @return The commit in String format, or "unknown".
+	 */
+	public static String getCommit(String[] args) {
+		String commit = Settings.get(args, "commit");
+		if(commit != null) {
+			return commit;
+		}//if
+		else {}//else
+		try {
+			Process git = new ProcessBuilder("git", "rev-parse", "--short=12", "HEAD").redirectErrorStream(true).start();
+			try(InputStream out = git.getInputStream()) {
+				String head = new String(out.readAllBytes(), StandardCharsets.UTF_8).trim();
+				if(git.waitFor(5, TimeUnit.SECONDS) && git.exitValue() == 0 && !head.isEmpty()) {
+					return head;
+				}//if
+				else {}//else
+			}//try
+		}//try
+		catch(IOException e) {
+			//git is not installed
+		}//catch
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}//catch
+		return "unknown";
+	}//getCommit
+
+	/**
+	 * This method takes the fingerprint of the site and returns a short version for it, which changes when any asset changes.
+	 * @param fingerprint The SiteFingerprint of the site, or null if it was not taken.
+	 * @return The version in String format, or "unknown".
+	 */
+	public static String getSiteVersion(SiteFingerprint fingerprint) {
+		return (fingerprint != null) ? SiteFingerprint.hash(fingerprint.getAssets().toString()) : "unknown";
+	}//getSiteVersion
+
+	/**
+	 * This class is the file read into memory: the names in the order they were written, and where each run starts.
+	 */
+	private static class Index {
+		/** The identity of the file read, so a file replaced by another is read again from the start. */
+		private final Object key;
+		/** The bytes read so far, up to its limit. The array has room for more, so an append is not copied each time. */
+		private ByteBuffer data = ByteBuffer.allocate(0);
+		private final List<String> names = new ArrayList<String>();
+		private final List<Integer> runs = new ArrayList<Integer>();
+		/** Where the last complete entry ends. A run cut short by a crash is after it. */
+		private int end;
+
+		Index(Object key) {
+			this.key = key;
+		}//Index
+	}//Index
+
+	/**
+	 * This method reads the file and indexes it. Only the names are decoded; runs are skipped over by their length.
+	 * The file is only ever appended to, so the index of the last read is kept, and only the bytes after it are read
+	 * and indexed. A file that got shorter, or was replaced, is read again from the start.
+	 */
+	private synchronized Index index() throws IOException {
+		if(!Files.exists(file)) {
+			cached = null;
+			return new Index(null);
+		}//if
+		else {}//else
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		if(attributes.size() > Integer.MAX_VALUE - 8) {
+			throw new IOException(file + " is too large to read into memory.");
+		}//if
+		else {}//else
+		int size = (int) attributes.size();
+		Index index = cached;
+		cached = null;
+		if(index == null || !Objects.equals(index.key, attributes.fileKey()) || size < index.data.limit()) {
+			index = new Index(attributes.fileKey());
+		}//if
+		else {}//else
+		int read = index.data.limit();
+		if(size > read) {
+			byte[] bytes = index.data.array();
+			if(bytes.length < size) {
+				bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(size, 2L * bytes.length)));
+			}//if
+			else {}//else
+			ByteBuffer into = ByteBuffer.wrap(bytes, read, size - read);
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				channel.position(read);
+				while(into.hasRemaining() && channel.read(into) >= 0) {
+					//keep reading until the size it had, or its end if it was cut since
+				}//while
+			}//try
+			index.data = ByteBuffer.wrap(bytes, 0, into.position());
+		}//if
+		else {}//else
+		ByteBuffer data = index.data.duplicate();
+		if(data.remaining() == 0) {
+			cached = index;
+			return index;
+		}//if
+		else {}//else
+		if(index.end == 0) {
+			byte[] magic = new byte[MAGIC.length];
+			if(data.remaining() < MAGIC.length + 2 || !Arrays.equals(MAGIC, getBytes(data, magic)) || data.getShort() != VERSION) {
+				throw new IOException(file + " is not a run history of version " + VERSION + ".");
+			}//if
+			else {}//else
+			index.end = data.position();
+		}//if
+		else {
+			//go on from the last complete entry, which a run cut short on the last read may have been completed after
+			data.position(index.end);
+		}//else
+		try {
+			while(data.hasRemaining()) {
+				byte type = data.get();
+				if(type == NAME) {
+					index.names.add(getString(data));
+				}//if
+				else if(type == RUN) {
+					int length = data.getInt();
+					if(length < 0 || length > data.remaining()) {
+						break;
+					}//if
+					else {}//else
+					index.runs.add(data.position());
+					data.position(data.position() + length);
+				}//else if
+				else {
+					break;
+				}//else
+				index.end = data.position();
+			}//while
+		}//try
+		catch(BufferUnderflowException e) {
+			//the last entry was cut short, everything before it is kept
+		}//catch
+		cached = index;
+		return index;
+	}//index
+
+	private static byte[] getBytes(ByteBuffer data, byte[] into) {
+		data.get(into);
+		return into;
+	}//getBytes
+
+	private static String getString(ByteBuffer data) {
+		byte[] bytes = new byte[data.getShort() & 0xffff];
+		data.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}//getString
+
+	/**
+	 * This method decodes the run that starts at the given position.
+	 */
+	private static Run decode(Index index, int position) {
+		ByteBuffer data = index.data.duplicate();
+		data.position(position);
+		long timestamp = data.getLong();
+		String siteVersion = getString(data);
+		String commit = getString(data);
+		int suite = data.getInt();
+		int count = data.getInt();
+		Map<String, Sample> samples = new LinkedHashMap<String, Sample>();
+		for(int i = 0; i < count; i++) {
+			String name = index.names.get(data.getInt());
+			samples.put(name, new Sample(data.getFloat(), data.getInt(), data.get()));
+		}//for
+		return new Run(timestamp, siteVersion, commit, suite, samples);
+	}//decode
+
+	/**
+	 * This method adds a run to the end of the file, with any names it is the first to use. A run cut short by an earlier
+	 * crash is cut off first, so it does not hide the runs after it.
+	 * @param run The Run being added.
+	 * @throws IOException If the file could not be read or written.
+	 */
+	public synchronized void append(Run run) throws IOException {
+		Index index = index();
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		for(int i = 0; i < index.names.size(); i++) {
+			ids.put(index.names.get(i), i);
+		}//for
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		if(index.data.limit() == 0) {
+			out.write(MAGIC);
+			out.writeShort(VERSION);
+		}//if
+		else {}//else
+		for(String name : run.getSamples().keySet()) {
+			if(!ids.containsKey(name)) {
+				ids.put(name, ids.size());
+				out.writeByte(NAME);
+				putString(out, name);
+			}//if
+			else {}//else
+		}//for
+		ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+		DataOutputStream body = new DataOutputStream(bodyBytes);
+		body.writeLong(run.getTimestamp());
+		putString(body, run.getSiteVersion());
+		putString(body, run.getCommit());
+		body.writeInt(run.getSuite());
+		body.writeInt(run.getSamples().size());
+		for(Map.Entry<String, Sample> sample : run.getSamples().entrySet()) {
+			body.writeInt(ids.get(sample.getKey()));
+			body.writeFloat(sample.getValue().getMillis());
+			body.writeInt(sample.getValue().getRoundTrips());
+			body.writeByte(sample.getValue().getOutcome());
+		}//for
+		out.writeByte(RUN);
+		out.writeInt(bodyBytes.size());
+		bodyBytes.writeTo(out);
+		out.flush();
+		//anything after the last complete entry is cut off, so the next read goes on from there and finds this run
+		index.data = ByteBuffer.wrap(index.data.array(), 0, index.end);
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			if(channel.size() > index.end) {
+				channel.truncate(index.end);
+			}//if
+			else {}//else
+			channel.position(index.end);
+			ByteBuffer write = ByteBuffer.wrap(bytes.toByteArray());
+			while(write.hasRemaining()) {
+				channel.write(write);
+			}//while
+		}//try
+	}//append
+
+	private static void putString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(Math.min(bytes.length, 0xffff));
+		out.write(bytes, 0, Math.min(bytes.length, 0xffff));
+	}//putString
+
+	/**
+	 * This method returns the number of runs in the file.
+	 * @return The number of runs.
+	 * @throws IOException If the file could not be read.
+	 */
+	public synchronized int size() throws IOException {
+		return index().runs.size();
+	}//size
+
+	/**
+	 * This method compares the run the given number of runs from the end with the runs before it.
+	 * Each step and scenario that did not fail is compared with its own last BASELINE_RUNS successful samples,
+	 * taken from runs of the same scenarios for steps, since a step's time is its total over the run.
+	 * It is flagged if it is more than MAD_LIMIT scaled median absolute deviations and MIN_SLOWDOWN above the median.
+	 * Only as many runs are decoded, newest first, as it takes to fill every baseline.
+	 * @param fromEnd 0 for the latest run, 1 for the one before it, and so on.
+	 * @return The List<Regression>, slowest compared with its median first. It is empty if there is no such run.
+	 * @throws IOException If the file could not be read.
+	 */
+	public synchronized List<Regression> compare(int fromEnd) throws IOException {
+		Index index = index();
+		int target = index.runs.size() - 1 - fromEnd;
+		List<Regression> regressions = new ArrayList<Regression>();
+		if(target < 0) {
+			return regressions;
+		}//if
+		else {}//else
+		Run current = decode(index, index.runs.get(target));
+		Map<String, List<Sample>> baselines = new HashMap<String, List<Sample>>();
+		int open = 0;
+		for(Map.Entry<String, Sample> sample : current.getSamples().entrySet()) {
+			if(sample.getValue().getOutcome() != FAILED) {
+				baselines.put(sample.getKey(), new ArrayList<Sample>());
+				open++;
+			}//if
+			else {}//else a failed step stops early, so its time says nothing
+		}//for
+		for(int i = target - 1; i >= 0 && open > 0; i--) {
+			Run run = decode(index, index.runs.get(i));
+			for(Map.Entry<String, List<Sample>> baseline : baselines.entrySet()) {
+				Sample sample = run.getSamples().get(baseline.getKey());
+				List<Sample> samples = baseline.getValue();
+				if(sample == null || sample.getOutcome() == FAILED || samples.size() >= BASELINE_RUNS
+						|| (baseline.getKey().startsWith("step:") && run.getSuite() != current.getSuite())) {
+					continue;
+				}//if
+				else {}//else
+				samples.add(sample);
+				if(samples.size() == BASELINE_RUNS) {
+					open--;
+				}//if
+				else {}//else
+			}//for
+		}//for
+		for(Map.Entry<String, List<Sample>> baseline : baselines.entrySet()) {
+			List<Sample> samples = baseline.getValue();
+			if(samples.size() < MIN_RUNS) {
+				continue;
+			}//if
+			else {}//else
+			double[] millis = new double[samples.size()];
+			double[] roundTrips = new double[samples.size()];
+			for(int i = 0; i < samples.size(); i++) {
+				millis[i] = samples.get(i).getMillis();
+				roundTrips[i] = samples.get(i).getRoundTrips();
+			}//for
+			double median = median(millis);
+			double[] deviations = new double[millis.length];
+			for(int i = 0; i < millis.length; i++) {
+				deviations[i] = Math.abs(millis[i] - median);
+			}//for
+			double mad = median(deviations);
+			Sample sample = current.getSamples().get(baseline.getKey());
+			if(median > 0 && sample.getMillis() > median + MAD_LIMIT * MAD_SCALE * mad && sample.getMillis() > median * (1 + MIN_SLOWDOWN)) {
+				regressions.add(new Regression(baseline.getKey(), sample.getMillis(), median, mad, samples.size(),
+						sample.getRoundTrips(), median(roundTrips)));
+			}//if
+			else {}//else
+		}//for
+		regressions.sort((a, b) -> Double.compare(b.getMillis() / b.getMedian(), a.getMillis() / a.getMedian()));
+		return regressions;
+	}//compare
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int middle = sorted.length / 2;
+		return (sorted.length % 2 == 1) ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+	}//median
+
+	/**
+	 * This method prints the given regressions under the site version and commit of the run they were found in.
+	 * @param run The Run that was compared.
+	 * @param regressions The List<Regression> found in it.
+	 */
+	public static void printRegressions(Run run, List<Regression> regressions) {
+		if(regressions.isEmpty()) {
+			System.out.println("No step is slower than its last " + BASELINE_RUNS + " runs.");
+			return;
+		}//if
+		else {}//else
+		System.out.println(regressions.size() + " step" + ((regressions.size() != 1) ? "s" : "") + " slower than the last "
+				+ BASELINE_RUNS + " runs, on site " + run.getSiteVersion() + " at commit " + run.getCommit() + ":");
+		for(Regression regression : regressions) {
+			System.out.println(regression);
+		}//for
+	}//printRegressions
+
+	/**
+	 * This method returns the run the given number of runs from the end.
+	 * @param fromEnd 0 for the latest run.
+	 * @return The Run, or null if there is no such run.
+	 * @throws IOException If the file could not be read.
+	 */
+	public synchronized Run get(int fromEnd) throws IOException {
+		Index index = index();
+		int target = index.runs.size() - 1 - fromEnd;
+		return (target >= 0) ? decode(index, index.runs.get(target)) : null;
+	}//get
+
+	/**
+	 * This method compares a run in the history with the runs before it, without running anything.
+	 * --run-history is the file, --history-run how many runs back from the latest (0). It exits with 1 if a step got slower.
+	 * @param args The command line arguments.
+	 */
+	public static void main(String[] args) {
+		RunHistory history = new RunHistory(Paths.get(Settings.get(args, "run-history", "run-history.bin")));
+		try {
+			int fromEnd = Settings.getInt(args, "history-run", 0);
+			Run run = history.get(fromEnd);
+			if(run == null) {
+				System.out.println("The run history has no run " + fromEnd + " from the end.");
+				return;
+			}//if
+			else {}//else
+			List<Regression> regressions = history.compare(fromEnd);
+			System.out.println("Run of " + new Date(run.getTimestamp()) + ":");
+			printRegressions(run, regressions);
+			if(!regressions.isEmpty()) {
+				System.exit(1);
+			}//if
+			else {}//else
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not read the run history. " + e.getMessage());
+			System.exit(2);
+		}//catch
+	}//main
+
+}//RunHistory
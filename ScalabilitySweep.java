@@ -0,0 +1,324 @@
+package todo_website_testing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class measures how the site's own rendering time grows with the size of the list.
+ * At each size the list is seeded with half of its tasks completed, then switching to each tab, toggling a checkbox
+ * and deleting an item are timed in the page, from the click to the next frame. A straight line is fitted to the
+ * log-log curve of each operation, so a slope near 1 means linear growth and a slope near 2 means quadratic growth.
+ * getActiveFilterTab is timed from the JVM instead, since it is the helper's own read of the page that grows.
+ * The results are written as CSV and as an HTML page with an SVG chart.
+ */
+public class ScalabilitySweep {
+
+	/** The list sizes used when --sweep-sizes is not given. */
+	public static final int[] DEFAULT_SIZES = {1, 10, 100, 1000, 10000};
+
+	/** The operations timed at each size, in the order they are run. */
+	public static final List<String> OPERATIONS = Arrays.asList("tab active", "tab completed", "tab all", "toggle checkbox", "delete item",
+			"getActiveFilterTab");
+
+	/**
+	 * The script that clicks the element matching the given selector and returns how long the click handler took
+	 * and how long it took until the frame after it was rendered, both in ms. It returns null if nothing matches.
+	 */
+	static final String TIMED_CLICK_SCRIPT =
+			"var target = document.querySelector(arguments[0]), done = arguments[arguments.length - 1];"
+			+ "if (!target) { done(null); return; }"
+			+ "var start = performance.now();"
+			+ "target.click();"
+			+ "var handler = performance.now() - start;"
+			+ "requestAnimationFrame(function() { setTimeout(function() { done([handler, performance.now() - start]); }, 0); });";
+
+	/**
+	 * This class holds the timings of one operation at one list size.
+	 */
+	public static class SweepPoint {
+		private final String operation;
+		private final int size;
+		private final double[] renderMillis;
+
+		SweepPoint(String operation, int size, double[] renderMillis) {
+			this.operation = operation;
+			this.size = size;
+			this.renderMillis = renderMillis.clone();
+			Arrays.sort(this.renderMillis);
+		}//SweepPoint
+
+		public String getOperation() { return operation; }
+		public int getSize() { return size; }
+		public double getMinMillis() { return renderMillis[0]; }
+		public double getMaxMillis() { return renderMillis[renderMillis.length - 1]; }
+		public double getMedianMillis() { return renderMillis[renderMillis.length / 2]; }
+	}//SweepPoint
+
+	private final WebDriver driver;
+	private final String page;
+	private final int[] sizes;
+	private final int repeats;
+	private final List<SweepPoint> points = new ArrayList<SweepPoint>();
+	private int errors;
+
+	/**
+	 * This constructor creates a sweep over the given list sizes.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param page The URL of the todo page in String format, reloaded before each size.
+	 * @param sizes The list sizes, smallest first.
+	 * @param repeats How many times each operation is timed at each size. The median is reported.
+	 */
+	public ScalabilitySweep(WebDriver driver, String page, int[] sizes, int repeats) {
+		this.driver = driver;
+		this.page = page;
+		this.sizes = sizes.clone();
+		this.repeats = Math.max(1, repeats);
+	}//ScalabilitySweep
+
+	/**
+	 * This method runs the sweep over every size. A click that finds nothing to click is an error, and is left out of the timings.
+	 * @return The List<SweepPoint> with one point per operation and size that has at least one timing.
+	 */
+	public List<SweepPoint> run() {
+		for(int size : sizes) {
+			//start every size from an empty list
+			((JavascriptExecutor) driver).executeScript("try { window.localStorage.clear(); } catch (e) {}");
+			Testing.openWebPage(driver, page);
+			Testing.waitForPageReady(driver);
+			TaskSeeder.SeedResult seeded = TaskSeeder.seed(driver, TaskSeeder.generate(size, "sweep task "), 2, false);
+			System.out.println(seeded);
+
+			Map<String, List<Double>> timings = new LinkedHashMap<String, List<Double>>();
+			for(String operation : OPERATIONS) {
+				timings.put(operation, new ArrayList<Double>());
+			}//for
+			for(int i = 0; i < repeats; i++) {
+				timeClick(timings.get("tab active"), "span[data-filter='active']");
+				timeClick(timings.get("tab completed"), "span[data-filter='completed']");
+				timeClick(timings.get("tab all"), "span[data-filter='all']");
+				//toggle the middle item and toggle it back, so the list is the same for the next repeat
+				String middle = "#todos-list > li:nth-child(" + ((size + 1) / 2) + ") .todo-checkbox";
+				timeClick(timings.get("toggle checkbox"), middle);
+				timeClick(null, middle);
+				long start = System.nanoTime();
+				Testing.getActiveFilterTab(driver);
+				timings.get("getActiveFilterTab").add((System.nanoTime() - start) / 1000000.0);
+			}//for
+			//delete from the middle, so every repeat removes a different item from a list of about the same size
+			//once the list is empty there is nothing left to time, so a list smaller than repeats gets fewer timings
+			for(int i = 0; i < repeats && i < size; i++) {
+				timeClick(timings.get("delete item"), "#todos-list > li:nth-child(" + ((size - i + 1) / 2) + ") .button-delete");
+			}//for
+			TodoItemIndex.invalidate(driver);
+			for(Map.Entry<String, List<Double>> timing : timings.entrySet()) {
+				if(!timing.getValue().isEmpty()) {
+					points.add(new SweepPoint(timing.getKey(), size, timing.getValue().stream().mapToDouble(Double::doubleValue).toArray()));
+				}//if
+				else {}//else
+			}//for
+		}//for
+		return points;
+	}//run
+
+	/**
+	 * This method clicks the element matching the given selector in the page and adds the time to the next frame to the given timings.
+	 * A click on nothing is counted as an error and adds no timing.
+	 */
+	private void timeClick(List<Double> timings, String selector) {
+		Object result = ((JavascriptExecutor) driver).executeAsyncScript(TIMED_CLICK_SCRIPT, selector);
+		if(result == null) {
+			errors += Results.fail("Nothing to click for \"" + selector + "\".");
+		}//if
+		else if(timings != null) {
+			timings.add(((Number) ((List<?>) result).get(1)).doubleValue());
+		}//else if
+		else {}//else
+	}//timeClick
+
+	/**
+	 * This method returns the number of clicks during the sweep that found nothing to click.
+	 * @return The number of errors in int format.
+	 */
+	public int getErrors() {
+		return errors;
+	}//getErrors
+
+	/**
+	 * This method fits a straight line to the log of the median time against the log of the list size, for the given operation.
+	 * Only the three largest sizes are used, since fixed costs hide the growth of the smaller ones.
+	 * @param operation The name of the operation.
+	 * @return The slope of the line, or NaN if there are fewer than two sizes.
+	 */
+	public double getGrowthExponent(String operation) {
+		List<SweepPoint> fitted = new ArrayList<SweepPoint>();
+		for(SweepPoint point : points) {
+			if(point.getOperation().equals(operation) && point.getSize() > 0) {
+				fitted.add(point);
+			}//if
+			else {}//else
+		}//for
+		fitted = fitted.subList(Math.max(0, fitted.size() - 3), fitted.size());
+		if(fitted.size() < 2) {
+			return Double.NaN;
+		}//if
+		else {}//else
+		double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+		for(SweepPoint point : fitted) {
+			double x = Math.log(point.getSize());
+			//a time under the timer resolution would be log(0)
+			double y = Math.log(Math.max(point.getMedianMillis(), 0.01));
+			sumX += x;
+			sumY += y;
+			sumXX += x * x;
+			sumXY += x * y;
+		}//for
+		int n = fitted.size();
+		return (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+	}//getGrowthExponent
+
+	/**
+	 * This method prints the growth exponent of every operation, and an error for each one that grows faster than allowed.
+	 * @param maxExponent The largest growth exponent that is not an error.
+	 * @return The number of operations that grew too fast in int format.
+	 */
+	public int printGrowth(double maxExponent) {
+		int errorCtr = 0;
+		System.out.println("Growth with list size (1 is linear, 2 is quadratic):");
+		for(String operation : OPERATIONS) {
+			double exponent = getGrowthExponent(operation);
+			System.out.println(String.format("  %-16s %5.2f", operation, exponent));
+			if(exponent > maxExponent) {
+				errorCtr += Results.fail("\"" + operation + "\" grows faster than allowed.", "n^" + maxExponent, String.format("n^%.2f", exponent));
+			}//if
+			else {}//else
+		}//for
+		return errorCtr;
+	}//printGrowth
+
+	/**
+	 * This method writes one CSV row per operation and size.
+	 * @param file The path of the file in String format.
+	 * @throws IOException If the file could not be written.
+	 */
+	public void writeCsv(String file) throws IOException {
+		StringBuilder csv = new StringBuilder("operation,size,median_ms,min_ms,max_ms\n");
+		for(SweepPoint point : points) {
+			csv.append(point.getOperation()).append(',').append(point.getSize()).append(',')
+					.append(String.format(Locale.ROOT, "%.3f,%.3f,%.3f", point.getMedianMillis(), point.getMinMillis(), point.getMaxMillis())).append('\n');
+		}//for
+		Files.write(Paths.get(file), csv.toString().getBytes(StandardCharsets.UTF_8));
+	}//writeCsv
+
+	/**
+	 * This method writes an HTML page with a log-log chart of the median time of every operation, and its growth exponent.
+	 * @param file The path of the file in String format.
+	 * @throws IOException If the file could not be written.
+	 */
+	public void writeHtml(String file) throws IOException {
+		final int width = 640, height = 400, margin = 50;
+		String[] colors = {"#1f77b4", "#ff7f0e", "#2ca02c", "#d62728", "#9467bd", "#8c564b"};
+		double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for(SweepPoint point : points) {
+			double x = Math.log10(Math.max(point.getSize(), 1));
+			double y = Math.log10(Math.max(point.getMedianMillis(), 0.01));
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}//for
+		double spanX = Math.max(maxX - minX, 1e-9), spanY = Math.max(maxY - minY, 1e-9);
+
+		StringBuilder html = new StringBuilder("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Scalability sweep</title></head><body>\n");
+		html.append("<h1>Time against list size</h1>\n<p>Both axes are log10. Median of each operation.</p>\n");
+		html.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width).append("\" height=\"").append(height).append("\">\n");
+		html.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>\n", margin, height - margin, width - margin, height - margin));
+		html.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>\n", margin, margin, margin, height - margin));
+		html.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\">items (%.0f to %.0f)</text>\n", width / 2 - 40, height - 15, Math.pow(10, minX), Math.pow(10, maxX)));
+		html.append(String.format(Locale.ROOT, "<text x=\"5\" y=\"%d\">ms (%.2f to %.1f)</text>\n", margin - 15, Math.pow(10, minY), Math.pow(10, maxY)));
+		for(int i = 0; i < OPERATIONS.size(); i++) {
+			String operation = OPERATIONS.get(i);
+			StringBuilder line = new StringBuilder();
+			for(SweepPoint point : points) {
+				if(point.getOperation().equals(operation)) {
+					double x = margin + (Math.log10(Math.max(point.getSize(), 1)) - minX) / spanX * (width - 2 * margin);
+					double y = height - margin - (Math.log10(Math.max(point.getMedianMillis(), 0.01)) - minY) / spanY * (height - 2 * margin);
+					line.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+				}//if
+				else {}//else
+			}//for
+			String color = colors[i % colors.length];
+			html.append("<polyline fill=\"none\" stroke-width=\"2\" stroke=\"").append(color).append("\" points=\"").append(line.toString().trim()).append("\"/>\n");
+			html.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" fill=\"%s\">%s (n^%.2f)</text>\n", width - margin - 150, margin + 15 * i, color,
+					operation, getGrowthExponent(operation)));
+		}//for
+		html.append("</svg>\n</body></html>\n");
+		Files.write(Paths.get(file), html.toString().getBytes(StandardCharsets.UTF_8));
+	}//writeHtml
+
+	/**
+	 * This method runs a sweep on its own session and writes the results.
+	 * --sweep-sizes is a comma separated list of sizes, --sweep-repeats the number of timings per operation,
+	 * --sweep-max-exponent the growth allowed before it is an error, and --sweep-out the path the .csv and .html are written to.
+	 * The settings are read before anything is started, so a bad value is reported without leaving a session or mirror behind.
+	 * @param args The command line arguments.
+	 */
+	public static void main(String[] args) {
+		int[] sizes;
+		int repeats;
+		double maxExponent;
+		LaunchProfile profile;
+		try {
+			String sizeList = Settings.get(args, "sweep-sizes");
+			sizes = (sizeList != null) ? Arrays.stream(sizeList.split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray() : DEFAULT_SIZES;
+			repeats = Settings.getInt(args, "sweep-repeats", 3);
+			maxExponent = Double.parseDouble(Settings.get(args, "sweep-max-exponent", "1.3"));
+			profile = LaunchProfile.fromConfig(args);
+		}//try
+		catch(IllegalArgumentException e) {
+			//NumberFormatException is an IllegalArgumentException too
+			System.out.println("ERROR- Could not read the sweep settings. " + e.getMessage());
+			return;
+		}//catch
+		if(sizes.length == 0 || Arrays.stream(sizes).anyMatch(size -> size < 1) || repeats < 1) {
+			System.out.println("ERROR- Could not read the sweep settings. The sizes and repeats must be 1 or more.");
+			return;
+		}//if
+		else {}//else
+		MirrorServer mirror = Testing.startMirror(args);
+		String page = (mirror != null) ? mirror.getUrl() : Testing.REMOTE_PAGE;
+		String out = Settings.get(args, "sweep-out", "sweep");
+		WebDriver driver = null;
+		try {
+			driver = Testing.startSession(profile);
+			ScalabilitySweep sweep = new ScalabilitySweep(driver, page, sizes, repeats);
+			sweep.run();
+			int errorCtr = sweep.getErrors() + sweep.printGrowth(maxExponent);
+			sweep.writeCsv(out + ".csv");
+			sweep.writeHtml(out + ".html");
+			System.out.println("Sweep complete. Found " + errorCtr + " error" + ((errorCtr != 1) ? "s" : "") + ". Wrote " + out + ".csv and " + out + ".html.");
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not write the sweep results. " + e.getMessage());
+		}//catch
+		finally {
+			if(driver != null) {
+				Testing.endSession(driver);
+			}//if
+			else {}//else
+			if(mirror != null) {
+				mirror.close();
+			}//if
+			else {}//else
+		}//finally
+	}//main
+
+}//ScalabilitySweep
@@ -0,0 +1,77 @@
+package todo_website_testing;
+import java.util.function.ToIntFunction;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This interface is one independent test scenario. A scenario starts on a fresh copy of the page,
+ * runs the Testing helpers against the WebDriver it is given, and returns how many errors it found.
+ */
+public interface Scenario {
+
+	/**
+	 * This method returns the name of the scenario, used in the report.
+	 * @return The name of the scenario in String format.
+	 */
+	String getName();
+
+	/**
+	 * This method takes a given WebDriver showing a fresh copy of the page and runs the scenario on it.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	int run(WebDriver driver);
+
+	/**
+	 * This method checks if the scenario is run again when it fails. Long running scenarios are not.
+	 * @return True if a failed run of the scenario is run again, false otherwise.
+	 */
+	default boolean isRerun() {
+		return true;
+	}//isRerun
+
+	/**
+	 * This method takes a given name and body and creates a scenario from them.
+	 * @param name The name of the scenario in String format.
+	 * @param body The steps of the scenario, returning the number of errors found.
+	 * @return The new Scenario.
+	 */
+	static Scenario of(String name, ToIntFunction<WebDriver> body) {
+		return new Scenario() {
+			@Override
+			public String getName() {
+				return name;
+			}//getName
+
+			@Override
+			public int run(WebDriver driver) {
+				return body.applyAsInt(driver);
+			}//run
+		};
+	}//of
+
+	/**
+	 * This method takes a given name and body and creates a long running scenario from them, which is not run again when it fails.
+	 * @param name The name of the scenario in String format.
+	 * @param body The steps of the scenario, returning the number of errors found.
+	 * @return The new Scenario.
+	 */
+	static Scenario longRunning(String name, ToIntFunction<WebDriver> body) {
+		return new Scenario() {
+			@Override
+			public String getName() {
+				return name;
+			}//getName
+
+			@Override
+			public int run(WebDriver driver) {
+				return body.applyAsInt(driver);
+			}//run
+
+			@Override
+			public boolean isRerun() {
+				return false;
+			}//isRerun
+		};
+	}//longRunning
+
+}//Scenario
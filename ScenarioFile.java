@@ -0,0 +1,153 @@
+package todo_website_testing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class reads scenario files and compiles them into StepPlans. A file holds any number of scenarios:
+ * <pre>
+ * # lines starting with # are comments
+ * scenario: complete task
+ *   addTask "wash the car"
+ *   clickCheckbox "wash the car"
+ *   confirmActiveTab All
+ *   confirmItemsLeft
+ *   clickTab active
+ *   confirmEmptyState active
+ * </pre>
+ * Each step is the name of a Testing helper and its one argument, in quotes if it has spaces.
+ * Compiled plans are cached by file, and only compiled again when the file changes.
+ */
+public class ScenarioFile {
+
+	/** The extension of scenario files, used when a directory is loaded. */
+	public static final String EXTENSION = ".scenario";
+
+	private static final String HEADER = "scenario:";
+
+	private static final Map<Path, CachedPlans> CACHE = new ConcurrentHashMap<Path, CachedPlans>();
+
+	private static class CachedPlans {
+		private final FileTime modified;
+		private final long size;
+		private final List<StepPlan> plans;
+
+		CachedPlans(FileTime modified, long size, List<StepPlan> plans) {
+			this.modified = modified;
+			this.size = size;
+			this.plans = plans;
+		}//CachedPlans
+	}//CachedPlans
+
+	/**
+	 * This method takes a given file, or a directory of .scenario files, and returns every scenario in it.
+	 * @param path The Path of the file or directory.
+	 * @return The List<Scenario> in file order.
+	 * @throws IOException If a file could not be read.
+	 * @throws IllegalArgumentException If a file has a step that is not known, naming the file and line.
+	 */
+	public static List<Scenario> load(Path path) throws IOException {
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		if(Files.isDirectory(path)) {
+			List<Path> files;
+			try(Stream<Path> listing = Files.list(path)) {
+				files = listing.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).sorted().collect(Collectors.toList());
+			}//try
+			for(Path file : files) {
+				scenarios.addAll(loadFile(file));
+			}//for
+		}//if
+		else {
+			scenarios.addAll(loadFile(path));
+		}//else
+		return scenarios;
+	}//load
+
+	/**
+	 * This method takes a given file and returns its compiled plans, from the cache if the file has not changed.
+	 */
+	private static List<StepPlan> loadFile(Path file) throws IOException {
+		Path key = file.toAbsolutePath().normalize();
+		FileTime modified = Files.getLastModifiedTime(key);
+		long size = Files.size(key);
+		CachedPlans cached = CACHE.get(key);
+		if(cached != null && cached.modified.equals(modified) && cached.size == size) {
+			return cached.plans;
+		}//if
+		else {
+			List<StepPlan> plans = parse(new String(Files.readAllBytes(key), StandardCharsets.UTF_8), key.getFileName().toString());
+			CACHE.put(key, new CachedPlans(modified, size, plans));
+			return plans;
+		}//else
+	}//loadFile
+
+	/**
+	 * This method takes the text of a scenario file and compiles every scenario in it.
+	 * @param source The text of the file.
+	 * @param origin The name of the file, used in error messages.
+	 * @return The List<StepPlan> in file order.
+	 * @throws IllegalArgumentException If a line cannot be compiled, naming the file and line.
+	 */
+	public static List<StepPlan> parse(String source, String origin) {
+		List<StepPlan> plans = new ArrayList<StepPlan>();
+		StepPlan.Builder builder = null;
+		String[] lines = source.split("\r?\n");
+		for(int i = 0; i < lines.length; i++) {
+			String line = lines[i].trim();
+			if(line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}//if
+			else {}//else
+			try {
+				if(line.startsWith(HEADER)) {
+					if(builder != null) {
+						plans.add(builder.build());
+					}//if
+					else {}//else
+					String name = line.substring(HEADER.length()).trim();
+					if(name.isEmpty()) {
+						throw new IllegalArgumentException("A scenario needs a name.");
+					}//if
+					else {}//else
+					builder = new StepPlan.Builder(name);
+				}//if
+				else if(builder == null) {
+					throw new IllegalArgumentException("Steps must come after a \"" + HEADER + "\" line.");
+				}//else if
+				else {
+					int space = line.indexOf(' ');
+					String command = (space < 0) ? line : line.substring(0, space);
+					String argument = (space < 0) ? null : unquote(line.substring(space + 1).trim());
+					builder.add(line, command, argument);
+				}//else
+			}//try
+			catch(IllegalArgumentException e) {
+				throw new IllegalArgumentException(origin + " line " + (i + 1) + ": " + e.getMessage(), e);
+			}//catch
+		}//for
+		if(builder != null) {
+			plans.add(builder.build());
+		}//if
+		else {}//else
+		return Collections.unmodifiableList(plans);
+	}//parse
+
+	private static String unquote(String argument) {
+		if(argument.length() >= 2 && argument.startsWith("\"") && argument.endsWith("\"")) {
+			return argument.substring(1, argument.length() - 1);
+		}//if
+		else {
+			return argument;
+		}//else
+	}//unquote
+
+}//ScenarioFile
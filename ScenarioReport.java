@@ -0,0 +1,161 @@
+package todo_website_testing;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class gathers the results of a scenario run into one report.
+ */
+public class ScenarioReport {
+
+	/**
+	 * This class holds the result of one scenario.
+	 */
+	public static class ScenarioResult {
+		private final String name;
+		private final int errors;
+		private final long durationMillis;
+		private final String failure;
+		private final List<StepResult> steps;
+		private final int attempt;
+
+		ScenarioResult(String name, int errors, long durationMillis, String failure) {
+			this(name, errors, durationMillis, failure, Collections.<StepResult>emptyList());
+		}//ScenarioResult
+
+		ScenarioResult(String name, int errors, long durationMillis, String failure, List<StepResult> steps) {
+			this(name, errors, durationMillis, failure, steps, 1);
+		}//ScenarioResult
+
+		ScenarioResult(String name, int errors, long durationMillis, String failure, List<StepResult> steps, int attempt) {
+			this.name = name;
+			this.errors = errors;
+			this.durationMillis = durationMillis;
+			this.failure = failure;
+			this.steps = Collections.unmodifiableList(steps);
+			this.attempt = attempt;
+		}//ScenarioResult
+
+		public String getName() { return name; }
+		public int getErrors() { return errors; }
+		public long getDurationMillis() { return durationMillis; }
+		/** The exception that stopped the scenario early, or null if it ran to the end. */
+		public String getFailure() { return failure; }
+		/** The errors and budgets exceeded recorded while the scenario ran, one StepResult each. */
+		public List<StepResult> getSteps() { return steps; }
+
+		/**
+		 * This method returns the number of performance budgets the scenario exceeded. They are counted in its errors,
+		 * unless they were only reported.
+		 * @return The number of budgets exceeded in int format.
+		 */
+		public int getBudgetsExceeded() {
+			int exceeded = 0;
+			for(StepResult step : steps) {
+				if(step.isBudget()) {
+					exceeded++;
+				}//if
+				else {}//else
+			}//for
+			return exceeded;
+		}//getBudgetsExceeded
+		/** The run of the scenario this result is from, 1 unless failed scenarios were rerun. */
+		public int getAttempt() { return attempt; }
+
+		/**
+		 * This method checks if the scenario ran to the end without errors.
+		 * @return True if it passed, false otherwise.
+		 */
+		public boolean isPassed() {
+			return errors == 0 && failure == null;
+		}//isPassed
+
+		/**
+		 * This method checks if the scenario ran to the end without a failed check, whatever its performance budgets.
+		 * A run that was only too slow is not rerun, and is not flaky: running it again tells nothing about its checks.
+		 * @return True if every check passed, false otherwise.
+		 */
+		public boolean isChecksPassed() {
+			return failure == null && getBudgetsExceeded() == steps.size();
+		}//isChecksPassed
+	}//ScenarioResult
+
+	private final List<ScenarioResult> results;
+	private final long wallClockMillis;
+	private final Set<String> quarantined;
+
+	ScenarioReport(List<ScenarioResult> results, long wallClockMillis) {
+		this(results, wallClockMillis, Collections.<String>emptySet());
+	}//ScenarioReport
+
+	ScenarioReport(List<ScenarioResult> results, long wallClockMillis, Set<String> quarantined) {
+		this.results = Collections.unmodifiableList(results);
+		this.wallClockMillis = wallClockMillis;
+		this.quarantined = Collections.unmodifiableSet(quarantined);
+	}//ScenarioReport
+
+	public List<ScenarioResult> getResults() { return results; }
+	public long getWallClockMillis() { return wallClockMillis; }
+	/** The names of the scenarios that were quarantined as flaky. Their errors are reported but not counted. */
+	public Set<String> getQuarantined() { return quarantined; }
+
+	/**
+	 * This method adds up the errors of every scenario that is not quarantined.
+	 * @return The total number of errors in int format.
+	 */
+	public int getTotalErrors() {
+		int total = 0;
+		for(ScenarioResult result : results) {
+			if(!quarantined.contains(result.getName())) {
+				total += result.getErrors();
+			}//if
+			else {}//else
+		}//for
+		return total;
+	}//getTotalErrors
+
+	/**
+	 * This method adds up the errors of the quarantined scenarios.
+	 * @return The number of quarantined errors in int format.
+	 */
+	public int getQuarantinedErrors() {
+		int total = 0;
+		for(ScenarioResult result : results) {
+			if(quarantined.contains(result.getName())) {
+				total += result.getErrors();
+			}//if
+			else {}//else
+		}//for
+		return total;
+	}//getQuarantinedErrors
+
+	/**
+	 * This method adds up the performance budgets exceeded in every scenario.
+	 * @return The total number of budgets exceeded in int format.
+	 */
+	public int getTotalBudgetsExceeded() {
+		int total = 0;
+		for(ScenarioResult result : results) {
+			total += result.getBudgetsExceeded();
+		}//for
+		return total;
+	}//getTotalBudgetsExceeded
+
+	/**
+	 * This method prints one line per scenario, then the totals.
+	 */
+	public void print() {
+		long scenarioMillis = 0;
+		for(ScenarioResult result : results) {
+			System.out.println("Scenario \"" + result.getName() + "\": " + result.getErrors() + " error"
+					+ ((result.getErrors() != 1) ? "s" : "") + " in " + result.getDurationMillis() + " ms."
+					+ ((result.getBudgetsExceeded() > 0) ? " (" + result.getBudgetsExceeded() + " over budget)" : "")
+					+ ((result.getAttempt() > 1) ? " (run " + result.getAttempt() + ")" : "")
+					+ (quarantined.contains(result.getName()) ? " (quarantined)" : ""));
+			scenarioMillis += result.getDurationMillis();
+		}//for
+		System.out.println("Ran " + results.size() + " scenarios in " + wallClockMillis + " ms wall-clock ("
+				+ scenarioMillis + " ms of scenario time).");
+	}//print
+
+}//ScenarioReport
@@ -0,0 +1,236 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class runs scenarios at the same time, each on its own session borrowed from a DriverPool,
+ * and gathers their error counts into one ScenarioReport.
+ * With a FlakyHistory, quarantined scenarios run last, and only the scenarios that failed are run again.
+ */
+public class ScenarioRunner {
+
+	private final DriverPool pool;
+	private final int parallelism;
+	private final PerfProfiler profiler;
+	private final FlakyHistory history;
+	private final int reruns;
+
+	/**
+	 * This constructor creates a runner that runs up to the given number of scenarios at once.
+	 * The pool should have at least that many sessions, or workers will wait for one another.
+	 * @param pool The DriverPool the sessions are borrowed from.
+	 * @param parallelism The number of scenarios run at the same time.
+	 */
+	public ScenarioRunner(DriverPool pool, int parallelism) {
+		this(pool, parallelism, null);
+	}//ScenarioRunner
+
+	/**
+	 * This constructor creates a runner that also profiles every scenario, recording the budgets exceeded in its results.
+	 * @param pool The DriverPool the sessions are borrowed from.
+	 * @param parallelism The number of scenarios run at the same time.
+	 * @param profiler The PerfProfiler the scenarios are profiled with, or null to not profile them.
+	 */
+	public ScenarioRunner(DriverPool pool, int parallelism, PerfProfiler profiler) {
+		this(pool, parallelism, profiler, null, 0);
+	}//ScenarioRunner
+
+	/**
+	 * This constructor creates a runner that tracks the flakiness of every scenario and runs the failed ones again.
+	 * @param pool The DriverPool the sessions are borrowed from.
+	 * @param parallelism The number of scenarios run at the same time.
+	 * @param profiler The PerfProfiler the scenarios are profiled with, or null to not profile them.
+	 * @param history The FlakyHistory the outcomes are recorded in, or null to not track them.
+	 * @param reruns The number of times a failed scenario is run again, 0 to never.
+	 */
+	public ScenarioRunner(DriverPool pool, int parallelism, PerfProfiler profiler, FlakyHistory history, int reruns) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism + ".");
+		}//if
+		else {}//else
+		this.pool = pool;
+		this.parallelism = parallelism;
+		this.profiler = profiler;
+		this.history = history;
+		this.reruns = Math.max(0, reruns);
+	}//ScenarioRunner
+
+	/**
+	 * This method takes a given list of scenarios, runs them all and waits for them to finish.
+	 * Scenarios with a failed check are then run again, up to the number of reruns, and their last result is kept.
+	 * Long running scenarios, which say so with Scenario.isRerun, and ones that only exceeded performance budgets, are not run again.
+	 * @param scenarios The List<Scenario> being run.
+	 * @return The ScenarioReport with one result per scenario, in the order they were given.
+	 */
+	public ScenarioReport run(List<Scenario> scenarios) {
+		long start = System.nanoTime();
+		Set<String> quarantined = new HashSet<String>();
+		List<Scenario> toRun = scenarios;
+		if(history != null) {
+			for(Scenario scenario : scenarios) {
+				if(history.isScenarioQuarantined(scenario.getName())) {
+					quarantined.add(scenario.getName());
+				}//if
+				else {}//else
+			}//for
+			toRun = history.prioritise(scenarios);
+		}//if
+		else {}//else
+		Map<Scenario, ScenarioReport.ScenarioResult> latest = new LinkedHashMap<Scenario, ScenarioReport.ScenarioResult>();
+		for(int attempt = 1; attempt <= reruns + 1 && !toRun.isEmpty(); attempt++) {
+			List<ScenarioReport.ScenarioResult> results = runAll(toRun, attempt);
+			List<Scenario> failed = new ArrayList<Scenario>();
+			for(int i = 0; i < toRun.size(); i++) {
+				latest.put(toRun.get(i), results.get(i));
+				if(!results.get(i).isChecksPassed() && toRun.get(i).isRerun()) {
+					failed.add(toRun.get(i));
+				}//if
+				else {}//else
+			}//for
+			//only the scenarios that failed, and are not long running, are run again
+			toRun = failed;
+		}//for
+		List<ScenarioReport.ScenarioResult> results = new ArrayList<ScenarioReport.ScenarioResult>();
+		ResultReporter reporter = Results.getReporter();
+		for(Scenario scenario : scenarios) {
+			ScenarioReport.ScenarioResult result = latest.get(scenario);
+			results.add(result);
+			if(history != null) {
+				history.recordScenario(scenario.getName(), !result.isChecksPassed() ? FlakyHistory.FAILED
+						: (result.getAttempt() > 1) ? FlakyHistory.RETRIED : FlakyHistory.PASSED);
+			}//if
+			else {}//else
+			if(reporter != null) {
+				reporter.submit(result);
+			}//if
+			else {}//else
+		}//for
+		return new ScenarioReport(results, (System.nanoTime() - start) / 1000000L, quarantined);
+	}//run
+
+	/**
+	 * This method takes a given list of scenarios, runs them all at once and waits for them to finish.
+	 * A scenario whose worker throws is recorded as failed, and the others keep running.
+	 * @param scenarios The List<Scenario> being run.
+	 * @param attempt The run of these scenarios, starting at 1.
+	 * @return The List<ScenarioResult> in the order the scenarios were given.
+	 */
+	private List<ScenarioReport.ScenarioResult> runAll(List<Scenario> scenarios, int attempt) {
+		//a virtual thread per scenario if there are any, and never more than parallelism of them holding a session
+		ExecutorService workers = Workers.newExecutor("scenario", Math.min(parallelism, Math.max(1, scenarios.size())));
+		Semaphore slots = new Semaphore(parallelism);
+		List<CompletableFuture<ScenarioReport.ScenarioResult>> running = new ArrayList<CompletableFuture<ScenarioReport.ScenarioResult>>();
+		try(TaskScope scope = new TaskScope(workers)) {
+			for(Scenario scenario : scenarios) {
+				running.add(scope.fork(() -> {
+					slots.acquire();
+					long start = System.nanoTime();
+					try {
+						return runOne(scenario, attempt);
+					}//try
+					catch(RuntimeException e) {
+						//a scenario that could not run, for example because no session could be borrowed, fails on its own
+						String failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+						System.out.println("ERROR- Scenario \"" + scenario.getName() + "\" could not run. " + failure);
+						return new ScenarioReport.ScenarioResult(scenario.getName(), 1, (System.nanoTime() - start) / 1000000L,
+								failure, new ArrayList<StepResult>(), attempt);
+					}//catch
+					finally {
+						slots.release();
+					}//finally
+				}));
+			}//for
+			scope.join();
+			List<ScenarioReport.ScenarioResult> results = new ArrayList<ScenarioReport.ScenarioResult>();
+			for(CompletableFuture<ScenarioReport.ScenarioResult> future : running) {
+				results.add(future.join());
+			}//for
+			return results;
+		}//try
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running scenarios.", e);
+		}//catch
+		catch(ExecutionException e) {
+			throw new IllegalStateException("A scenario worker failed.", e.getCause());
+		}//catch
+		finally {
+			workers.shutdownNow();
+		}//finally
+	}//runAll
+
+	/**
+	 * This method takes a given scenario, runs it on a borrowed session and gives the session back.
+	 * An exception thrown by the scenario is counted as one error. The errors are counted from the results recorded while it ran.
+	 * @param scenario The Scenario being run.
+	 * @param attempt The run of the scenario, starting at 1.
+	 * @return The ScenarioResult of the scenario.
+	 */
+	private ScenarioReport.ScenarioResult runOne(Scenario scenario, int attempt) {
+		long start = System.nanoTime();
+		WebDriver driver = pool.borrow();
+		int errors = 0;
+		String failure = null;
+		Results.Context context = Results.begin(scenario.getName(), driver, attempt);
+		ImpactMap.begin();
+		//the async calls the scenario makes belong to it, and are cancelled if it fails
+		TaskScope scope = TaskScope.open(Workers.shared());
+		FailureArtifacts artifacts = Results.getArtifacts();
+		try {
+			if(artifacts != null) {
+				artifacts.hook(driver);
+			}//if
+			else {}//else
+			if(profiler != null) {
+				profiler.begin(driver, scenario.getName());
+			}//if
+			else {}//else
+			errors += scenario.run(driver);
+			//wait for the async calls the scenario left running, so their errors are counted
+			scope.join();
+			if(profiler != null) {
+				profiler.end(driver);
+			}//if
+			else {}//else
+			//errors returned without a recorded result still count, so record one result for each
+			for(int i = context.getFailedChecks(); i < errors; i++) {
+				Results.fail("Error counted by the scenario without a recorded result.");
+			}//for
+		}//try
+		catch(RuntimeException e) {
+			failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+			Results.fail("Scenario \"" + scenario.getName() + "\" stopped early. " + failure);
+		}//catch
+		catch(ExecutionException e) {
+			failure = e.getCause().getClass().getSimpleName() + ": " + e.getCause().getMessage();
+			Results.fail("Scenario \"" + scenario.getName() + "\" stopped early. " + failure);
+		}//catch
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure = "Interrupted while waiting for async calls.";
+			Results.fail("Scenario \"" + scenario.getName() + "\" stopped early. " + failure);
+		}//catch
+		finally {
+			scope.close();
+			Results.end();
+			PerfProfiler.detach(driver);
+			pool.giveBack(driver);
+		}//finally
+		//the captures no longer need the session, but their files should be written before the scenario is reported
+		context.awaitCaptures();
+		ImpactMap.end(scenario, failure == null && context.getFailedChecks() == 0);
+		//the error count of the scenario is the number of results it recorded
+		return new ScenarioReport.ScenarioResult(scenario.getName(), context.getErrors(),
+				(System.nanoTime() - start) / 1000000L, failure, new ArrayList<StepResult>(context.getResults()), attempt);
+	}//runOne
+
+}//ScenarioRunner
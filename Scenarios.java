@@ -0,0 +1,261 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class holds the scenarios the Testing.main flow is split into.
+ * Each scenario starts from an empty list on the "All" tab and does not depend on any other scenario.
+ */
+public class Scenarios {
+
+	static final String ALL_TAB_MSG = "There are currently no tasks.";
+	static final String ACTIVE_TAB_MSG = "There are currently no active tasks.";
+	static final String COMPLETED_TAB_MSG = "There are currently no completed tasks.";
+	static final String FIRST_TASK = "wash the car";
+	static final String SECOND_TASK = "change kitchen light";
+
+	/**
+	 * This method returns every scenario, in the order the old main flow ran them.
+	 * @return The List<Scenario> of all scenarios.
+	 */
+	public static List<Scenario> all() {
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		scenarios.add(Scenario.of("page title", Scenarios::pageTitle));
+		scenarios.add(Scenario.of("empty state all", Scenarios::emptyStateAll));
+		scenarios.add(Scenario.of("empty state active", Scenarios::emptyStateActive));
+		scenarios.add(Scenario.of("empty state completed", Scenarios::emptyStateCompleted));
+		scenarios.add(Scenario.of("add task", Scenarios::addTask));
+		scenarios.add(Scenario.of("complete task", Scenarios::completeTask));
+		scenarios.add(Scenario.of("filter views", Scenarios::filterViews));
+		scenarios.add(Scenario.of("delete task", Scenarios::deleteTask));
+		return scenarios;
+	}//all
+
+	/**
+	 * This method returns a scenario that seeds a large list, half of it completed, and confirms it is all shown.
+	 * @param size The number of tasks seeded.
+	 * @param reload True to reload the page after seeding, so the list is rendered from what the site stored.
+	 * @return The Scenario.
+	 */
+	public static Scenario largeList(int size, boolean reload) {
+		return Scenario.of("large list of " + size, driver -> largeList(driver, size, reload));
+	}//largeList
+
+	/**
+	 * This method takes a given WebDriver, seeds the given number of tasks with every second one completed,
+	 * and confirms the list shows them in order and the items left count matches the unchecked half.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param size The number of tasks seeded.
+	 * @param reload True to reload the page after seeding.
+	 * @return The number of errors found in int format.
+	 */
+	public static int largeList(WebDriver driver, int size, boolean reload) {
+		int errorCtr = 0;
+		//add every task in one go, and report how long it took
+		List<String> tasks = TaskSeeder.generate(size, "seeded task ");
+		TaskSeeder.SeedResult result = TaskSeeder.seed(driver, tasks, 2, reload);
+		System.out.println(result);
+		//confirm every task is shown in order, with every second one checked,
+		//and that the active count matches the unchecked half, as two independent async checks
+		CompletableFuture<Integer> order = AsyncTesting.check(driver, d -> TaskSeeder.verify(d, tasks, 2));
+		CompletableFuture<Integer> itemsLeft = AsyncTesting.check(driver, Testing::confirmItemsLeft);
+		errorCtr += order.join() + itemsLeft.join();
+		return errorCtr;
+	}//largeList
+
+	/**
+	 * This method takes a given WebDriver and confirms the website is correct.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	public static int pageTitle(WebDriver driver) {
+		int errorCtr = 0;
+		//get the title of the page using getPageTitle method
+		String title = Testing.getPageTitle(driver);
+		String matching = "To-Do List Website";
+		//check if the page title is correct
+		if(!(title.equals(matching))){
+			//the title is incorrect
+			errorCtr += Results.fail("Wrong Website.", matching, title);
+		}//if
+		else {}//else
+		return errorCtr;
+	}//pageTitle
+
+	/**
+	 * This method takes a given WebDriver and confirms the "All" tab is shown by default with an empty state.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	public static int emptyStateAll(WebDriver driver) {
+		int errorCtr = 0;
+		//confirm default tab shown in "All"
+		String elementPath = "All";
+		errorCtr += Testing.confirmActiveTab(driver, elementPath);
+		//check "There are currently no tasks." is shown
+		errorCtr += Testing.confirmEmptyState(driver, ALL_TAB_MSG);
+		return errorCtr;
+	}//emptyStateAll
+
+	/**
+	 * This method takes a given WebDriver and confirms the "Active" tab shows an empty state.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	public static int emptyStateActive(WebDriver driver) {
+		int errorCtr = 0;
+		//click active tab
+		String elementPath = "active";
+		errorCtr += Testing.clickTab(driver, elementPath);
+		//check "There are currently no active tasks."
+		errorCtr += Testing.confirmEmptyState(driver, ACTIVE_TAB_MSG);
+		return errorCtr;
+	}//emptyStateActive
+
+	/**
+	 * This method takes a given WebDriver and confirms the "Completed" tab shows an empty state.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	public static int emptyStateCompleted(WebDriver driver) {
+		int errorCtr = 0;
+		//click completed tab
+		String elementPath = "completed";
+		errorCtr += Testing.clickTab(driver, elementPath);
+		//check "There are currently no completed tasks."
+		errorCtr += Testing.confirmEmptyState(driver, COMPLETED_TAB_MSG);
+		return errorCtr;
+	}//emptyStateCompleted
+
+	/**
+	 * This method takes a given WebDriver, adds a task and confirms it is shown as active on the "All" and "Active" tabs.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	public static int addTask(WebDriver driver) {
+		int errorCtr = 0;
+		//put input in text bar and add
+		String elementPath = FIRST_TASK;
+		errorCtr += Testing.addTask(driver, elementPath);
+		//confirm all tab is still clicked
+		elementPath = "All";
+		errorCtr += Testing.confirmActiveTab(driver, elementPath);
+		//confirm "1 active item left" is shown
+		errorCtr += Testing.confirmItemsLeft(driver);
+		//click active tab
+		elementPath = "active";
+		errorCtr += Testing.clickTab(driver, elementPath);
+		//confirm "wash the car" is still shown
+		elementPath = FIRST_TASK;
+		errorCtr += Testing.confirmLastTodoListItem(driver, elementPath);
+		//confirm "1 active item left" is shown
+		errorCtr += Testing.confirmItemsLeft(driver);
+		return errorCtr;
+	}//addTask
+
+	/**
+	 * This method takes a given WebDriver, adds and completes a task, and confirms it moves from "Active" to "Completed".
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	public static int completeTask(WebDriver driver) {
+		int errorCtr = 0;
+		//add the task and click the checkbox next to it
+		String elementPath = FIRST_TASK;
+		errorCtr += Testing.addTask(driver, elementPath);
+		errorCtr += Testing.clickCheckbox(driver, elementPath);
+		//confirm the tab is still all tab
+		elementPath = "All";
+		errorCtr += Testing.confirmActiveTab(driver, elementPath);
+		//confirm "0 active items left" is shown
+		errorCtr += Testing.confirmItemsLeft(driver);
+		//click active tab
+		elementPath = "active";
+		errorCtr += Testing.clickTab(driver, elementPath);
+		//confirm "There are currently no active tasks." is shown
+		errorCtr += Testing.confirmEmptyState(driver, ACTIVE_TAB_MSG);
+		//click completed tab
+		elementPath = "completed";
+		errorCtr += Testing.clickTab(driver, elementPath);
+		//confirm "wash the car" completed task is shown
+		elementPath = FIRST_TASK;
+		errorCtr += Testing.confirmLastTodoListItem(driver, elementPath);
+		return errorCtr;
+	}//completeTask
+
+	/**
+	 * This method takes a given WebDriver, adds one completed and one active task, and confirms each tab shows the right one.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	public static int filterViews(WebDriver driver) {
+		int errorCtr = 0;
+		errorCtr += addCompletedAndActiveTasks(driver);
+		//confirm all tab is still clicked
+		String elementPath = "All";
+		errorCtr += Testing.confirmActiveTab(driver, elementPath);
+		//confirm "1 active item left" is shown
+		errorCtr += Testing.confirmItemsLeft(driver);
+		//confirm "change kitchen light" is shown
+		elementPath = SECOND_TASK;
+		errorCtr += Testing.confirmLastTodoListItem(driver, elementPath);
+		//confirm "wash the car" is shown completed
+		elementPath = FIRST_TASK;
+		errorCtr += Testing.confirmChecked(driver, elementPath);
+		//confirm "change kitchen light" is not completed
+		elementPath = SECOND_TASK;
+		errorCtr += Testing.confirmUnchecked(driver, elementPath);
+		//confirm only "change kitchen light" is shown on the active tab
+		elementPath = "active";
+		errorCtr += Testing.clickTab(driver, elementPath);
+		elementPath = SECOND_TASK;
+		errorCtr += Testing.confirmLastTodoListItem(driver, elementPath);
+		//confirm only "wash the car" is shown on the completed tab
+		elementPath = "completed";
+		errorCtr += Testing.clickTab(driver, elementPath);
+		elementPath = FIRST_TASK;
+		errorCtr += Testing.confirmLastTodoListItem(driver, elementPath);
+		return errorCtr;
+	}//filterViews
+
+	/**
+	 * This method takes a given WebDriver, adds one completed and one active task, deletes the completed one,
+	 * and confirms only the active one is left.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	public static int deleteTask(WebDriver driver) {
+		int errorCtr = 0;
+		errorCtr += addCompletedAndActiveTasks(driver);
+		//delete "wash the car" task
+		String elementPath = FIRST_TASK;
+		errorCtr += Testing.deleteItem(driver, elementPath);
+		//confirm correct task was clicked and deleted
+		if(Testing.getSpecificTodoListItem(driver, elementPath) != null) {
+			errorCtr += Results.fail("Todo item \"" + elementPath + "\" was not deleted.");
+		}//if
+		else {}//else
+		elementPath = SECOND_TASK;
+		errorCtr += Testing.confirmLastTodoListItem(driver, elementPath);
+		errorCtr += Testing.confirmItemsLeft(driver);
+		return errorCtr;
+	}//deleteTask
+
+	/**
+	 * This method takes a given WebDriver and sets up "wash the car" as completed and "change kitchen light" as active.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format.
+	 */
+	static int addCompletedAndActiveTasks(WebDriver driver) {
+		int errorCtr = 0;
+		String elementPath = FIRST_TASK;
+		errorCtr += Testing.addTask(driver, elementPath);
+		errorCtr += Testing.clickCheckbox(driver, elementPath);
+		elementPath = SECOND_TASK;
+		errorCtr += Testing.addTask(driver, elementPath);
+		return errorCtr;
+	}//addCompletedAndActiveTasks
+
+}//Scenarios
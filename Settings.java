@@ -0,0 +1,69 @@
+package todo_website_testing;
+
+/**
+ * This class reads the run settings. Each setting is read from the command line first (--page-load=eager),
+ * then a system property (-Dtodo.page-load=eager), then an environment variable (TODO_PAGE_LOAD=eager).
+ * The older -Dlaunch.page-load=eager property names are still read after the -Dtodo. ones.
+ */
+public class Settings {
+
+	/**
+	 * This method takes the command line arguments and the name of a setting, and returns its value.
+	 * @param args The command line arguments given to main.
+	 * @param name The name of the setting in String format.
+	 * @return The value of the setting in String format, or null if it is not set anywhere.
+	 */
+	public static String get(String[] args, String name) {
+		String prefix = "--" + name + "=";
+		for(String arg : args) {
+			if(arg.startsWith(prefix)) {
+				return arg.substring(prefix.length());
+			}//if
+			else {}//else
+		}//for
+		String property = System.getProperty("todo." + name, System.getProperty("launch." + name));
+		if(property != null) {
+			return property;
+		}//if
+		else {
+			return System.getenv("TODO_" + name.toUpperCase().replace('-', '_'));
+		}//else
+	}//get
+
+	/**
+	 * This method takes the command line arguments and the name of a setting, and returns its value or the given default.
+	 * @param args The command line arguments given to main.
+	 * @param name The name of the setting in String format.
+	 * @param fallback The value used when the setting is not set anywhere.
+	 * @return The value of the setting in String format.
+	 */
+	public static String get(String[] args, String name, String fallback) {
+		String value = get(args, name);
+		return value != null ? value : fallback;
+	}//get
+
+	/**
+	 * This method reads a true/false setting, falling back to the given default.
+	 * @param args The command line arguments given to main.
+	 * @param name The name of the setting in String format.
+	 * @param fallback The value used when the setting is not set anywhere.
+	 * @return The value of the setting.
+	 */
+	public static boolean getFlag(String[] args, String name, boolean fallback) {
+		String value = get(args, name);
+		return value != null ? Boolean.parseBoolean(value) : fallback;
+	}//getFlag
+
+	/**
+	 * This method reads a whole number setting, falling back to the given default.
+	 * @param args The command line arguments given to main.
+	 * @param name The name of the setting in String format.
+	 * @param fallback The value used when the setting is not set anywhere.
+	 * @return The value of the setting.
+	 */
+	public static int getInt(String[] args, String name, int fallback) {
+		String value = get(args, name);
+		return value != null ? Integer.parseInt(value.trim()) : fallback;
+	}//getInt
+
+}//Settings
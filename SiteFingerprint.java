@@ -0,0 +1,292 @@
+package todo_website_testing;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class is a fingerprint of the to-do site's assets: the page, its stylesheets and its scripts.
+ * The page is cut into tags with their text and stylesheets into rules, and every id and class a segment mentions is
+ * given the hash of the segments that mention it. Segments that mention none are hashed together under ANY, and so are
+ * scripts, since a change to the site's code can affect any scenario.
+ * Comparing two fingerprints then gives the ids and classes whose markup or style changed, instead of just "the site changed".
+ */
+public class SiteFingerprint {
+
+	/** The token of the segments that mention no id or class. A change to it can affect any scenario. */
+	public static final String ANY = "*";
+
+	/**
+	 * The script that fetches the text of the page and of every same-origin stylesheet and script it loads.
+	 * Assets are keyed by their path from the page, so the key is the same for the mirror on any port.
+	 */
+	static final String FETCH_SCRIPT =
+			"var done = arguments[arguments.length - 1];"
+			+ "var base = location.href.replace(/[^\\/]*([?#].*)?$/, '');"
+			+ "var urls = [location.href];"
+			+ "var links = document.querySelectorAll('link[rel=stylesheet][href], script[src]');"
+			+ "for (var i = 0; i < links.length; i++) {"
+			+ "  var url = links[i].href || links[i].src;"
+			+ "  if (url.indexOf(location.origin) == 0) { urls.push(url); }"
+			+ "}"
+			+ "var key = function(url) { var path = url.indexOf(base) == 0 ? url.substring(base.length) : url; return path || 'index.html'; };"
+			+ "Promise.all(urls.map(function(url) {"
+			+ "  return fetch(url, {cache: 'no-store'}).then(function(r) { return r.ok ? r.text() : null; }).catch(function() { return null; });"
+			+ "})).then(function(texts) {"
+			+ "  var assets = {};"
+			+ "  for (var j = 0; j < urls.length; j++) { assets[key(urls[j])] = texts[j]; }"
+			+ "  done(assets);"
+			+ "});";
+
+	private static final Pattern CSS_TOKEN = Pattern.compile("([#.])(-?[_a-zA-Z][\\w-]*)");
+	private static final Pattern HTML_TAG = Pattern.compile("<[^>]+>[^<]*");
+	private static final Pattern HTML_ATTRIBUTE = Pattern.compile("\\b(id|class)\\s*=\\s*[\"']([^\"']*)[\"']");
+
+	/** The hash of each asset, by its path. */
+	private final Map<String, String> assets;
+	/** The hash of the segments mentioning each token, by "path token". */
+	private final Map<String, String> segments;
+
+	SiteFingerprint(Map<String, String> assets, Map<String, String> segments) {
+		this.assets = Collections.unmodifiableMap(new TreeMap<String, String>(assets));
+		this.segments = Collections.unmodifiableMap(new TreeMap<String, String>(segments));
+	}//SiteFingerprint
+
+	/**
+	 * This method takes a given WebDriver showing the site and fingerprints its assets, fetched in one async script.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The SiteFingerprint of the site as it is now.
+	 */
+	@SuppressWarnings("unchecked")
+	public static SiteFingerprint take(WebDriver driver) {
+		Map<String, Object> raw = (Map<String, Object>) ((JavascriptExecutor) driver).executeAsyncScript(FETCH_SCRIPT);
+		Map<String, String> texts = new LinkedHashMap<String, String>();
+		for(Map.Entry<String, Object> entry : raw.entrySet()) {
+			texts.put(entry.getKey(), (String) entry.getValue());
+		}//for
+		return of(texts);
+	}//take
+
+	/**
+	 * This method takes the text of every asset and fingerprints it.
+	 * @param texts The Map of asset paths to their text, null for an asset that could not be read.
+	 * @return The SiteFingerprint of the assets.
+	 */
+	public static SiteFingerprint of(Map<String, String> texts) {
+		Map<String, String> assets = new TreeMap<String, String>();
+		Map<String, String> segments = new TreeMap<String, String>();
+		for(Map.Entry<String, String> entry : texts.entrySet()) {
+			String path = entry.getKey();
+			String text = (entry.getValue() != null) ? entry.getValue() : "";
+			assets.put(path, hash(text));
+			Map<String, StringBuilder> byToken = new TreeMap<String, StringBuilder>();
+			for(String segment : split(path, text)) {
+				Set<String> tokens = tokens(path, segment);
+				if(tokens.isEmpty()) {
+					tokens = Collections.singleton(ANY);
+				}//if
+				else {}//else
+				for(String token : tokens) {
+					byToken.computeIfAbsent(token, key -> new StringBuilder()).append(segment).append('\n');
+				}//for
+			}//for
+			for(Map.Entry<String, StringBuilder> token : byToken.entrySet()) {
+				segments.put(path + " " + token.getKey(), hash(token.getValue().toString()));
+			}//for
+		}//for
+		return new SiteFingerprint(assets, segments);
+	}//of
+
+	public Map<String, String> getAssets() { return assets; }
+	public Map<String, String> getSegments() { return segments; }
+
+	/**
+	 * This method takes the fingerprint of an earlier run and returns the tokens whose segments changed since.
+	 * The result holds ANY if a segment that mentions no id or class changed, or if an asset changed outside of its segments.
+	 * @param previous The SiteFingerprint of the earlier run.
+	 * @return The Set<String> of changed tokens, like "#todos-list" or ".checkmark". It is empty if nothing changed.
+	 */
+	public Set<String> changedSince(SiteFingerprint previous) {
+		Set<String> changed = new TreeSet<String>();
+		if(assets.equals(previous.assets)) {
+			return changed;
+		}//if
+		else {}//else
+		Set<String> changedAssets = new TreeSet<String>(assets.keySet());
+		changedAssets.addAll(previous.assets.keySet());
+		changedAssets.removeIf(asset -> String.valueOf(assets.get(asset)).equals(previous.assets.get(asset)));
+		Set<String> keys = new TreeSet<String>(segments.keySet());
+		keys.addAll(previous.segments.keySet());
+		Set<String> explained = new TreeSet<String>();
+		for(String key : keys) {
+			String asset = key.substring(0, key.lastIndexOf(' '));
+			//only look inside the assets whose hash changed
+			if(changedAssets.contains(asset) && !String.valueOf(segments.get(key)).equals(previous.segments.get(key))) {
+				changed.add(key.substring(key.lastIndexOf(' ') + 1));
+				explained.add(asset);
+			}//if
+			else {}//else
+		}//for
+		//an asset that changed where no segment did, like text between tags or an @import, can affect anything
+		if(!explained.containsAll(changedAssets)) {
+			changed.add(ANY);
+		}//if
+		else {}//else
+		return changed;
+	}//changedSince
+
+	/**
+	 * This method takes an asset and cuts it into segments: rules for CSS, tags with their text for HTML, and a script whole.
+	 */
+	private static List<String> split(String path, String text) {
+		List<String> segments = new ArrayList<String>();
+		String file = withoutQuery(path);
+		if(file.endsWith(".css")) {
+			segments.addAll(cssRules(text.replaceAll("(?s)/\\*.*?\\*/", "")));
+		}//if
+		else if(file.endsWith(".js")) {
+			segments.add(text);
+		}//else if
+		else {
+			Matcher tag = HTML_TAG.matcher(text);
+			while(tag.find()) {
+				segments.add(tag.group().trim());
+			}//while
+		}//else
+		return segments;
+	}//split
+
+	/**
+	 * This method takes a stylesheet and returns its rules. A rule inside @media or @supports is returned inside its
+	 * at-rule, like "@media print { .button { display: none } }", so a change to the condition changes the rule too.
+	 */
+	private static List<String> cssRules(String css) {
+		List<String> rules = new ArrayList<String>();
+		Deque<String> preludes = new ArrayDeque<String>();
+		Deque<Integer> bodies = new ArrayDeque<Integer>();
+		int preludeStart = 0;
+		for(int i = 0; i < css.length(); i++) {
+			char c = css.charAt(i);
+			if(c == '{') {
+				preludes.push(css.substring(preludeStart, i).trim());
+				bodies.push(i + 1);
+				preludeStart = i + 1;
+			}//if
+			else if(c == '}' && !preludes.isEmpty()) {
+				String prelude = preludes.pop();
+				String body = css.substring(bodies.pop(), i);
+				//only the innermost blocks are rules, the blocks around them are at-rules
+				if(body.indexOf('{') < 0) {
+					StringBuilder rule = new StringBuilder();
+					Iterator<String> enclosing = preludes.descendingIterator();
+					while(enclosing.hasNext()) {
+						rule.append(enclosing.next()).append(" { ");
+					}//while
+					rule.append(prelude).append(" {").append(body).append('}');
+					for(int depth = 0; depth < preludes.size(); depth++) {
+						rule.append(" }");
+					}//for
+					rules.add(rule.toString());
+				}//if
+				else {}//else
+				preludeStart = i + 1;
+			}//else if
+			else if(c == ';') {
+				//a statement like @import ends here, so it is not part of the next selector
+				preludeStart = i + 1;
+			}//else if
+			else {}//else
+		}//for
+		return rules;
+	}//cssRules
+
+	/**
+	 * This method takes the path of an asset and returns it without its query string or fragment, so "app.css?v=2" is CSS.
+	 */
+	private static String withoutQuery(String path) {
+		int end = path.length();
+		for(char mark : new char[] {'?', '#'}) {
+			int index = path.indexOf(mark);
+			if(index >= 0) {
+				end = Math.min(end, index);
+			}//if
+			else {}//else
+		}//for
+		return path.substring(0, end);
+	}//withoutQuery
+
+	/**
+	 * This method takes a segment and returns the ids and classes it mentions, as "#id" and ".class".
+	 * Scripts are given none, so they count under ANY: the site's code can change what any element does.
+	 */
+	static Set<String> tokens(String path, String segment) {
+		Set<String> tokens = new TreeSet<String>();
+		String file = withoutQuery(path);
+		if(file.endsWith(".css")) {
+			//the selector is the text before the last brace, after the at-rules the rule is inside of
+			int open = segment.lastIndexOf('{');
+			tokens.addAll(selectorTokens(segment.substring(segment.lastIndexOf('{', open - 1) + 1, Math.max(0, open))));
+		}//if
+		else if(!file.endsWith(".js")) {
+			Matcher attribute = HTML_ATTRIBUTE.matcher(segment);
+			while(attribute.find()) {
+				for(String name : attribute.group(2).trim().split("\\s+")) {
+					if(!name.isEmpty()) {
+						tokens.add((attribute.group(1).equals("id") ? "#" : ".") + name);
+					}//if
+					else {}//else
+				}//for
+			}//while
+		}//else if
+		else {}//else
+		return tokens;
+	}//tokens
+
+	/**
+	 * This method takes a CSS selector and returns the ids and classes it mentions.
+	 * @param selector The CSS selector in String format.
+	 * @return The Set<String> of "#id" and ".class" tokens.
+	 */
+	static Set<String> selectorTokens(String selector) {
+		Set<String> tokens = new TreeSet<String>();
+		Matcher token = CSS_TOKEN.matcher(selector);
+		while(token.find()) {
+			tokens.add(token.group(1) + token.group(2));
+		}//while
+		return tokens;
+	}//selectorTokens
+
+	/**
+	 * This method takes a given String and returns the first 96 bits of its SHA-256 hash in hex.
+	 * @param text The String being hashed.
+	 * @return The hash in String format.
+	 */
+	static String hash(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for(int i = 0; i < 12; i++) {
+				hex.append(String.format("%02x", digest[i]));
+			}//for
+			return hex.toString();
+		}//try
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}//catch
+	}//hash
+
+}//SiteFingerprint
@@ -0,0 +1,429 @@
+package todo_website_testing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+/**
+ * This class runs the page for a long time to find memory leaks. It loops add, check, filter and delete cycles through the
+ * Testing helpers for the given duration, and every few seconds samples the JS heap, the DOM node count, the number of
+ * event listeners and the resident memory of the browser processes. At the end, a line is fitted to each measure.
+ * A measure that grows steadily (a positive slope that fits the samples well) is flagged, and one that grew more than
+ * the allowed share over the soak is counted as an error. Firefox does not report its JS heap, so that column stays empty there,
+ * and resident memory is only read on Linux.
+ */
+public class SoakTest {
+
+	/** The time between samples. */
+	public static final long SAMPLE_MS = Long.getLong("soak.sample.ms", 5000L);
+
+	/** How well the fitted line has to explain the samples (R squared) for growth to count as steady. */
+	public static final double MIN_FIT = Double.parseDouble(System.getProperty("soak.min.r2", "0.6"));
+
+	/** The most a measure may grow over the soak, as a share of where its fitted line starts, before it is an error. */
+	public static final double MAX_GROWTH = Double.parseDouble(System.getProperty("soak.max.growth", "0.2"));
+
+	/** The errors found by the helpers after which the soak stops early. */
+	public static final int MAX_ERRORS = Integer.getInteger("soak.max.errors", 10);
+
+	/**
+	 * The script that counts the event listeners added from now on, by wrapping addEventListener and removeEventListener.
+	 * Targets are held weakly, so a listener on an element that was thrown away stops counting once the element is collected.
+	 */
+	static final String LISTENER_HOOK_SCRIPT =
+			"if (window.__todoListeners) { return; }"
+			+ "var state = window.__todoListeners = {targets: [], sets: new WeakMap()};"
+			+ "var add = EventTarget.prototype.addEventListener, remove = EventTarget.prototype.removeEventListener;"
+			+ "var key = function(type, options) { return type + ':' + !!(options === true || (options && options.capture)); };"
+			+ "EventTarget.prototype.addEventListener = function(type, listener, options) {"
+			+ "  if (listener) {"
+			+ "    var sets = state.sets.get(this);"
+			+ "    if (!sets) { sets = {}; state.sets.set(this, sets); if (window.WeakRef) { state.targets.push(new WeakRef(this)); } }"
+			+ "    var k = key(type, options);"
+			+ "    (sets[k] = sets[k] || new Set()).add(listener);"
+			+ "  }"
+			+ "  return add.call(this, type, listener, options);"
+			+ "};"
+			+ "EventTarget.prototype.removeEventListener = function(type, listener, options) {"
+			+ "  var sets = state.sets.get(this), k = key(type, options);"
+			+ "  if (sets && sets[k]) { sets[k].delete(listener); }"
+			+ "  return remove.call(this, type, listener, options);"
+			+ "};";
+
+	/**
+	 * The script that reads one sample. Dead listener targets are dropped as they are counted.
+	 */
+	static final String SAMPLE_SCRIPT =
+			"var state = window.__todoListeners, listeners = null;"
+			+ "if (state) {"
+			+ "  listeners = 0;"
+			+ "  state.targets = state.targets.filter(function(ref) {"
+			+ "    var target = ref.deref();"
+			+ "    if (!target) { return false; }"
+			+ "    var sets = state.sets.get(target);"
+			+ "    for (var k in sets) { listeners += sets[k].size; }"
+			+ "    return true;"
+			+ "  });"
+			+ "}"
+			+ "return {heap: (performance.memory ? performance.memory.usedJSHeapSize : null),"
+			+ "  domNodes: document.getElementsByTagName('*').length, listeners: listeners};";
+
+	/**
+	 * This class is one sample of the page and the browser.
+	 */
+	public static class Sample {
+		private final long elapsedMillis;
+		private final int cycles;
+		private final long heapBytes;
+		private final long domNodes;
+		private final long listeners;
+		private final long rssBytes;
+
+		Sample(long elapsedMillis, int cycles, long heapBytes, long domNodes, long listeners, long rssBytes) {
+			this.elapsedMillis = elapsedMillis;
+			this.cycles = cycles;
+			this.heapBytes = heapBytes;
+			this.domNodes = domNodes;
+			this.listeners = listeners;
+			this.rssBytes = rssBytes;
+		}//Sample
+
+		public long getElapsedMillis() { return elapsedMillis; }
+		public int getCycles() { return cycles; }
+		/** The used JS heap, or -1 if the browser does not report it. */
+		public long getHeapBytes() { return heapBytes; }
+		public long getDomNodes() { return domNodes; }
+		/** The event listeners added since the soak started and not removed, or -1 if they could not be counted. */
+		public long getListeners() { return listeners; }
+		/** The resident memory of the browser and its child processes, or -1 if it could not be read. */
+		public long getRssBytes() { return rssBytes; }
+	}//Sample
+
+	/**
+	 * This class is the line fitted to one measure over the soak.
+	 */
+	public static class Trend {
+		private final String measure;
+		private final double first;
+		private final double last;
+		private final double slopePerHour;
+		private final double fit;
+		private final double growth;
+
+		Trend(String measure, double first, double last, double slopePerHour, double fit, double growth) {
+			this.measure = measure;
+			this.first = first;
+			this.last = last;
+			this.slopePerHour = slopePerHour;
+			this.fit = fit;
+			this.growth = growth;
+		}//Trend
+
+		public String getMeasure() { return measure; }
+		public double getSlopePerHour() { return slopePerHour; }
+		/** How well the line explains the samples, from 0 to 1 (R squared). */
+		public double getFit() { return fit; }
+		/** The growth of the fitted line over the soak, as a share of where it starts. */
+		public double getGrowth() { return growth; }
+
+		/**
+		 * This method checks if the measure grew steadily over the soak.
+		 * @return True if the slope is positive and the line fits the samples well.
+		 */
+		public boolean isGrowing() {
+			return slopePerHour > 0 && fit >= MIN_FIT;
+		}//isGrowing
+
+		/**
+		 * This method checks if the measure grew steadily by more than MAX_GROWTH.
+		 * @return True if the growth is a leak.
+		 */
+		public boolean isLeak() {
+			return isGrowing() && growth > MAX_GROWTH;
+		}//isLeak
+
+		@Override
+		public String toString() {
+			String verdict = isLeak() ? "LEAK" : isGrowing() ? "growing" : "flat";
+			return String.format("  %-10s %14.0f %14.0f %14.1f/h  r2=%.2f  %+6.1f%%  %s", measure, first, last, slopePerHour, fit, growth * 100, verdict);
+		}//toString
+	}//Trend
+
+	private final long durationMillis;
+	private final List<Sample> samples = new ArrayList<Sample>();
+
+	/**
+	 * This constructor creates a soak of the given length.
+	 * @param durationMillis How long the cycles run for.
+	 */
+	public SoakTest(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}//SoakTest
+
+	/**
+	 * This method returns a scenario that soaks the page for the given number of minutes and writes its samples to the given file.
+	 * @param minutes How long the cycles run for.
+	 * @param report The path of the CSV file the samples are written to, or null to not write them.
+	 * @return The Scenario.
+	 */
+	public static Scenario scenario(int minutes, String report) {
+		return Scenario.longRunning("soak " + minutes + " min", driver -> {
+			SoakTest soak = new SoakTest(minutes * 60000L);
+			int errorCtr = soak.run(driver);
+			if(report != null) {
+				try {
+					soak.writeReport(report);
+				}//try
+				catch(IOException e) {
+					System.out.println("ERROR- Could not write the soak report. " + e.getMessage());
+				}//catch
+			}//if
+			else {}//else
+			return errorCtr;
+		});
+	}//scenario
+
+	/**
+	 * This method takes a given WebDriver showing a fresh page and runs cycles until the duration is up, sampling as it goes,
+	 * then prints the leak report.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The number of errors found in int format, including one for each measure that leaked.
+	 */
+	public int run(WebDriver driver) {
+		int errorCtr = 0;
+		((JavascriptExecutor) driver).executeScript(LISTENER_HOOK_SCRIPT);
+		long browserPid = getBrowserPid(driver);
+		long start = System.currentTimeMillis();
+		long nextSample = start;
+		int cycles = 0;
+		while(System.currentTimeMillis() - start < durationMillis && errorCtr < MAX_ERRORS) {
+			errorCtr += cycle(driver, cycles);
+			cycles++;
+			if(System.currentTimeMillis() >= nextSample) {
+				samples.add(sample(driver, System.currentTimeMillis() - start, cycles, browserPid));
+				nextSample += SAMPLE_MS;
+			}//if
+			else {}//else
+		}//while
+		samples.add(sample(driver, System.currentTimeMillis() - start, cycles, browserPid));
+		if(errorCtr >= MAX_ERRORS) {
+			System.out.println("Soak: stopped after " + cycles + " cycles, the helpers found " + errorCtr + " errors.");
+		}//if
+		else {}//else
+		List<Trend> trends = getTrends();
+		System.out.println("Soak: " + cycles + " cycles in " + ((System.currentTimeMillis() - start) / 1000) + " s, " + samples.size() + " samples.");
+		System.out.println(String.format("  %-10s %14s %14s %16s", "measure", "first", "last", "slope"));
+		for(Trend trend : trends) {
+			System.out.println(trend);
+			if(trend.isLeak()) {
+				errorCtr += Results.fail(trend.getMeasure() + " grew steadily by " + String.format("%.1f", trend.getGrowth() * 100)
+						+ "% over the soak.", "at most " + String.format("%.0f", MAX_GROWTH * 100) + "%", String.format("%.1f%%", trend.getGrowth() * 100));
+			}//if
+			else {}//else
+		}//for
+		return errorCtr;
+	}//run
+
+	/**
+	 * This method takes a given WebDriver on the "All" tab and does one cycle: add two tasks, complete one, check each filter
+	 * shows the right one, then delete both and check the list is empty again.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param cycle The number of the cycle, which makes its task texts unique.
+	 * @return The number of errors found in int format.
+	 */
+	static int cycle(WebDriver driver, int cycle) {
+		int errorCtr = 0;
+		String done = "soak done " + cycle;
+		String open = "soak open " + cycle;
+		errorCtr += Testing.addTask(driver, done);
+		errorCtr += Testing.clickCheckbox(driver, done);
+		errorCtr += Testing.addTask(driver, open);
+		errorCtr += Testing.confirmItemsLeft(driver);
+		errorCtr += Testing.clickTab(driver, "active");
+		errorCtr += Testing.confirmLastTodoListItem(driver, open);
+		errorCtr += Testing.clickTab(driver, "completed");
+		errorCtr += Testing.confirmLastTodoListItem(driver, done);
+		errorCtr += Testing.clickTab(driver, "all");
+		errorCtr += Testing.deleteItem(driver, done);
+		errorCtr += Testing.deleteItem(driver, open);
+		errorCtr += Testing.confirmEmptyState(driver, Scenarios.ALL_TAB_MSG);
+		return errorCtr;
+	}//cycle
+
+	/**
+	 * This method reads one sample from the page and the browser processes.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Sample sample(WebDriver driver, long elapsedMillis, int cycles, long browserPid) {
+		Map<String, Object> page = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(SAMPLE_SCRIPT);
+		return new Sample(elapsedMillis, cycles, toLong(page.get("heap")), toLong(page.get("domNodes")),
+				toLong(page.get("listeners")), getRssBytes(browserPid));
+	}//sample
+
+	private static long toLong(Object value) {
+		return (value instanceof Number) ? ((Number) value).longValue() : -1;
+	}//toLong
+
+	/**
+	 * This method takes a given WebDriver and returns the id of its browser process, which Firefox reports as moz:processID.
+	 * Only a FirefoxDriver started by this JVM runs on this machine. A plain RemoteWebDriver may point at a browser on
+	 * another machine, whose process id means nothing in the local /proc, so it gets none.
+	 * @return The process id, or -1 if the browser does not report it or is not local.
+	 */
+	static long getBrowserPid(WebDriver driver) {
+		WebDriver original = InstrumentedDriver.isInstrumented(driver) ? InstrumentedDriver.unwrap(driver) : driver;
+		if(!(original instanceof FirefoxDriver)) {
+			return -1;
+		}//if
+		else {}//else
+		try {
+			return toLong(((RemoteWebDriver) original).getCapabilities().getCapability("moz:processID"));
+		}//try
+		catch(WebDriverException e) {
+			return -1;
+		}//catch
+	}//getBrowserPid
+
+	/**
+	 * This method takes the id of the browser process and adds up the resident memory of it and every process under it,
+	 * read from /proc. The tabs run in child processes, so the browser process alone would miss the page's growth.
+	 * @return The resident memory in bytes, or -1 if it could not be read.
+	 */
+	static long getRssBytes(long browserPid) {
+		Path proc = Paths.get("/proc");
+		if(browserPid < 0 || !Files.isDirectory(proc)) {
+			return -1;
+		}//if
+		else {}//else
+		//find every descendant of the browser process from the parent ids in /proc/<pid>/stat
+		Map<Long, Long> parents = new HashMap<Long, Long>();
+		try(DirectoryStream<Path> entries = Files.newDirectoryStream(proc, "[0-9]*")) {
+			for(Path entry : entries) {
+				try {
+					String stat = new String(Files.readAllBytes(entry.resolve("stat")), StandardCharsets.UTF_8);
+					//the name in brackets can hold spaces, so the fields are counted from the closing bracket
+					String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+					parents.put(Long.parseLong(entry.getFileName().toString()), Long.parseLong(fields[1]));
+				}//try
+				catch(IOException | RuntimeException e) {
+					//the process ended while it was being read
+				}//catch
+			}//for
+		}//try
+		catch(IOException e) {
+			return -1;
+		}//catch
+		Set<Long> tree = new HashSet<Long>();
+		tree.add(browserPid);
+		boolean grew = true;
+		while(grew) {
+			grew = false;
+			for(Map.Entry<Long, Long> process : parents.entrySet()) {
+				if(tree.contains(process.getValue()) && tree.add(process.getKey())) {
+					grew = true;
+				}//if
+				else {}//else
+			}//for
+		}//while
+		long total = 0;
+		for(long pid : tree) {
+			try {
+				for(String line : Files.readAllLines(proc.resolve(String.valueOf(pid)).resolve("status"), StandardCharsets.UTF_8)) {
+					if(line.startsWith("VmRSS:")) {
+						total += Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024L;
+					}//if
+					else {}//else
+				}//for
+			}//try
+			catch(IOException | RuntimeException e) {
+				//the process ended while it was being read
+			}//catch
+		}//for
+		return (total > 0) ? total : -1;
+	}//getRssBytes
+
+	/**
+	 * This method fits a line to each measure that was sampled.
+	 * @return The List<Trend>, one for each measure with at least three samples.
+	 */
+	public List<Trend> getTrends() {
+		List<Trend> trends = new ArrayList<Trend>();
+		addTrend(trends, "heap", Sample::getHeapBytes);
+		addTrend(trends, "domNodes", Sample::getDomNodes);
+		addTrend(trends, "listeners", Sample::getListeners);
+		addTrend(trends, "rss", Sample::getRssBytes);
+		return trends;
+	}//getTrends
+
+	/**
+	 * This method fits a least squares line to the samples of one measure against time, skipping samples it was missing from.
+	 */
+	private void addTrend(List<Trend> trends, String measure, ToLongFunction<Sample> value) {
+		List<double[]> points = new ArrayList<double[]>();
+		for(Sample sample : samples) {
+			if(value.applyAsLong(sample) >= 0) {
+				points.add(new double[] {sample.getElapsedMillis() / 3600000.0, value.applyAsLong(sample)});
+			}//if
+			else {}//else not reported
+		}//for
+		if(points.size() < 3) {
+			return;
+		}//if
+		else {}//else
+		double meanX = 0, meanY = 0;
+		for(double[] point : points) {
+			meanX += point[0];
+			meanY += point[1];
+		}//for
+		meanX /= points.size();
+		meanY /= points.size();
+		double sxx = 0, sxy = 0, syy = 0;
+		for(double[] point : points) {
+			sxx += (point[0] - meanX) * (point[0] - meanX);
+			sxy += (point[0] - meanX) * (point[1] - meanY);
+			syy += (point[1] - meanY) * (point[1] - meanY);
+		}//for
+		double slope = (sxx > 0) ? sxy / sxx : 0;
+		double fit = (sxx > 0 && syy > 0) ? (sxy * sxy) / (sxx * syy) : 0;
+		double startX = points.get(0)[0], endX = points.get(points.size() - 1)[0];
+		double fittedStart = meanY + slope * (startX - meanX);
+		double growth = (fittedStart > 0) ? slope * (endX - startX) / fittedStart : 0;
+		trends.add(new Trend(measure, points.get(0)[1], points.get(points.size() - 1)[1], slope, fit, growth));
+	}//addTrend
+
+	/**
+	 * This method writes every sample to a CSV file, to plot the soak.
+	 * @param file The path of the file in String format.
+	 * @throws IOException If the file could not be written.
+	 */
+	public void writeReport(String file) throws IOException {
+		StringBuilder csv = new StringBuilder("elapsed_ms,cycles,heap_bytes,dom_nodes,listeners,rss_bytes\n");
+		for(Sample sample : samples) {
+			csv.append(sample.getElapsedMillis()).append(',').append(sample.getCycles()).append(',')
+					.append(cell(sample.getHeapBytes())).append(',').append(sample.getDomNodes()).append(',')
+					.append(cell(sample.getListeners())).append(',').append(cell(sample.getRssBytes())).append('\n');
+		}//for
+		Files.write(Paths.get(file), csv.toString().getBytes(StandardCharsets.UTF_8));
+	}//writeReport
+
+	private static String cell(long value) {
+		return (value >= 0) ? String.valueOf(value) : "";
+	}//cell
+
+	public List<Sample> getSamples() { return samples; }
+
+}//SoakTest
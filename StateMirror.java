@@ -0,0 +1,345 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * This class keeps a copy of the todo page state in the JVM, updated from the changes the page reports instead of read
+ * again after every action. A MutationObserver installed once per page notes which list items changed, which were removed,
+ * and whether anything outside the list changed. Each sync sends back only those items, and the filter tabs and counters
+ * if they changed, so a check costs one round-trip sized by what changed rather than by the length of the list.
+ * The copy is a linked list of items indexed by id, so applying a change does not depend on the length of the list either,
+ * and a snapshot's items are only listed when a check reads them.
+ * The observer is installed again by the first sync after a reload, which starts the copy over.
+ * When installed, TodoSnapshot.take reads from here, so every confirm helper uses the copy.
+ */
+public class StateMirror {
+
+	/** Every how many syncs the copy is checked against a full read of the page, or 0 to never check. */
+	public static final int VERIFY_EVERY = Integer.getInteger("mirror.verify.every", 0);
+
+	/**
+	 * The script that installs the observer if the page has none yet, then sends back what changed since the last sync.
+	 * Checkbox clicks change a property, not the markup, so change events on the list mark their item as well.
+	 * An attribute change on the list or above it can change which items are shown, so it sends every item again.
+	 */
+	static final String SYNC_SCRIPT =
+			Locators.RESOLVER
+			+ "var m = window.__todoMirror;"
+			+ "if (!m) {"
+			+ "  m = window.__todoMirror = {list: one('todoList'), ids: new WeakMap(), next: 1, dirty: new Set(), removed: [], all: true, chrome: true};"
+			+ "  var itemOf = function(node) {"
+			+ "    while (node && node.parentNode !== m.list) { node = node.parentNode; }"
+			+ "    return node;"
+			+ "  };"
+			+ "  m.note = function(records) {"
+			+ "    for (var r = 0; r < records.length; r++) {"
+			+ "      var record = records[r], target = record.target;"
+			+ "      if (!m.list || !m.list.isConnected) { m.all = true; m.chrome = true; }"
+			+ "      else if (target === m.list && record.type === 'childList') {"
+			+ "        for (var a = 0; a < record.addedNodes.length; a++) { if (record.addedNodes[a].nodeType === 1) { m.dirty.add(record.addedNodes[a]); } }"
+			+ "        for (var d = 0; d < record.removedNodes.length; d++) {"
+			+ "          var gone = record.removedNodes[d];"
+			+ "          m.dirty.delete(gone);"
+			+ "          if (m.ids.has(gone)) { m.removed.push(m.ids.get(gone)); m.ids.delete(gone); }"
+			+ "        }"
+			+ "      }"
+			+ "      else if (target.nodeType === 1 && target.contains(m.list)) {"
+			+ "        if (record.type === 'attributes') { m.all = true; }"
+			+ "        m.chrome = true;"
+			+ "      }"
+			+ "      else {"
+			+ "        var item = itemOf(target);"
+			+ "        if (item) { m.dirty.add(item); } else { m.chrome = true; }"
+			+ "      }"
+			+ "    }"
+			+ "  };"
+			+ "  m.observer = new MutationObserver(m.note);"
+			+ "  m.observer.observe(document.documentElement, {childList: true, subtree: true, attributes: true, characterData: true});"
+			+ "  var mark = function(e) { var item = itemOf(e.target); if (item) { m.dirty.add(item); } };"
+			+ "  document.addEventListener('change', mark, true);"
+			+ "  document.addEventListener('input', mark, true);"
+			+ "}"
+			+ "m.note(m.observer.takeRecords());"
+			+ "if (!m.list || !m.list.isConnected) { m.list = one('todoList'); m.ids = new WeakMap(); m.all = true; m.chrome = true; }"
+			+ "var text = function(e) { return e ? (e.innerText || e.textContent || '').trim() : null; };"
+			+ "var shown = function(e) { return !!(e && e.getClientRects().length > 0); };"
+			+ "var isItem = function(e) { return e.nodeType === 1 && e.parentNode === m.list"
+			+ "  && __registry.todoItems.some(function(s) { return e.matches(s); }); };"
+			+ "var idOf = function(e) { var id = m.ids.get(e); if (!id) { id = m.next++; m.ids.set(e, id); } return id; };"
+			+ "var reset = m.all, targets;"
+			+ "if (reset) { targets = m.list ? Array.prototype.filter.call(m.list.children, isItem) : []; }"
+			+ "else {"
+			+ "  targets = Array.from(m.dirty).filter(isItem);"
+			+ "  targets.sort(function(a, b) { return (a.compareDocumentPosition(b) & Node.DOCUMENT_POSITION_FOLLOWING) ? -1 : 1; });"
+			+ "}"
+			+ "var items = [];"
+			+ "for (var i = 0; i < targets.length; i++) {"
+			+ "  var li = targets[i], before = li.previousElementSibling;"
+			+ "  while (before && !isItem(before)) { before = before.previousElementSibling; }"
+			+ "  var box = one('itemCheckbox', li);"
+			+ "  items.push({id: idOf(li), after: before ? idOf(before) : 0, element: li, text: text(li),"
+			+ "    hasCheckbox: box != null, checked: !!(box && box.checked), displayed: shown(li)});"
+			+ "}"
+			+ "var chrome = null;"
+			+ "if (m.chrome) {"
+			+ "  var tabs = [], spans = all('filterTabs');"
+			+ "  for (var j = 0; j < spans.length; j++) {"
+			+ "    tabs.push({element: spans[j], text: text(spans[j]),"
+			+ "      filter: spans[j].getAttribute('data-filter'), className: spans[j].getAttribute('class')});"
+			+ "  }"
+			+ "  var empty = one('emptyState'), icon = one('emptyStateIcon'), message = one('emptyStateMessage');"
+			+ "  chrome = {tabs: tabs, emptyStateClass: empty ? empty.getAttribute('class') : null,"
+			+ "    iconClass: icon ? icon.getAttribute('class') : null, messageId: message ? message.getAttribute('id') : null,"
+			+ "    messageText: text(message), itemsLeftText: text(one('itemsLeft'))};"
+			+ "}"
+			+ "var removed = reset ? [] : m.removed;"
+			+ "m.dirty = new Set(); m.removed = []; m.all = false; m.chrome = false;"
+			+ "return {reset: reset, removed: removed, items: items, chrome: chrome, locators: used};";
+
+	/**
+	 * The script that makes the next sync send the whole page again.
+	 */
+	static final String RESET_SCRIPT =
+			"if (window.__todoMirror) { window.__todoMirror.all = true; window.__todoMirror.chrome = true; }";
+
+	private static volatile boolean installed;
+
+	/**
+	 * The copy for each WebDriver session. Sessions that are no longer referenced drop out on their own.
+	 */
+	private static final Map<WebDriver, StateMirror> MIRRORS = Collections.synchronizedMap(new WeakHashMap<WebDriver, StateMirror>());
+
+	private static final AtomicLong SYNCS = new AtomicLong();
+	private static final AtomicLong ITEMS_SENT = new AtomicLong();
+	private static final AtomicLong ITEMS_MIRRORED = new AtomicLong();
+	private static final AtomicLong DRIFTS = new AtomicLong();
+
+	/**
+	 * This class is one item of the copy, linked to the items before and after it in list order.
+	 */
+	private static class Node {
+		private TodoSnapshot.TodoItem item;
+		private Node previous;
+		private Node next;
+	}//Node
+
+	/** The items by id. Each one is found, taken out and put back after another in constant time, whatever the length of the list. */
+	private final Map<Long, Node> nodes = new HashMap<Long, Node>();
+	/** The ends of the list: its next is the first item and its previous the last, or itself if the list is empty. */
+	private final Node ends = new Node();
+	/** Counts the changes to the items, so a snapshot can tell the copy moved on after it was taken. */
+	private long version;
+	private List<TodoSnapshot.FilterTab> tabs = new ArrayList<TodoSnapshot.FilterTab>();
+	private Map<String, Object> chrome = new HashMap<String, Object>();
+	private TodoSnapshot snapshot;
+	private int syncs;
+
+	StateMirror() {
+		ends.previous = ends;
+		ends.next = ends;
+	}//StateMirror
+
+	/**
+	 * This method turns the mirror on for every session, or off.
+	 * @param on True to have TodoSnapshot.take read from the mirror.
+	 */
+	public static void install(boolean on) {
+		installed = on;
+		if(!on) {
+			MIRRORS.clear();
+		}//if
+		else {}//else
+	}//install
+
+	/**
+	 * This method checks if the mirror is turned on.
+	 * @return True if TodoSnapshot.take reads from the mirror.
+	 */
+	public static boolean isInstalled() {
+		return installed;
+	}//isInstalled
+
+	/**
+	 * This method takes a given WebDriver and brings its copy of the page up to date with one round-trip.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The TodoSnapshot of the current page, built from the copy.
+	 */
+	public static TodoSnapshot snapshot(WebDriver driver) {
+		StateMirror mirror = MIRRORS.computeIfAbsent(driver, key -> new StateMirror());
+		synchronized(mirror) {
+			return mirror.sync(driver);
+		}//synchronized
+	}//snapshot
+
+	/**
+	 * This method reads the changes since the last sync and applies them. Removals go first, then each changed item is put
+	 * after the item before it, in page order, so the item before it is always already in place.
+	 * Each change costs the same however long the list is, and the snapshot's items are only built if a check reads them.
+	 */
+	@SuppressWarnings("unchecked")
+	private TodoSnapshot sync(WebDriver driver) {
+		Map<String, Object> raw = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(SYNC_SCRIPT, Locators.asScriptArgument());
+		Locators.recordUsage((Map<String, Object>) raw.get("locators"));
+		SYNCS.incrementAndGet();
+		boolean changed = Boolean.TRUE.equals(raw.get("reset"));
+		boolean itemsChanged = changed;
+		if(changed) {
+			nodes.clear();
+			ends.previous = ends;
+			ends.next = ends;
+		}//if
+		else {}//else
+		for(Object removed : (List<Object>) raw.get("removed")) {
+			Node node = nodes.remove(((Number) removed).longValue());
+			if(node != null) {
+				unlink(node);
+			}//if
+			else {}//else
+			changed = true;
+			itemsChanged = true;
+		}//for
+		List<Object> rawItems = (List<Object>) raw.get("items");
+		ITEMS_SENT.addAndGet(rawItems.size());
+		for(Object rawItem : rawItems) {
+			Map<String, Object> item = (Map<String, Object>) rawItem;
+			long id = ((Number) item.get("id")).longValue();
+			long after = ((Number) item.get("after")).longValue();
+			Node node = nodes.get(id);
+			if(node != null) {
+				unlink(node);
+			}//if
+			else {
+				node = new Node();
+				nodes.put(id, node);
+			}//else
+			node.item = new TodoSnapshot.TodoItem(0, (String) item.get("text"), Boolean.TRUE.equals(item.get("hasCheckbox")),
+					Boolean.TRUE.equals(item.get("checked")), Boolean.TRUE.equals(item.get("displayed")), (WebElement) item.get("element"));
+			//an item the copy does not know goes first, as it did when its position was looked up and not found
+			Node before = (after == 0) ? ends : nodes.getOrDefault(after, ends);
+			linkAfter(node, before);
+			changed = true;
+			itemsChanged = true;
+		}//for
+		if(itemsChanged) {
+			version++;
+		}//if
+		else {}//else
+		Map<String, Object> rawChrome = (Map<String, Object>) raw.get("chrome");
+		if(rawChrome != null) {
+			tabs = new ArrayList<TodoSnapshot.FilterTab>();
+			for(Object rawTab : (List<Object>) rawChrome.get("tabs")) {
+				Map<String, Object> tab = (Map<String, Object>) rawTab;
+				tabs.add(new TodoSnapshot.FilterTab((String) tab.get("text"), (String) tab.get("filter"),
+						(String) tab.get("className"), (WebElement) tab.get("element")));
+			}//for
+			chrome = rawChrome;
+			changed = true;
+		}//if
+		else {}//else
+		//nothing changed, so the last snapshot still holds
+		if(changed || snapshot == null) {
+			snapshot = build();
+		}//if
+		else {}//else
+		ITEMS_MIRRORED.addAndGet(nodes.size());
+		syncs++;
+		if(VERIFY_EVERY > 0 && syncs % VERIFY_EVERY == 0) {
+			return verify(driver);
+		}//if
+		else {
+			return snapshot;
+		}//else
+	}//sync
+
+	private static void unlink(Node node) {
+		node.previous.next = node.next;
+		node.next.previous = node.previous;
+	}//unlink
+
+	private static void linkAfter(Node node, Node before) {
+		node.previous = before;
+		node.next = before.next;
+		before.next.previous = node;
+		before.next = node;
+	}//linkAfter
+
+	/**
+	 * This method builds a TodoSnapshot from the copy. Its items are built when they are first read, from the copy as it is
+	 * at this version; the filter tabs and counters are already whole objects, so they are passed as they are.
+	 */
+	private TodoSnapshot build() {
+		long taken = version;
+		return new TodoSnapshot(() -> items(taken), tabs, (String) chrome.get("emptyStateClass"), (String) chrome.get("iconClass"),
+				(String) chrome.get("messageId"), (String) chrome.get("messageText"), (String) chrome.get("itemsLeftText"));
+	}//build
+
+	/**
+	 * This method lists the items of the copy in list order, numbered from 0, for a snapshot taken at the given version.
+	 * The copy keeps no earlier versions, so a snapshot has to be read before the next sync of its session that changes the items.
+	 * @throws IllegalStateException If the items changed since the snapshot was taken.
+	 */
+	private synchronized List<TodoSnapshot.TodoItem> items(long taken) {
+		if(taken != version) {
+			throw new IllegalStateException("The state mirror changed since this snapshot was taken. Read its items before the next take.");
+		}//if
+		else {}//else
+		List<TodoSnapshot.TodoItem> list = new ArrayList<TodoSnapshot.TodoItem>(nodes.size());
+		for(Node node = ends.next; node != ends; node = node.next) {
+			TodoSnapshot.TodoItem item = node.item;
+			list.add(new TodoSnapshot.TodoItem(list.size(), item.getText(), item.hasCheckbox(), item.isChecked(), item.isDisplayed(), item.getElement()));
+		}//for
+		return list;
+	}//items
+
+	/**
+	 * This method reads the whole page and checks the copy matches it. If it does not, the difference is recorded as an
+	 * error, the next sync sends the whole page again, and the full read is returned so the check in progress is right.
+	 */
+	private TodoSnapshot verify(WebDriver driver) {
+		TodoSnapshot full = TodoSnapshot.read(driver);
+		String expected = describe(full), actual = describe(snapshot);
+		if(expected.equals(actual)) {
+			return snapshot;
+		}//if
+		else {
+			DRIFTS.incrementAndGet();
+			Results.fail("State mirror does not match the page.", expected, actual);
+			((JavascriptExecutor) driver).executeScript(RESET_SCRIPT);
+			return full;
+		}//else
+	}//verify
+
+	/**
+	 * This method returns everything the helpers check in a snapshot as one String, to compare two snapshots.
+	 */
+	private static String describe(TodoSnapshot snapshot) {
+		StringBuilder text = new StringBuilder();
+		for(TodoSnapshot.TodoItem item : snapshot.getItems()) {
+			text.append('[').append(item.getText()).append(item.hasCheckbox() ? (item.isChecked() ? " x" : " o") : "")
+					.append(item.isDisplayed() ? "" : " hidden").append(']');
+		}//for
+		for(TodoSnapshot.FilterTab tab : snapshot.getTabs()) {
+			text.append(" tab ").append(tab.getFilter()).append('=').append(tab.getClassName());
+		}//for
+		return text.append(" empty=").append(snapshot.getEmptyStateClass()).append('/').append(snapshot.getIconClass())
+				.append('/').append(snapshot.getMessageId()).append(" \"").append(snapshot.getMessageText())
+				.append("\" left=\"").append(snapshot.getItemsLeftText()).append('"').toString();
+	}//describe
+
+	/**
+	 * This method prints how many syncs were done and how many items they sent, against how many a full read would have sent.
+	 */
+	public static void printSummary() {
+		System.out.println("State mirror: " + SYNCS.get() + " syncs sent " + ITEMS_SENT.get() + " items, a full read each time would have sent "
+				+ ITEMS_MIRRORED.get() + ((DRIFTS.get() > 0) ? ". " + DRIFTS.get() + " did not match the page." : "."));
+	}//printSummary
+
+}//StateMirror
@@ -0,0 +1,243 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class is a scenario compiled from a scenario file. Each step calls one Testing helper.
+ * Read-only assertions next to each other are merged into one group that is checked against a single TodoSnapshot,
+ * so a run of five assertions costs one read of the page instead of five.
+ */
+public class StepPlan implements Scenario {
+
+	/**
+	 * This class is one step of a plan: either an action on the page, or a group of assertions that share one snapshot.
+	 */
+	public static class Step {
+		private final List<String> source;
+		private final ToIntFunction<WebDriver> action;
+		private final List<ToIntFunction<TodoSnapshot>> assertions;
+
+		private Step(List<String> source, ToIntFunction<WebDriver> action, List<ToIntFunction<TodoSnapshot>> assertions) {
+			this.source = source;
+			this.action = action;
+			this.assertions = assertions;
+		}//Step
+
+		/**
+		 * This method returns the lines of the scenario file this step was compiled from.
+		 * @return The List<String> of source lines.
+		 */
+		public List<String> getSource() { return source; }
+
+		/**
+		 * This method checks if this step is a group of assertions.
+		 * @return True if the step only reads the page, false if it acts on it.
+		 */
+		public boolean isAssertionGroup() { return action == null; }
+
+		/**
+		 * This method takes a given WebDriver and runs the step.
+		 * @param driver The WebDriver being used for the automation.
+		 * @return The number of errors found in int format.
+		 */
+		public int run(WebDriver driver) {
+			if(action != null) {
+				return action.applyAsInt(driver);
+			}//if
+			else {
+				//read the page once for the whole group
+				TodoSnapshot snapshot = TodoSnapshot.take(driver);
+				int errorCtr = 0;
+				for(ToIntFunction<TodoSnapshot> assertion : assertions) {
+					errorCtr += assertion.applyAsInt(snapshot);
+				}//for
+				return errorCtr;
+			}//else
+		}//run
+	}//Step
+
+	private final String name;
+	private final List<Step> steps;
+
+	StepPlan(String name, List<Step> steps) {
+		this.name = name;
+		this.steps = Collections.unmodifiableList(steps);
+	}//StepPlan
+
+	@Override
+	public String getName() {
+		return name;
+	}//getName
+
+	/**
+	 * This method returns the compiled steps of the plan.
+	 * @return The List<Step> in the order they run.
+	 */
+	public List<Step> getSteps() {
+		return steps;
+	}//getSteps
+
+	/**
+	 * This method returns a hash of the scenario file lines the plan was compiled from, so an edited plan can be told from the old one.
+	 * @return The hash in String format.
+	 */
+	public String getSourceHash() {
+		StringBuilder source = new StringBuilder();
+		for(Step step : steps) {
+			for(String line : step.getSource()) {
+				source.append(line).append('\n');
+			}//for
+		}//for
+		return SiteFingerprint.hash(source.toString());
+	}//getSourceHash
+
+	@Override
+	public int run(WebDriver driver) {
+		int errorCtr = 0;
+		for(Step step : steps) {
+			//put the errors of the step under its lines in the scenario file
+			Results.beginStep(String.join("; ", step.getSource()));
+			errorCtr += step.run(driver);
+		}//for
+		Results.beginStep(null);
+		return errorCtr;
+	}//run
+
+	/**
+	 * This class builds a plan one command at a time, merging assertions next to each other as they are added.
+	 */
+	static class Builder {
+		private final String name;
+		private final List<Step> steps = new ArrayList<Step>();
+		private List<String> groupSource;
+		private List<ToIntFunction<TodoSnapshot>> group;
+
+		Builder(String name) {
+			this.name = name;
+		}//Builder
+
+		/**
+		 * This method takes a command and its argument and adds the step it maps to.
+		 * @param line The source line, kept for the plan's listing.
+		 * @param command The name of the Testing helper.
+		 * @param argument The argument of the command, or null if it has none.
+		 * @throws IllegalArgumentException If the command is unknown, or its argument is missing.
+		 */
+		void add(String line, String command, String argument) {
+			switch(command) {
+			case "addTask":
+				action(line, driver -> Testing.addTask(driver, argument));
+				break;
+			case "clickTab":
+				action(line, driver -> Testing.clickTab(driver, argument));
+				break;
+			case "clickCheckbox":
+				action(line, driver -> Testing.clickCheckbox(driver, argument));
+				break;
+			case "deleteItem":
+				action(line, driver -> Testing.deleteItem(driver, argument));
+				break;
+			case "confirmActiveTab":
+				assertion(line, snapshot -> Testing.confirmActiveTab(snapshot, argument));
+				break;
+			case "confirmEmptyState":
+				assertion(line, snapshot -> Testing.confirmEmptyState(snapshot, emptyStateMessage(argument)));
+				break;
+			case "confirmItemsLeft":
+				assertion(line, snapshot -> Testing.confirmItemsLeft(snapshot));
+				break;
+			case "confirmLastTodoListItem":
+				assertion(line, snapshot -> Testing.confirmLastTodoListItem(snapshot, argument));
+				break;
+			case "confirmChecked":
+				assertion(line, snapshot -> Testing.confirmChecked(snapshot, argument));
+				break;
+			case "confirmUnchecked":
+				assertion(line, snapshot -> Testing.confirmUnchecked(snapshot, argument));
+				break;
+			case "confirmDeleted":
+				assertion(line, snapshot -> confirmDeleted(snapshot, argument));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown step \"" + command + "\".");
+			}//switch
+			//every step but confirmItemsLeft has an argument, checked now so a bad file fails when it is loaded
+			if(!command.equals("confirmItemsLeft")) {
+				require(command, argument);
+			}//if
+			else {}//else
+		}//add
+
+		StepPlan build() {
+			closeGroup();
+			return new StepPlan(name, new ArrayList<Step>(steps));
+		}//build
+
+		private void action(String line, ToIntFunction<WebDriver> action) {
+			closeGroup();
+			steps.add(new Step(Collections.singletonList(line), action, null));
+		}//action
+
+		private void assertion(String line, ToIntFunction<TodoSnapshot> assertion) {
+			if(group == null) {
+				groupSource = new ArrayList<String>();
+				group = new ArrayList<ToIntFunction<TodoSnapshot>>();
+			}//if
+			else {}//else
+			groupSource.add(line);
+			group.add(assertion);
+		}//assertion
+
+		private void closeGroup() {
+			if(group != null) {
+				steps.add(new Step(Collections.unmodifiableList(groupSource), null, Collections.unmodifiableList(group)));
+				group = null;
+				groupSource = null;
+			}//if
+			else {}//else
+		}//closeGroup
+	}//Builder
+
+	/**
+	 * This method takes a given TodoSnapshot and confirms no item with the given text is in it.
+	 * @param snapshot The TodoSnapshot of the page being checked.
+	 * @param elementPath The text of the deleted todo item in String format.
+	 * @return The int returns 0 if the item is gone, and 1 if it is still shown.
+	 */
+	static int confirmDeleted(TodoSnapshot snapshot, String elementPath) {
+		if(snapshot.getItem(elementPath) != null) {
+			return Results.fail("Todo item \"" + elementPath + "\" was not deleted.");
+		}//if
+		else {
+			return 0;
+		}//else
+	}//confirmDeleted
+
+	/**
+	 * This method takes the argument of confirmEmptyState and returns the message it expects.
+	 * The names of the tabs stand for their empty state messages, and anything else is the message itself.
+	 */
+	private static String emptyStateMessage(String argument) {
+		switch(argument.toLowerCase()) {
+		case "all":
+			return Scenarios.ALL_TAB_MSG;
+		case "active":
+			return Scenarios.ACTIVE_TAB_MSG;
+		case "completed":
+			return Scenarios.COMPLETED_TAB_MSG;
+		default:
+			return argument;
+		}//switch
+	}//emptyStateMessage
+
+	private static void require(String command, String argument) {
+		if(argument == null || argument.isEmpty()) {
+			throw new IllegalArgumentException("Step \"" + command + "\" needs an argument.");
+		}//if
+		else {}//else
+	}//require
+
+}//StepPlan
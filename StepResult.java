@@ -0,0 +1,137 @@
+package todo_website_testing;
+import java.util.Locale;
+
+/**
+ * This class is one failed check: the step it happened in, what was checked, what was expected and what was found.
+ * Results records one for every error, and errorCtr totals are counted from them.
+ * A performance budget exceeded is recorded as a result of its own kind. It is counted as an error too,
+ * unless budgets were set to be reported only.
+ */
+public class StepResult {
+
+	/** The kind of a failed functional check. */
+	public static final String STEP = "step";
+	/** The kind of a performance budget exceeded. */
+	public static final String BUDGET = "budget";
+
+	private final String kind;
+	private final boolean error;
+	private final String scenario;
+	private final int attempt;
+	private final String step;
+	private final String helper;
+	private final String assertion;
+	private final String expected;
+	private final String actual;
+	private final double durationMillis;
+	private final String artifacts;
+	private final String thread;
+	private final long timestamp;
+
+	StepResult(String kind, boolean error, String scenario, int attempt, String step, String helper, String assertion, Object expected, Object actual, double durationMillis, String artifacts) {
+		this.kind = kind;
+		this.error = error;
+		this.scenario = scenario;
+		this.attempt = attempt;
+		this.step = step;
+		this.helper = helper;
+		this.assertion = assertion;
+		this.expected = (expected != null) ? expected.toString() : null;
+		this.actual = (actual != null) ? actual.toString() : null;
+		this.durationMillis = durationMillis;
+		this.artifacts = artifacts;
+		this.thread = Thread.currentThread().getName();
+		this.timestamp = System.currentTimeMillis();
+	}//StepResult
+
+	/** STEP for a failed check, or BUDGET for a performance budget exceeded. */
+	public String getKind() { return kind; }
+	/** True if this is a performance budget exceeded, rather than a failed check. */
+	public boolean isBudget() { return BUDGET.equals(kind); }
+	/** True if this result is counted as an error: every failed check, and a budget exceeded unless budgets are only reported. */
+	public boolean isError() { return error; }
+	/** The scenario the check ran in, or null if it ran outside of one. */
+	public String getScenario() { return scenario; }
+	/** The run of the scenario the check ran in, starting at 1, or 0 if it ran outside of one. */
+	public int getAttempt() { return attempt; }
+	/** The step the check ran in: a scenario file line, or the Testing helper that made the check. */
+	public String getStep() { return step; }
+	/** The Testing helper that made the check, the same name its WebDriver commands are timed under in DriverMetrics. */
+	public String getHelper() { return helper; }
+	public String getAssertion() { return assertion; }
+	/** The expected value, or null if the check has none. */
+	public String getExpected() { return expected; }
+	/** The value found on the page, or null if the check has none. */
+	public String getActual() { return actual; }
+	/** The time from the start of the step, or the previous result in it, to this result. */
+	public double getDurationMillis() { return durationMillis; }
+	/** The path of the manifest of the page captured for this result, relative to the results folder, or null if none was taken. */
+	public String getArtifacts() { return artifacts; }
+	public String getThread() { return thread; }
+	public long getTimestamp() { return timestamp; }
+
+	/**
+	 * This method returns the result as the line printed to the console.
+	 * @return The message in String format.
+	 */
+	public String toMessage() {
+		StringBuilder message = new StringBuilder(isBudget() ? "BUDGET- " : "ERROR- ");
+		if(scenario != null) {
+			message.append('[').append(scenario).append(", run ").append(attempt).append("] ");
+		}//if
+		else {}//else
+		message.append(assertion);
+		if(expected != null || actual != null) {
+			message.append(" Expected \"").append(expected).append("\", found \"").append(actual).append("\".");
+		}//if
+		else {}//else
+		return message.toString();
+	}//toMessage
+
+	/**
+	 * This method returns the result as one JSON object on one line.
+	 * @return The result in JSON format.
+	 */
+	public String toJson() {
+		return "{\"type\":" + quote(kind) + ",\"error\":" + error + ",\"scenario\":" + quote(scenario) + ",\"attempt\":" + attempt + ",\"step\":" + quote(step)
+				+ ",\"helper\":" + quote(helper) + ",\"assertion\":" + quote(assertion) + ",\"expected\":" + quote(expected) + ",\"actual\":" + quote(actual)
+				+ ",\"durationMs\":" + String.format(Locale.ROOT, "%.3f", durationMillis) + ",\"artifacts\":" + quote(artifacts)
+				+ ",\"thread\":" + quote(thread) + ",\"timestamp\":" + timestamp + "}";
+	}//toJson
+
+	/**
+	 * This method takes a given String and returns it as a JSON string, or null.
+	 * @param value The String being quoted.
+	 * @return The JSON string in String format.
+	 */
+	static String quote(String value) {
+		if(value == null) {
+			return "null";
+		}//if
+		else {}//else
+		StringBuilder json = new StringBuilder("\"");
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			}//if
+			else if(c == '\n') {
+				json.append("\\n");
+			}//else if
+			else if(c == '\r') {
+				json.append("\\r");
+			}//else if
+			else if(c == '\t') {
+				json.append("\\t");
+			}//else if
+			else if(c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			}//else if
+			else {
+				json.append(c);
+			}//else
+		}//for
+		return json.append('"').toString();
+	}//quote
+
+}//StepResult
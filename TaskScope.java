@@ -0,0 +1,154 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class runs a group of tasks that belong together and makes sure none outlives the group.
+ * Tasks are forked into the scope, join waits for all of them, and the first task to fail cancels the others.
+ * Closing the scope cancels whatever is still running, so an early return or exception never leaves tasks behind.
+ * A scope opened with open is also the current scope of its thread, which AsyncTesting forks its calls into.
+ * <pre>
+ * try(TaskScope scope = TaskScope.open(Workers.shared())) {
+ *     CompletableFuture&lt;TodoSnapshot&gt; first = scope.fork(() -&gt; TodoSnapshot.take(firstDriver));
+ *     CompletableFuture&lt;TodoSnapshot&gt; second = scope.fork(() -&gt; TodoSnapshot.take(secondDriver));
+ *     scope.join();
+ * }
+ * </pre>
+ */
+public class TaskScope implements AutoCloseable {
+
+	private static final ThreadLocal<TaskScope> CURRENT = new ThreadLocal<TaskScope>();
+
+	private final ExecutorService executor;
+	private final List<Future<?>> running = new ArrayList<Future<?>>();
+	private final List<CompletableFuture<?>> results = new ArrayList<CompletableFuture<?>>();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	/**
+	 * This constructor creates a scope whose tasks run on the given executor.
+	 * @param executor The ExecutorService the tasks are submitted to. The scope does not shut it down.
+	 */
+	public TaskScope(ExecutorService executor) {
+		this.executor = executor;
+	}//TaskScope
+
+	/**
+	 * This method creates a scope and makes it the current scope of this thread until it is closed.
+	 * @param executor The ExecutorService the tasks are submitted to. The scope does not shut it down.
+	 * @return The new TaskScope.
+	 */
+	public static TaskScope open(ExecutorService executor) {
+		TaskScope scope = new TaskScope(executor);
+		CURRENT.set(scope);
+		return scope;
+	}//open
+
+	/**
+	 * This method returns the scope opened on this thread.
+	 * @return The current TaskScope, or null if none is open.
+	 */
+	public static TaskScope current() {
+		return CURRENT.get();
+	}//current
+
+	/**
+	 * This method starts the given task in the scope.
+	 * @param task The Callable being run.
+	 * @return The CompletableFuture of its result. It is cancelled if another task fails first.
+	 */
+	public synchronized <T> CompletableFuture<T> fork(Callable<T> task) {
+		if(failure.get() != null) {
+			throw new IllegalStateException("A task in this scope already failed.", failure.get());
+		}//if
+		else {}//else
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		results.add(result);
+		running.add(executor.submit(() -> {
+			try {
+				result.complete(task.call());
+			}//try
+			catch(Throwable e) {
+				result.completeExceptionally(e);
+				fail(e);
+			}//catch
+		}));
+		return result;
+	}//fork
+
+	/**
+	 * This method records the first failure and cancels every other task.
+	 */
+	private void fail(Throwable e) {
+		if(failure.compareAndSet(null, e)) {
+			cancelAll();
+		}//if
+		else {}//else
+	}//fail
+
+	private synchronized void cancelAll() {
+		for(CompletableFuture<?> result : results) {
+			result.cancel(true);
+		}//for
+		for(Future<?> task : running) {
+			task.cancel(true);
+		}//for
+	}//cancelAll
+
+	/**
+	 * This method waits for every task in the scope to finish or be cancelled.
+	 * @throws ExecutionException If a task failed, with the first failure as its cause.
+	 * @throws InterruptedException If the waiting thread was interrupted. The tasks are cancelled first.
+	 */
+	public void join() throws ExecutionException, InterruptedException {
+		List<Future<?>> toWait;
+		synchronized(this) {
+			toWait = new ArrayList<Future<?>>(running);
+		}//synchronized
+		try {
+			for(Future<?> task : toWait) {
+				try {
+					task.get();
+				}//try
+				catch(CancellationException e) {
+					//cancelled after another task failed
+				}//catch
+			}//for
+		}//try
+		catch(InterruptedException e) {
+			cancelAll();
+			throw e;
+		}//catch
+		if(failure.get() != null) {
+			throw new ExecutionException(failure.get());
+		}//if
+		else {}//else
+	}//join
+
+	/**
+	 * This method returns the first failure in the scope.
+	 * @return The Throwable of the first task that failed, or null if none has.
+	 */
+	public Throwable getFailure() {
+		return failure.get();
+	}//getFailure
+
+	/**
+	 * This method cancels every task that is still running, and stops being the current scope of this thread.
+	 */
+	@Override
+	public void close() {
+		cancelAll();
+		if(CURRENT.get() == this) {
+			CURRENT.remove();
+		}//if
+		else {}//else
+	}//close
+
+}//TaskScope
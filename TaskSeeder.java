@@ -0,0 +1,138 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.List;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class fills the todo list with many tasks at once for load scenarios, instead of calling addTask for each one.
+ * Tasks are added through the page's own add path (input value, then the add button) from inside the browser,
+ * so the site stores and renders them exactly as it would for a user. A single snapshot read then verifies the result.
+ */
+public class TaskSeeder {
+
+	/** The number of tasks added per script call, so very large seeds stay under the script timeout. */
+	public static final int CHUNK_SIZE = Integer.getInteger("seed.chunk", 2000);
+
+	/**
+	 * The script that adds a chunk of tasks through the input bar and add button, and checks every Nth one.
+	 * Arguments are the task texts, the index of the first task in the whole seed, and N (0 for none).
+	 */
+	static final String SEED_SCRIPT =
+			"var tasks = arguments[0], offset = arguments[1], completedEvery = arguments[2];"
+			+ "var input = document.getElementById('task-input'), button = document.getElementById('button-add-task');"
+			+ "var list = document.getElementById('todos-list');"
+			+ "for (var i = 0; i < tasks.length; i++) {"
+			+ "  input.value = tasks[i];"
+			+ "  input.dispatchEvent(new Event('input', {bubbles: true}));"
+			+ "  button.click();"
+			+ "  if (completedEvery > 0 && (offset + i) % completedEvery == completedEvery - 1) {"
+			+ "    var box = list.lastElementChild && list.lastElementChild.querySelector('.todo-checkbox');"
+			+ "    if (box) { box.click(); }"
+			+ "  }"
+			+ "}"
+			+ "return list.children.length;";
+
+	/**
+	 * This class holds how a seed went.
+	 */
+	public static class SeedResult {
+		private final int requested;
+		private final int rendered;
+		private final long seedMillis;
+		private final long reloadMillis;
+
+		SeedResult(int requested, int rendered, long seedMillis, long reloadMillis) {
+			this.requested = requested;
+			this.rendered = rendered;
+			this.seedMillis = seedMillis;
+			this.reloadMillis = reloadMillis;
+		}//SeedResult
+
+		public int getRequested() { return requested; }
+		/** The number of list items on the page when the last chunk was added, before any reload. */
+		public int getRendered() { return rendered; }
+		public long getSeedMillis() { return seedMillis; }
+		/** How long the reload took, or 0 if the page was not reloaded. */
+		public long getReloadMillis() { return reloadMillis; }
+
+		@Override
+		public String toString() {
+			return "Seeded " + requested + " tasks in " + seedMillis + " ms (" + rendered + " rendered)"
+					+ ((reloadMillis > 0) ? ", reloaded in " + reloadMillis + " ms" : "") + ".";
+		}//toString
+	}//SeedResult
+
+	/**
+	 * This method takes a given number and returns that many distinct task texts.
+	 * @param count The number of tasks.
+	 * @param prefix The text every task starts with, followed by its number.
+	 * @return The List<String> of task texts.
+	 */
+	public static List<String> generate(int count, String prefix) {
+		List<String> tasks = new ArrayList<String>(count);
+		for(int i = 0; i < count; i++) {
+			tasks.add(prefix + i);
+		}//for
+		return tasks;
+	}//generate
+
+	/**
+	 * This method takes a given WebDriver and adds every given task to the list, then optionally reloads the page.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param tasks The List<String> of task texts, added in order.
+	 * @param completedEvery Check every Nth task (2 checks half of them), or 0 to leave them all active.
+	 * @param reload True to reload the page afterwards, so the list is rendered from what the site stored.
+	 * @return The SeedResult with the timings.
+	 */
+	public static SeedResult seed(WebDriver driver, List<String> tasks, int completedEvery, boolean reload) {
+		long start = System.nanoTime();
+		int rendered = 0;
+		for(int offset = 0; offset < tasks.size(); offset += CHUNK_SIZE) {
+			List<String> chunk = tasks.subList(offset, Math.min(offset + CHUNK_SIZE, tasks.size()));
+			Object count = ((JavascriptExecutor) driver).executeScript(SEED_SCRIPT, new ArrayList<String>(chunk), offset, completedEvery);
+			rendered = ((Number) count).intValue();
+		}//for
+		TodoItemIndex.invalidate(driver);
+		long seedMillis = (System.nanoTime() - start) / 1000000L;
+
+		long reloadMillis = 0;
+		if(reload) {
+			long reloadStart = System.nanoTime();
+			driver.navigate().refresh();
+			Testing.waitForPageReady(driver);
+			TodoItemIndex.invalidate(driver);
+			reloadMillis = (System.nanoTime() - reloadStart) / 1000000L;
+		}//if
+		else {}//else
+		return new SeedResult(tasks.size(), rendered, seedMillis, reloadMillis);
+	}//seed
+
+	/**
+	 * This method takes a given WebDriver and checks, with one snapshot read, that the list shows exactly the seeded tasks.
+	 * Every difference is recorded as its own result.
+	 * @param driver The WebDriver being used for the automation, showing the "All" tab.
+	 * @param tasks The List<String> of task texts that were seeded.
+	 * @param completedEvery The same value that was given to seed.
+	 * @return The number of errors found in int format.
+	 */
+	public static int verify(WebDriver driver, List<String> tasks, int completedEvery) {
+		int errorCtr = 0;
+		TodoSnapshot snapshot = TodoSnapshot.take(driver);
+		if(snapshot.getTaskListSize() != tasks.size()) {
+			errorCtr += Results.fail("Seeded list has the wrong number of tasks.", tasks.size(), snapshot.getTaskListSize());
+		}//if
+		else {}//else
+		for(int i = 0; i < Math.min(tasks.size(), snapshot.getTaskListSize()); i++) {
+			TodoSnapshot.TodoItem item = snapshot.getItems().get(i);
+			boolean completed = completedEvery > 0 && i % completedEvery == completedEvery - 1;
+			if(!item.getText().equals(tasks.get(i)) || item.isChecked() != completed) {
+				errorCtr += Results.fail("Seeded task " + i + " is not shown as seeded.", tasks.get(i) + (completed ? " (completed)" : " (active)"),
+						item.getText() + (item.isChecked() ? " (completed)" : " (active)"));
+			}//if
+			else {}//else
+		}//for
+		return errorCtr;
+	}//verify
+
+}//TaskSeeder
@@ -1,23 +1,42 @@
 package todo_website_testing;
-import java.util.Iterator;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 
 public class Testing {
 	
+	/** The url of the live to-do site. */
+	public static final String REMOTE_PAGE = "https://ngo500.github.io/todo_website/";
+	
 	/**
 	 * This method creates options for a new firefox session, and returns the created driver.
 	 * @return The WebDriver created to used for this session.
 	 */
 	public static WebDriver startSession() {
+		return startSession(LaunchProfile.full());
+	}//startSession
+	
+	/**
+	 * This method creates options for a new firefox session from the given launch profile, and returns the created driver.
+	 * The time the session took to start is recorded on the profile.
+	 * @param profile The LaunchProfile describing how firefox is launched.
+	 * @return The WebDriver created to used for this session.
+	 */
+	public static WebDriver startSession(LaunchProfile profile) {
+		long start = System.nanoTime();
 		//create options for firefox
-		FirefoxOptions options = new FirefoxOptions();
+		FirefoxOptions options = profile.toOptions();
 		//set up a new driver to open firefox
 		WebDriver driver = new FirefoxDriver(options);
+		profile.recordStartup((System.nanoTime() - start) / 1000000L);
 		return driver;
 	}//startSession
 	
@@ -26,6 +45,8 @@ public class Testing {
 	 * @param driver The WebDriver with a current session open.
 	 */
 	public static void endSession(WebDriver driver) {
+		//drop the item index for this session
+		TodoItemIndex.invalidate(driver);
 		//end the WebDriver session
 		driver.quit();
 	}//endSession
@@ -38,8 +59,22 @@ public class Testing {
 	public static void openWebPage(WebDriver driver, String page) {
 		//open the page using given url in String format
 		driver.get(page);
+		//the handles and index of the page before are gone with it
+		TodoItemIndex.invalidate(driver);
 	}//openWebPage
 	
+	/**
+	 * This method takes a given WebDriver and returns how long the current page took to first paint.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The first contentful paint time in milliseconds, or -1 if the browser did not report one.
+	 */
+	public static long getFirstPaintMillis(WebDriver driver) {
+		Object paint = ((JavascriptExecutor) driver).executeScript(
+				"var paint = performance.getEntriesByName('first-contentful-paint')[0];"
+				+ "return paint ? Math.round(paint.startTime) : -1;");
+		return ((Number) paint).longValue();
+	}//getFirstPaintMillis
+	
 	/**
 	 * This method takes a given WebDriver and returns the title of the web page in String format.
 	 * @param driver The WebDriver being used for the automation.
@@ -56,10 +91,8 @@ public class Testing {
 	 * @return The List<WebElement> of all tabs.
 	 */
 	public static List<WebElement> getFilterTabList(WebDriver driver){
-		//set path of filters
-		String elementPath = "html/body/div/div[2]/span";
-		//save filters in a List of WebElements
-		List<WebElement> tabList = driver.findElements(By.xpath(elementPath));
+		//find the filters through the locator registry
+		List<WebElement> tabList = Locators.findAll(driver, Locators.FILTER_TABS);
 		return tabList;
 	}//getFilterTabList
 	
@@ -69,10 +102,8 @@ public class Testing {
 	 * @return The List<WebElement> of all list items.
 	 */
 	public static List<WebElement> getTodoItemList(WebDriver driver){
-		//set path of todo items
-		String elementPath = "//*[@id=\"todos-list\"]/li";
-		//save filters in a List of WebElements
-		List<WebElement> tabList = driver.findElements(By.xpath(elementPath));
+		//find the todo items through the locator registry
+		List<WebElement> tabList = Locators.findAll(driver, Locators.TODO_ITEMS);
 		return tabList;
 	}//getTodoItemList
 	
@@ -83,11 +114,11 @@ public class Testing {
 	 * If the List<WebElement> is empty, returns a null WebElement.
 	 */
 	public static WebElement getLastTodoListItem(WebDriver driver) {
-		//call getTodoItemList to get the items
-		List<WebElement> itemList = getTodoItemList(driver);
+		//read the list once and take the last item
+		TodoSnapshot.TodoItem lastItem = TodoSnapshot.take(driver).getLastItem();
 		WebElement lastTodoListItem;
-		if(itemList.size() > 0) {
-			lastTodoListItem = itemList.get(itemList.size() - 1);
+		if(lastItem != null) {
+			lastTodoListItem = lastItem.getElement();
 		}//if
 		else {
 			lastTodoListItem = null;
@@ -103,30 +134,15 @@ public class Testing {
 	 * If the WebElement is not found, returns a null WebElement.
 	 */
 	public static WebElement getSpecificTodoListItem(WebDriver driver, String givenItem) {
-		//call getTodoItemList to get the items
-		List<WebElement> itemList = getTodoItemList(driver);
+		//look the item up in the session index by its text
+		TodoItemIndex.Entry item = TodoItemIndex.get(driver).getItem(givenItem);
 		WebElement getTodoListItem;
-		if(itemList.size() > 0) {
-			//iterators to go through list
-			Iterator<WebElement> a1 = itemList.iterator();
-			Iterator<WebElement> a2 = itemList.iterator();
-			
-			//while there are still items to check,
-			while(a1.hasNext() && a2.hasNext()) {
-				//check if the current tab is the active tab
-				if(a2.next().getText().equals(givenItem)) {
-					//active filter, return tab name
-					getTodoListItem = a1.next();
-					return getTodoListItem;
-				}//if
-				else {
-					//else, not the active filter, keep going
-					a1.next();
-				}//else
-			}//while
+		if(item != null) {
+			getTodoListItem = item.getElement();
 		}//if
-		else {}//else
-		getTodoListItem = null;
+		else {
+			getTodoListItem = null;
+		}//else
 		return getTodoListItem;
 	}//getSpecificTodoListItem
 	
@@ -134,9 +150,10 @@ public class Testing {
 	 * This method takes a given WebElement list item and returns its corresponding checkmark.
 	 * @param currentEle The given WebElement that is a todo list item.
 	 * @return The corresponding checkmark of the todo list item in WebElement format.
+	 * If no checkmark is found, returns a null WebElement.
 	 */
 	public static WebElement getTodoListItemCheckmark(WebElement currentEle) {
-		return currentEle.findElement(By.className("checkmark"));
+		return Locators.findIn(currentEle, Locators.ITEM_CHECKMARK);
 	}//getTodoListItemCheckbox
 	
 	/**
@@ -158,35 +175,8 @@ public class Testing {
 	 * @return The size of the active task list in int format. Returns 0 if the active list is empty.
 	 */
 	public static int getActiveTaskListSize(WebDriver driver) {
-		int size = 0;
-		
-		//call getTodoItemList to get the items
-		List<WebElement> itemList = getTodoItemList(driver);
-		
-		if(itemList.size() > 0) {
-			//iterators to go through list
-			Iterator<WebElement> a1 = itemList.iterator();
-			Iterator<WebElement> a2 = itemList.iterator();
-			
-			//while there are still items to check,
-			while(a1.hasNext() && a2.hasNext()) {
-				//check if the current item is active
-				//if active, add to new list
-				String elementPath = a1.next().getText();
-				WebElement temp = getSpecificTodoListItem(driver, elementPath);
-				if(temp.findElement(By.className("todo-checkbox")) != null) {
-					temp = temp.findElement(By.className("todo-checkbox"));
-					if(confirmCheckmarkNotClicked(temp) == 0) {
-						size++;
-					}//if
-					else {}//else not active, skip
-				}//if
-				else {}//else
-			}//while
-		}//if
-		else {}//else	
-		
-		return size;
+		//read the list once and count the unchecked items in memory
+		return TodoSnapshot.take(driver).getActiveTaskListSize();
 	}//getActiveTaskListSize
 	
 	/**
@@ -195,28 +185,8 @@ public class Testing {
 	 * @return The name of the active tab in String format. If no active filter is found, ERROR is returned in String format.
 	 */
 	public static String getActiveFilterTab(WebDriver driver) {
-		//call getFilterList to get the filters
-		List<WebElement> tabList = getFilterTabList(driver);
-		
-		//iterators to go through list
-		Iterator<WebElement> a1 = tabList.iterator();
-		Iterator<WebElement> a2 = tabList.iterator();
-		
-		//while there are still tabs to check,
-		while(a1.hasNext() && a2.hasNext()) {
-			//check if the current tab is the active tab
-			if(a2.next().getAttribute("class").equals("filter active")) {
-				//active filter, return tab name
-				return a1.next().getText();
-			}//if
-			else {
-				//else, not the active filter, keep going
-				a1.next();
-			}//else
-		}//while
-		
-		//didn't find the active filter, return error string
-		return "ERROR";
+		//read the tabs once and find the one with the active class
+		return TodoSnapshot.take(driver).getActiveFilterTab();
 	}//getActiveFilterTab
 	
 	/**
@@ -226,29 +196,16 @@ public class Testing {
 	 * @return The WebElement of the tab. If no matching tab filter is found, a null WebElement is returned.
 	 */
 	public static WebElement getSpecificFilterTab(WebDriver driver, String tab) {
-		//call getFilterList to get the filters
-		List<WebElement> tabList = getFilterTabList(driver);
-		
-		//iterators to go through list
-		Iterator<WebElement> a1 = tabList.iterator();
-		Iterator<WebElement> a2 = tabList.iterator();
-				
-		//while there are still tabs to check,
-		while(a1.hasNext() && a2.hasNext()) {
-			//check if the current tab is matching tab being searched for
-			if(a2.next().getAttribute("data-filter").equals(tab)) {
-				//matching tab, return tab
-				return a1.next();
-			}//if
-			else {
-				//else, not the matching tab filter, keep going
-				a1.next();
-			}//else
-		}//while
-				
-		//didn't find the active filter, return error
-		WebElement error = null;
-		return error;
+		//read the tabs once and find the one with the matching data-filter
+		TodoSnapshot.FilterTab filterTab = TodoSnapshot.take(driver).getTab(tab);
+		if(filterTab != null) {
+			return filterTab.getElement();
+		}//if
+		else {
+			//didn't find the matching filter, return error
+			WebElement error = null;
+			return error;
+		}//else
 	}//getSpecificFilterTab
 	
 	/**
@@ -258,6 +215,7 @@ public class Testing {
 	 * @return The WebElement that matches the given ID.
 	 */
 	public static WebElement setElementById(WebDriver driver, String elementId) {
+		ImpactMap.touchId(elementId);
 		return driver.findElement(By.id(elementId));
 	}//setElementById
 	
@@ -268,6 +226,7 @@ public class Testing {
 	 * @return The WebElement that matches the given class.
 	 */
 	public static WebElement setElementByClass(WebDriver driver, String className) {
+		ImpactMap.touchClass(className);
 		return driver.findElement(By.className(className));
 	}//setElementByClass
 	
@@ -410,6 +369,21 @@ public class Testing {
 		return errorCount;
 	}//confirmInputBarText
 	
+	/**
+	 * This method takes the given input text, read from an input bar, and confirms it is null or empty.
+	 * @param value The text read from the input bar.
+	 * @return The int that shows the result of the comparison. 
+	 * The int is 0 if the text is empty, and a 1 if it is not.
+	 */
+	public static int confirmInputBarTextEmpty(String value) {
+		int errorCount = 0;
+		if(!(value == null || value.isEmpty())){
+			errorCount++;
+		}//if
+		else {}//else
+		return errorCount;
+	}//confirmInputBarTextEmpty
+	
 	/**
 	 * This method takes a given WebElement that is a todo list item from the todo list and returns the text in String format.
 	 * @param currentEle The given WebElement to get the text from.
@@ -428,8 +402,7 @@ public class Testing {
 	public static int confirmCheckmarkClicked(WebElement currentEle) {
 		int errorCount = 0;
 		if(!(currentEle.isSelected())){
-			System.out.println("ERROR- Checkbox is not clicked, but should be clicked.");
-			errorCount++;
+			errorCount += Results.fail("Checkbox is not clicked, but should be clicked.", true, false);
 		}//if
 		else {}//else
 		return errorCount;
@@ -444,8 +417,7 @@ public class Testing {
 	public static int confirmCheckmarkNotClicked(WebElement currentEle) {
 		int errorCount = 0;
 		if(currentEle.isSelected()){
-			System.out.println("ERROR- Checkbox is clicked, but should not be clicked.");
-			errorCount++;
+			errorCount += Results.fail("Checkbox is clicked, but should not be clicked.", false, true);
 		}//if
 		else {}//else
 		return errorCount;
@@ -459,10 +431,20 @@ public class Testing {
 	 * The int is 0 if the active tab is correct, and a 1 if it does not match.
 	 */
 	public static int confirmActiveTab(WebDriver driver, String elementPath) {
-		String currentTab = getActiveFilterTab(driver);
+		return confirmActiveTab(TodoSnapshot.take(driver), elementPath);
+	}//confirmActiveTab
+	
+	/**
+	 * This method takes a given TodoSnapshot and confirms the active tab matches the given String.
+	 * @param snapshot The TodoSnapshot of the page being checked.
+	 * @param elementPath The String being used to confirm the current tab.
+	 * @return The int that shows the result of the comparison. 
+	 * The int is 0 if the active tab is correct, and a 1 if it does not match.
+	 */
+	public static int confirmActiveTab(TodoSnapshot snapshot, String elementPath) {
+		String currentTab = snapshot.getActiveFilterTab();
 		if(confirmTabName(currentTab, elementPath) > 0) {
-			System.out.println("ERROR- Default tab is not correct.");
-			return 1;
+			return Results.fail("Default tab is not correct.", elementPath, currentTab);
 		}//if
 		else {
 			return 0;
@@ -477,17 +459,31 @@ public class Testing {
 	 * The int is 0 if the tab was clicked correctly, and a 1 if the correct tab was not clicked.
 	 */
 	public static int clickTab(WebDriver driver, String elementPath) {
-		WebElement currentEle = getSpecificFilterTab(driver, elementPath);
-		elementPath = elementPath.substring(0, 1).toUpperCase() + elementPath.substring(1);
-		if(confirmTabName(currentEle.getText(), elementPath) > 0) {
-			System.out.println("ERROR- Found tab is not correct.");
-			return 1;
+		String tab = elementPath;
+		String tabName = elementPath.substring(0, 1).toUpperCase() + elementPath.substring(1);
+		//find the tab and click it if it is the right one, finding it again if the handle goes stale
+		String[] foundName = {null};
+		WebElement currentEle = Retry.act(driver, "clickTab", d -> getSpecificFilterTab(d, tab), ele -> {
+			foundName[0] = ele.getText();
+			if(confirmTabName(foundName[0], tabName) == 0) {
+				clickElement(ele);
+			}//if
+			else {}//else
+		});
+		if(currentEle == null) {
+			return Results.fail("Tab \"" + tab + "\" is not found.");
 		}//if
+		else if(confirmTabName(foundName[0], tabName) > 0) {
+			return Results.fail("Found tab is not correct.", tabName, foundName[0]);
+		}//else if
 		else {
-			clickElement(currentEle);
-			if(confirmTabName(currentEle.getText(), elementPath) > 0) {
-				System.out.println("ERROR- Clicked tab is not correct.");
-				return 1;
+			//the list is re-rendered for the new filter
+			TodoItemIndex.invalidate(driver);
+			Waits.waitForSettle(driver, "clickTab");
+			//time how long the new filter took to render, if the run is being profiled
+			PerfProfiler.step(driver, "clickTab");
+			if(confirmTabName(currentEle.getText(), tabName) > 0) {
+				return Results.fail("Clicked tab is not correct.", tabName, currentEle.getText());
 			}//if
 			else {
 				return 0;
@@ -502,46 +498,49 @@ public class Testing {
 	 * @return The int is 0 if the empty state is shown correctly, and greater than 0 if there were errors in the empty state.
 	 */
 	public static int confirmEmptyState(WebDriver driver, String tabName) {
+		//read the page once, then check the empty state in memory
+		return confirmEmptyState(TodoSnapshot.take(driver), tabName);
+	}//confirmEmptyState
+	
+	/**
+	 * This method takes a given TodoSnapshot and String name of the active tab and confirms the snapshot shows an empty state.
+	 * @param snapshot The TodoSnapshot of the page being checked.
+	 * @param tabName The name of the current tab being checked empty state, in String format.
+	 * @return The int is 0 if the empty state is shown correctly, and greater than 0 if there were errors in the empty state.
+	 */
+	public static int confirmEmptyState(TodoSnapshot snapshot, String tabName) {
 		//set error counter
 		int errorCtr = 0;
-		//call setElementById to find the element that displays the empty state
+		//check the element that displays the empty state
 		String elementPath = "empty-state";
-		WebElement currentEle = setElementByClass(driver, elementPath);
-		if(confirmElementByClass(currentEle, elementPath) > 0){
-			errorCtr++;
-			System.out.println("ERROR- Empty state is not shown. " + currentEle.getAttribute("class") + " is shown.");
+		if(confirmMessageText(String.valueOf(snapshot.getEmptyStateClass()), elementPath) > 0){
+			errorCtr += Results.fail("Empty state is not shown.", elementPath, snapshot.getEmptyStateClass());
 		}//if
 		else {}//else
 
-		//call setElementByXPath to find the element that displays the clipboard picture
-		elementPath = "/html/body/div/div[3]/div/i";
-		currentEle = setElementByXPath(driver, elementPath);
+		//check the element that displays the clipboard picture
 		elementPath = "fas fa-clipboard-list";
-		if(confirmElementByClass(currentEle, elementPath) > 0){
-			errorCtr++;
-			System.out.println("ERROR- Clipboard art is not shown. " + currentEle.getAttribute("class") + " is shown.");
+		if(confirmMessageText(String.valueOf(snapshot.getIconClass()), elementPath) > 0){
+			errorCtr += Results.fail("Clipboard art is not shown.", elementPath, snapshot.getIconClass());
 		}//if
 		else {}//else
 
-		//call setElementById to find the element that displays the no tasks message
+		//check the element that displays the no tasks message
 		elementPath = "empty-task-message";
-		currentEle = setElementById(driver, elementPath);
-		if(confirmElementById(currentEle, elementPath) > 0){
-			errorCtr++;
-			System.out.println("ERROR- Empty tasks message is not shown. " + currentEle.getAttribute("id") + " is shown.");
+		if(confirmMessageText(String.valueOf(snapshot.getMessageId()), elementPath) > 0){
+			errorCtr += Results.fail("Empty tasks message is not shown.", elementPath, snapshot.getMessageId());
 		}//if
 		else {
 			//check if the correct message is displayed
 			elementPath = tabName;
-			if(confirmMessageText(currentEle.getText(), elementPath) > 0) {
-				errorCtr++;
-				System.out.println("ERROR- Incorrect message shown. \"" + currentEle.getText() + "\" is the incorrect message.");
+			if(confirmMessageText(snapshot.getMessageText(), elementPath) > 0) {
+				errorCtr += Results.fail("Incorrect message shown.", elementPath, snapshot.getMessageText());
 			}//if
 			else {}//else
 		}//else
 
 		//check "active items left" is shown
-		errorCtr += confirmItemsLeft(driver);
+		errorCtr += confirmItemsLeft(snapshot);
 		
 		return errorCtr;
 	}//confirmEmptyState
@@ -552,34 +551,41 @@ public class Testing {
 	 * @return The int is 0 if the message is displayed correctly, and 1 if the message is not displayed correctly.
 	 */
 	public static int confirmItemsLeft(WebDriver driver) {
+		//read the page once, then count and check the message in memory
+		return confirmItemsLeft(TodoSnapshot.take(driver));
+	}//confirmItemsLeft
+	
+	/**
+	 * This method takes a given TodoSnapshot and confirms the "active item left" message is shown correctly.
+	 * @param snapshot The TodoSnapshot of the page being checked.
+	 * @return The int is 0 if the message is displayed correctly, and 1 if the message is not displayed correctly.
+	 */
+	public static int confirmItemsLeft(TodoSnapshot snapshot) {
 		int errorCtr = 0;
-		int size = getActiveTaskListSize(driver);
-		String elementPath = "items-left";
-		WebElement currentEle = setElementById(driver, elementPath);
+		int size = snapshot.getActiveTaskListSize();
+		String itemsLeftText = String.valueOf(snapshot.getItemsLeftText());
+		String elementPath;
 		if(size == 1) {
 			//check "1 active item left" is shown
 			elementPath = "1 active item left";
-			if(confirmMessageText(currentEle.getText(), elementPath) > 0) {
-				errorCtr++;
-				System.out.println("ERROR- 1 active item left message is not shown.");
+			if(confirmMessageText(itemsLeftText, elementPath) > 0) {
+				errorCtr += Results.fail("1 active item left message is not shown.", elementPath, itemsLeftText);
 			}//if
 			else {}//else
 		}//if
 		else if(size > 1) {
 			//check ">1 active items left" is shown
 			elementPath = size + " active items left";
-			if(confirmMessageText(currentEle.getText(), elementPath) > 0) {
-				errorCtr++;
-				System.out.println("ERROR- " + size + " active items left message is not shown.");
+			if(confirmMessageText(itemsLeftText, elementPath) > 0) {
+				errorCtr += Results.fail(size + " active items left message is not shown.", elementPath, itemsLeftText);
 			}//if
 			else {}//else
 		}//else if
 		else{
 			//check "0 active items left" is shown
 			elementPath = "0 active items left";
-			if(confirmMessageText(currentEle.getText(), elementPath) > 0) {
-				errorCtr++;
-				System.out.println("ERROR- 0 active items left message is not shown.");
+			if(confirmMessageText(itemsLeftText, elementPath) > 0) {
+				errorCtr += Results.fail("0 active items left message is not shown.", elementPath, itemsLeftText);
 			}//if
 			else {}//else
 		}//else
@@ -595,82 +601,88 @@ public class Testing {
 	public static int addTask(WebDriver driver, String taskMsg) {
 		//set int to store errors
 		int errorCtr = 0;
-		//click text bar
-		String elementPath = "task-input";
-		WebElement currentEle = setElementById(driver, elementPath);
+		String placeholder = "What task would you like to add to your to-do list?";
+		//read the text bar, its text and placeholder, and the add button in one call
+		BatchRead.Result inputBar = new BatchRead()
+				.byId("input", "task-input", "element")
+				.byId("value", "task-input", "value")
+				.byId("placeholder", "task-input", "placeholder")
+				.byId("button", "button-add-task", "element")
+				.read(driver);
+		WebElement currentEle = inputBar.getElement("input");
 
 		//confirm there is nothing in the input bar before clicking
-		if(confirmInputBarTextEmpty(currentEle) > 0) {
-			errorCtr++;
-			System.out.println("ERROR- Incorrect message shown. \"" + currentEle.getText() + "\" is the incorrect message.");
+		if(confirmInputBarTextEmpty(inputBar.getString("value")) > 0) {
+			errorCtr += Results.fail("Input bar is not empty before clicking.", "", inputBar.getString("value"));
 		}//if
 		else {
 			//confirm placeholder text is correct before clicking
-			elementPath = "What task would you like to add to your to-do list?";
-			if(confirmPlaceholderText(currentEle, elementPath)  > 0) {
-				errorCtr++;
-				System.out.println("ERROR- Placeholder text is not correct.");
+			String elementPath = placeholder;
+			if(confirmMessageText(String.valueOf(inputBar.getString("placeholder")), elementPath) > 0) {
+				errorCtr += Results.fail("Placeholder text is not correct.", elementPath, inputBar.getString("placeholder"));
 			}//if
 			else {}//else
 			
 			clickElement(currentEle);
-			//make sure placeholder text is still correct after clicking but before input
-			if(confirmPlaceholderText(currentEle, elementPath)  > 0) {
-				errorCtr++;
-				System.out.println("ERROR- Placeholder text is not correct.");
+			//make sure placeholder text is still correct and the input bar is still empty after clicking but before input
+			BatchRead.Result clicked = new BatchRead()
+					.byId("value", "task-input", "value")
+					.byId("placeholder", "task-input", "placeholder")
+					.read(driver);
+			if(confirmMessageText(String.valueOf(clicked.getString("placeholder")), elementPath) > 0) {
+				errorCtr += Results.fail("Placeholder text is not correct after clicking.", elementPath, clicked.getString("placeholder"));
 			}//if
 			else {}//else
-			//make sure input bar text is still empty after clicking but before input
-			if(confirmInputBarTextEmpty(currentEle) > 0) {
-				errorCtr++;
-				System.out.println("ERROR- Incorrect message shown. \"" + currentEle.getText() + "\" is the incorrect message.");
+			if(confirmInputBarTextEmpty(clicked.getString("value")) > 0) {
+				errorCtr += Results.fail("Input bar is not empty after clicking.", "", clicked.getString("value"));
 			}//if
 			else {
 				//input "wash the car" into text bar
 				elementPath = taskMsg;
 				sendText(currentEle, elementPath);
 				//check the input text is in the bar
-				if(confirmInputBarText(currentEle, elementPath) > 0) {
-					errorCtr++;
-					System.out.println("ERROR- Incorrect message shown. \"" + currentEle.getText() + "\" is the incorrect message.");
+				String typed = new BatchRead().byId("value", "task-input", "value").read(driver).getString("value");
+				if(confirmMessageText(String.valueOf(typed), elementPath) > 0) {
+					errorCtr += Results.fail("Typed text is not in the input bar.", elementPath, typed);
 				}//if
 				else {
 					//press add button
-					elementPath = "button-add-task";
-					currentEle = setElementById(driver, elementPath);
-					clickElement(currentEle);
+					clickElement(inputBar.getElement("button"));
+					//the list has a new item
+					TodoItemIndex.invalidate(driver);
+					Waits.waitForSettle(driver, "addTask");
+					//time how long the new item took to render, if the run is being profiled
+					PerfProfiler.step(driver, "addTask");
+					
+					//read the input bar and the last todo item in one call
+					BatchRead.Result added = new BatchRead()
+							.byId("value", "task-input", "value")
+							.byId("placeholder", "task-input", "placeholder")
+							.byCss("last", "#todos-list > li:last-child", "text")
+							.read(driver);
 					
 					//check that the input bar is cleared after add button is pressed
-					elementPath = "task-input";
-					currentEle = setElementById(driver, elementPath);
-					if(confirmInputBarTextEmpty(currentEle) > 0) {
-						errorCtr++;
-						System.out.println("ERROR- Incorrect message shown. \"" + currentEle.getText() + "\" is the incorrect message.");
+					if(confirmInputBarTextEmpty(added.getString("value")) > 0) {
+						errorCtr += Results.fail("Input bar is not cleared after adding.", "", added.getString("value"));
 					}//if
 					else {}//else
 					
 					//confirm placeholder text is correct again
-					elementPath = "What task would you like to add to your to-do list?";
-					if(confirmPlaceholderText(currentEle, elementPath)  > 0) {
-						errorCtr++;
-						System.out.println("ERROR- Placeholder text is not correct.");
+					elementPath = placeholder;
+					if(confirmMessageText(String.valueOf(added.getString("placeholder")), elementPath) > 0) {
+						errorCtr += Results.fail("Placeholder text is not correct after adding.", elementPath, added.getString("placeholder"));
 					}//if
 					else {}//else
 					
 					//confirm "wash the car" is shown
-					currentEle = getLastTodoListItem(driver);
-					if(currentEle == null) {
-						errorCtr++;
-						System.out.println("ERROR- Todo list is empty.");
+					elementPath = taskMsg;
+					if(added.getString("last") == null) {
+						errorCtr += Results.fail("Todo list is empty.", elementPath, null);
 					}//if
-					else {
-						elementPath = taskMsg;
-						if(confirmMessageText(getTodoItemText(currentEle), elementPath) > 0) {
-							errorCtr++;
-							System.out.println("ERROR- Incorrect todo item shown. \"" + getTodoItemText(currentEle) + "\" is the incorrect message.");
-						}//if
-						else {}//else
-					}//else
+					else if(confirmMessageText(added.getString("last"), elementPath) > 0) {
+						errorCtr += Results.fail("Incorrect todo item shown.", elementPath, added.getString("last"));
+					}//else if
+					else {}//else
 				}//else
 			}//else
 		}//else
@@ -685,16 +697,24 @@ public class Testing {
 	 * @return The int returns 0 if the todo item was added correctly, and 1 if the todo item was not added correctly.
 	 */
 	public static int confirmLastTodoListItem(WebDriver driver, String elementPath) {
+		return confirmLastTodoListItem(TodoSnapshot.take(driver), elementPath);
+	}//confirmLastTodoListItem
+	
+	/**
+	 * This method takes a given TodoSnapshot and given todo item text in String format and confirms the last item in the list is correct.
+	 * @param snapshot The TodoSnapshot of the page being checked.
+	 * @param elementPath The text of the last item added to the todo list in String format.
+	 * @return The int returns 0 if the todo item was added correctly, and 1 if the todo item was not added correctly.
+	 */
+	public static int confirmLastTodoListItem(TodoSnapshot snapshot, String elementPath) {
 		int errorCtr = 0;
-		WebElement currentEle = getLastTodoListItem(driver);
-		if(currentEle == null) {
-			errorCtr++;
-			System.out.println("ERROR- Todo list is empty.");
+		TodoSnapshot.TodoItem lastItem = snapshot.getLastItem();
+		if(lastItem == null) {
+			errorCtr += Results.fail("Todo list is empty.", elementPath, null);
 		}//if
 		else {
-			if(confirmMessageText(getTodoItemText(currentEle), elementPath) > 0) {
-				errorCtr++;
-				System.out.println("ERROR- Incorrect todo item shown. \"" + getTodoItemText(currentEle) + "\" is the incorrect message.");
+			if(confirmMessageText(lastItem.getText(), elementPath) > 0) {
+				errorCtr += Results.fail("Incorrect todo item shown.", elementPath, lastItem.getText());
 			}//if
 			else {}//else
 		}//else
@@ -708,24 +728,21 @@ public class Testing {
 	 * @return The int returns 0 if the checkbox was selected correctly, and 1 if the checkbox was not selected correctly.
 	 */
 	public static WebElement selectCheckbox(WebDriver driver, String elementPath) {
-		WebElement currentEle = getSpecificTodoListItem(driver, elementPath);
-		if(currentEle == null) {
-			System.out.println("ERROR- Todo list item \" elementPath \" is not found.");
+		TodoItemIndex.Entry item = TodoItemIndex.get(driver).getItem(elementPath);
+		if(item == null) {
+			Results.fail("Todo list item \"" + elementPath + "\" is not found.");
 			return null;
 		}//if
 		else {
-			if(confirmMessageText(getTodoItemText(currentEle), elementPath) > 0) {
-				System.out.println("ERROR- Incorrect todo item shown. \"" + getTodoItemText(currentEle) + "\" is the incorrect message.");
-				System.out.println("\"" + elementPath + "\" should be shown instead.");
-			
+			if(confirmMessageText(item.getText(), elementPath) > 0) {
+				Results.fail("Incorrect todo item shown.", elementPath, item.getText());
 				return null;
 			}//if
 			else {}//else
 		}//else
 		
 		//get the current todo item checkmark
-		currentEle = getTodoListItemCheckmark(currentEle);
-		return currentEle;
+		return item.getCheckmark();
 	}//selectCheckbox
 	
 	/**
@@ -736,25 +753,33 @@ public class Testing {
 	 */
 	public static int clickCheckbox(WebDriver driver, String elementPath) {
 		int errorCtr = 0;
-		//get the correct list checkbox
-		WebElement currentEle = selectCheckbox(driver, elementPath);
+		//get the correct list checkbox and click it if it is not checked yet, finding it again if the handle goes stale
+		boolean[] wasChecked = {false};
+		TodoItemIndex.Entry item = Retry.act(driver, "clickCheckbox", d -> {
+			TodoItemIndex.Entry entry = TodoItemIndex.get(d).getItem(elementPath);
+			return (entry != null && entry.getCheckmark() != null) ? entry : null;
+		}, entry -> {
+			wasChecked[0] = entry.getCheckmark().isSelected();
+			if(!wasChecked[0]) {
+				clickElement(entry.getCheckmark());
+			}//if
+			else {}//else
+		});
+		if(item == null) {
+			return Results.fail("Todo list item \"" + elementPath + "\" is not found.");
+		}//if
+		else {}//else
 		
-		//confirm the checkbox is not checked yet
-		if(confirmCheckmarkNotClicked(currentEle) > 0) {
-			errorCtr++;
-			System.out.println("ERROR- Checkmark is already clicked.");
+		//confirm the checkbox was not checked yet
+		if(wasChecked[0]) {
+			errorCtr += Results.fail("Checkbox is clicked, but should not be clicked.", false, true);
 		}//if
 		else {
-			clickElement(currentEle);
+			//the item changed state
+			TodoItemIndex.invalidate(driver);
+			Waits.waitForSettle(driver, "clickCheckbox");
 			//confirm the checkbox is now checked
-			elementPath = "wash the car";
-			currentEle = getSpecificTodoListItem(driver, elementPath);
-			currentEle = currentEle.findElement(By.className("todo-checkbox"));
-			if(confirmCheckmarkClicked(currentEle) > 0) {
-				errorCtr++;
-				System.out.println("ERROR- Checkmark is not clicked.");
-			}//if
-			else {}//else
+			errorCtr += confirmChecked(TodoSnapshot.take(driver), elementPath);
 		}//else
 		return errorCtr;
 	}//clickCheckbox
@@ -766,14 +791,26 @@ public class Testing {
 	 * @return The int returns 0 if the given task is confirmed to be checked, and 1 if the task is unchecked.
 	 */
 	public static int confirmChecked(WebDriver driver, String elementPath) {
+		return confirmChecked(TodoSnapshot.take(driver), elementPath);
+	}//confirmChecked
+	
+	/**
+	 * This method takes a given TodoSnapshot and confirms if the given todo task, found with given String, is complete.
+	 * @param snapshot The TodoSnapshot of the page being checked.
+	 * @param elementPath The text of the todo item being checked in String format.
+	 * @return The int returns 0 if the given task is confirmed to be checked, and 1 if the task is unchecked.
+	 */
+	public static int confirmChecked(TodoSnapshot snapshot, String elementPath) {
 		int errorCtr = 0;
-		WebElement currentEle = getSpecificTodoListItem(driver, elementPath);
-		if(currentEle.findElement(By.className("todo-checkbox")) != null) {
-			errorCtr += confirmCheckmarkClicked(currentEle);
+		TodoSnapshot.TodoItem item = snapshot.getItem(elementPath);
+		if(item != null && item.hasCheckbox()) {
+			if(!item.isChecked()) {
+				errorCtr += Results.fail("Checkbox of \"" + elementPath + "\" is not clicked, but should be clicked.", true, false);
+			}//if
+			else {}//else
 		}//if
 		else {
-			errorCtr++;
-			System.out.println("ERROR- Todo item could not be found to check completion status.");
+			errorCtr += Results.fail("Todo item \"" + elementPath + "\" could not be found to check completion status.");
 		}//else
 		return errorCtr;
 	}//confirmChecked
@@ -785,14 +822,26 @@ public class Testing {
 	 * @return The int returns 0 if the given task is confirmed to be unchecked, and 1 if the task is checked.
 	 */
 	public static int confirmUnchecked(WebDriver driver, String elementPath) {
+		return confirmUnchecked(TodoSnapshot.take(driver), elementPath);
+	}//confirmUnchecked
+	
+	/**
+	 * This method takes a given TodoSnapshot and confirms if the given todo task, found with given String, is incomplete.
+	 * @param snapshot The TodoSnapshot of the page being checked.
+	 * @param elementPath The text of the todo item being checked in String format.
+	 * @return The int returns 0 if the given task is confirmed to be unchecked, and 1 if the task is checked.
+	 */
+	public static int confirmUnchecked(TodoSnapshot snapshot, String elementPath) {
 		int errorCtr = 0;
-		WebElement currentEle = getSpecificTodoListItem(driver, elementPath);
-		if(currentEle.findElement(By.className("todo-checkbox")) != null) {
-			errorCtr += confirmCheckmarkNotClicked(currentEle);
+		TodoSnapshot.TodoItem item = snapshot.getItem(elementPath);
+		if(item != null && item.hasCheckbox()) {
+			if(item.isChecked()) {
+				errorCtr += Results.fail("Checkbox of \"" + elementPath + "\" is clicked, but should not be clicked.", false, true);
+			}//if
+			else {}//else
 		}//if
 		else {
-			errorCtr++;
-			System.out.println("ERROR- Todo item could not be found to check completion status.");
+			errorCtr += Results.fail("Todo item \"" + elementPath + "\" could not be found to check completion status.");
 		}//else
 		return errorCtr;
 	}//confirmUnchecked
@@ -805,178 +854,418 @@ public class Testing {
 	 */
 	public static int deleteItem(WebDriver driver, String elementPath) {
 		int errorCtr = 0;
-		WebElement currentEle = getSpecificTodoListItem(driver, elementPath);
+		//click the delete button of the item, finding it again if the handle goes stale
+		WebElement currentEle = Retry.act(driver, "deleteItem", d -> {
+			TodoItemIndex.Entry entry = TodoItemIndex.get(d).getItem(elementPath);
+			return (entry != null) ? entry.getDeleteButton() : null;
+		}, Testing::clickElement);
 		if(currentEle != null) {
-			currentEle = currentEle.findElement(By.className("button-delete"));
-			if(currentEle != null) {
-				clickElement(currentEle);
-			}//if
-			else {
-				errorCtr++;
-				System.out.println("ERROR- Could not get delete button for specific todo item.");
-			}//else
+			//the item is gone from the list
+			TodoItemIndex.invalidate(driver);
+			Waits.waitForSettle(driver, "deleteItem");
+			//time how long the list took to render without it, if the run is being profiled
+			PerfProfiler.step(driver, "deleteItem");
 		}//if
+		else if(TodoItemIndex.get(driver).getItem(elementPath) != null) {
+			errorCtr += Results.fail("Could not get delete button for todo item \"" + elementPath + "\".");
+		}//else if
 		else {
-			errorCtr++;
-			System.out.println("ERROR- Could not get specific todo item to delete.");
+			errorCtr += Results.fail("Could not get todo item \"" + elementPath + "\" to delete.");
 		}//else
 		return errorCtr;
 	}//deleteItem
 	
-	public static void main(String[] args) throws InterruptedException {
-		
-		//set up a new driver to open up firefox using startSession()
-		WebDriver driver = startSession();
-		//wait
-		Thread.sleep(2000);
-		
-		//open a specific web page using firefox
-		String page = "https://ngo500.github.io/todo_website/";
-		//call the openWebPage method
-		openWebPage(driver, page);
-		//wait
-		Thread.sleep(2000);
-		
-		//start ERROR count
-		int errorCtr = 0;
-		
-		//confirm the website is correct
-		//get the title of the page using getPageTitle method
-		String title = getPageTitle(driver);
-		String matching = "To-Do List Website";
-		//print the title
-		System.out.println("The title of this page is: " + title + ".");
-		//check if the page title is correct
-		if(!(title.equals(matching))){
-			//the title is incorrect
-			errorCtr++;
-			System.out.println("ERROR- Wrong Website.");
+	/**
+	 * This method takes a given WebDriver and waits for the todo page to be ready to use.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The int is 0 if the page became ready, and 1 if a wait timed out.
+	 */
+	public static int waitForPageReady(WebDriver driver) {
+		//wait for the document, the input bar and the list, in that order
+		if(!Waits.waitForDocumentReady(driver) || !Waits.waitForElementPresent(driver, "task-input") || !Waits.waitForListStable(driver)) {
+			return Results.fail("Page did not become ready.");
+		}//if
+		else {
+			return 0;
+		}//else
+	}//waitForPageReady
+	
+	/**
+	 * This method takes the command line arguments and starts a local mirror of the site if one is wanted.
+	 * --site=remote always uses the live site, --site=mirror requires the vendored copy,
+	 * and the default uses the vendored copy when one is found. --site-dir points at a directory holding the copy.
+	 * @param args The command line arguments given to main.
+	 * @return The running MirrorServer, or null if the live site should be used.
+	 */
+	public static MirrorServer startMirror(String[] args) {
+		String site = Settings.get(args, "site", "auto");
+		String siteDir = Settings.get(args, "site-dir");
+		if(site.equals("remote")) {
+			return null;
+		}//if
+		else if(MirrorServer.isAvailable(siteDir)) {
+			return MirrorServer.start(siteDir);
+		}//else if
+		else if(site.equals("mirror")) {
+			throw new IllegalStateException("No vendored copy of the site was found in "
+					+ ((siteDir != null) ? siteDir : "the classpath folder " + MirrorServer.CLASSPATH_ROOT) + ".");
+		}//else if
+		else {
+			return null;
+		}//else
+	}//startMirror
+	
+	/**
+	 * This method takes a given MetricsSink and writes the given metrics to it.
+	 * @param sink The MetricsSink being written to, or null to skip writing.
+	 * @param metrics The DriverMetrics of the run.
+	 */
+	public static void writeMetrics(MetricsSink sink, DriverMetrics metrics) {
+		if(sink != null) {
+			try {
+				sink.write(metrics);
+			}//try
+			catch(IOException e) {
+				System.out.println("ERROR- Could not write the driver metrics. " + e.getMessage());
+			}//catch
 		}//if
 		else {}//else
+	}//writeMetrics
+	
+	/**
+	 * This method writes the performance report to the given file, printing an error if it cannot.
+	 * @param profiler The PerfProfiler of the run.
+	 * @param file The path of the file in String format.
+	 */
+	public static void writePerfReport(PerfProfiler profiler, String file) {
+		try {
+			profiler.writeReport(file);
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not write the performance report. " + e.getMessage());
+		}//catch
+	}//writePerfReport
+	
+	/**
+	 * This method takes the command line arguments, starts a ResultReporter and installs it, so errors are recorded as results.
+	 * --artifacts=true also captures the page in the background for errors in a scenario, into the artifacts folder of the results.
+	 * @param args The command line arguments given to main.
+	 * @return The running ResultReporter, or null if it could not be started and errors are printed instead.
+	 */
+	public static ResultReporter startReporter(String[] args) {
+		try {
+			ResultReporter reporter = ResultReporter.fromConfig(args);
+			//--screenshots=true is the older name of --artifacts=true
+			boolean capture = Settings.getFlag(args, "artifacts", Settings.getFlag(args, "screenshots", false));
+			Results.install(reporter, capture ? new FailureArtifacts(reporter.getDirectory()) : null);
+			return reporter;
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not start the result reporter, printing errors instead. " + e.getMessage());
+			return null;
+		}//catch
+	}//startReporter
+	
+	/**
+	 * This method takes the command line arguments and loads the flaky history they select.
+	 * @param args The command line arguments given to main.
+	 * @return The FlakyHistory, or null if it could not be read.
+	 */
+	public static FlakyHistory loadFlakyHistory(String[] args) {
+		try {
+			return FlakyHistory.fromConfig(args);
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not read the flaky history. " + e.getMessage());
+			return null;
+		}//catch
+	}//loadFlakyHistory
+	
+	/**
+	 * This method takes the given flaky history and saves it, reporting an error instead of stopping the run.
+	 * @param history The FlakyHistory being saved.
+	 */
+	public static void saveFlakyHistory(FlakyHistory history) {
+		try {
+			history.save();
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not save the flaky history. " + e.getMessage());
+		}//catch
+	}//saveFlakyHistory
+	
+	/**
+	 * This method takes the command line arguments and loads the impact map they select.
+	 * @param args The command line arguments given to main.
+	 * @return The ImpactMap, or null if it could not be read.
+	 */
+	public static ImpactMap loadImpactMap(String[] args) {
+		try {
+			return ImpactMap.fromConfig(args);
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not read the impact map. " + e.getMessage());
+			return null;
+		}//catch
+	}//loadImpactMap
+	
+	/**
+	 * This method takes the given impact map and saves it, reporting an error instead of stopping the run.
+	 * @param impact The ImpactMap being saved.
+	 */
+	public static void saveImpactMap(ImpactMap impact) {
+		try {
+			impact.save();
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not save the impact map. " + e.getMessage());
+		}//catch
+	}//saveImpactMap
+	
+	/**
+	 * This method takes the given run, adds it to the run history and prints the steps that got slower than the runs before it,
+	 * reporting an error instead of stopping the run.
+	 * @param history The RunHistory being added to.
+	 * @param run The Run of the finished run.
+	 */
+	public static void recordRunHistory(RunHistory history, RunHistory.Run run) {
+		try {
+			history.append(run);
+			RunHistory.printRegressions(run, history.compare(0));
+		}//try
+		catch(IOException e) {
+			System.out.println("ERROR- Could not save the run history. " + e.getMessage());
+		}//catch
+	}//recordRunHistory
+	
+	/**
+	 * This method takes the report of a finished run and runs the same scenarios again on another backend,
+	 * recording every scenario the two backends disagree on as an error.
+	 * The second run uses the same launch settings and reruns as the first. It is not profiled, since only the
+	 * functional results are compared: budgets depend on how fast each engine is.
+	 * @param report The ScenarioReport of the finished run.
+	 * @param scenarios The scenarios of the finished run, in the same order.
+	 * @param backend The DriverBackend of the finished run.
+	 * @param other The DriverBackend the scenarios are run on again.
+	 * @param parallelism The number of scenarios run at the same time.
+	 * @param page The page the sessions are opened on.
+	 * @param profile The LaunchProfile the second run's sessions are started with.
+	 * @param reruns The number of times a failed scenario is run again, as in the first run.
+	 * @return The number of scenarios the backends disagree on.
+	 */
+	public static int compareBackends(ScenarioReport report, List<Scenario> scenarios, DriverBackend backend, DriverBackend other, int parallelism,
+			String page, LaunchProfile profile, int reruns) {
+		//the second run is a check of the backends, it does not count towards flakiness or impact
+		Retry.install(null);
+		ImpactMap.install(null);
+		List<Scenario> renamed = new ArrayList<Scenario>();
+		for(Scenario scenario : scenarios) {
+			String name = scenario.getName() + " [" + other + "]";
+			renamed.add(scenario.isRerun() ? Scenario.of(name, scenario::run) : Scenario.longRunning(name, scenario::run));
+		}//for
+		DriverPool otherPool = new DriverPool(parallelism, page, profile, null, other);
+		try {
+			ScenarioReport otherReport = new ScenarioRunner(otherPool, parallelism, null, null, reruns).run(renamed);
+			return BackendComparison.compare(backend, report, other, otherReport);
+		}//try
+		finally {
+			otherPool.close();
+		}//finally
+	}//compareBackends
+	
+	public static void main(String[] args) {
 		
-		//confirm default tab shown in "All"
-		//call getActiveFilterTab to get the name of the current active filter tab
-		String elementPath = "All";
-		String allTabMsg = "There are currently no tasks.";
-		errorCtr += confirmActiveTab(driver, elementPath);
-		
-		//check "There are currently no tasks." is shown
-		errorCtr += confirmEmptyState(driver, allTabMsg);
-		
-		//click active tab
-		elementPath = "active";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//check "There are currently no active tasks."
-		String activeTabMsg = "There are currently no active tasks.";
-		errorCtr += confirmEmptyState(driver, activeTabMsg);
-
-		//click completed tab
-		elementPath = "completed";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//check "There are currently no completed tasks."
-		String completedTabMsg = "There are currently no completed tasks.";
-		errorCtr += confirmEmptyState(driver, completedTabMsg);
-		
-		//click all tab
-		elementPath = "all";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//put input in text bar and add
-		elementPath = "wash the car";
-		errorCtr += addTask(driver, elementPath);
-		
-		//confirm all tab is still clicked
-		elementPath = "All";
-		errorCtr += confirmActiveTab(driver, elementPath);
-		
-		//confirm "1 active item left" is shown
-		errorCtr += confirmItemsLeft(driver);
-		
-		//click active tab
-		elementPath = "active";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//confirm "wash the car" is still shown
-		elementPath = "wash the car";
-		errorCtr += confirmLastTodoListItem(driver, elementPath);
-		
-		//confirm "1 active item left" is shown
-		errorCtr += confirmItemsLeft(driver);
-		
-		//click completed tab
-		elementPath = "completed";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//click all tab
-		elementPath = "all";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//click the checkbox next to "wash the car"
-		elementPath = "wash the car";
-		errorCtr += clickCheckbox(driver, elementPath);
-		
-		//confirm the tab is still all tab
-		elementPath = "All";
-		errorCtr += confirmActiveTab(driver, elementPath);
-		
-		//confirm "0 active items left" is shown
-		errorCtr += confirmItemsLeft(driver);
-		
-		//click active tab
-		elementPath = "active";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//confirm "There are currently no active tasks." is shown
-		errorCtr += confirmEmptyState(driver, activeTabMsg);
-		
-		//click completed tab
-		elementPath = "completed";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//confirm "wash the car" completed task is shown
-		elementPath = "wash the car";
-		errorCtr += confirmLastTodoListItem(driver, elementPath);
-		
-		//click all tab
-		elementPath = "all";
-		errorCtr += clickTab(driver, elementPath);
-		
-		//input "change kitchen light" into text bar
-		elementPath = "change kitchen light";
-		errorCtr += addTask(driver, elementPath);
-		
-		//confirm all tab is still clicked
-		elementPath = "All";
-		errorCtr += confirmActiveTab(driver, elementPath);
-		
-		//confirm "1 active item left" is shown
-		errorCtr += confirmItemsLeft(driver);
-		
-		//confirm "change kitchen light" is shown
-		elementPath = "change kitchen light";
-		errorCtr += confirmLastTodoListItem(driver, elementPath);
-		
-		//confirm "wash the car" is shown completed
-		elementPath = "wash the car";
-		errorCtr += confirmChecked(driver, elementPath);
-		
-		//confirm "change kitchen light" is not completed
-		elementPath = "change kitchen light";
-		errorCtr += confirmUnchecked(driver, elementPath);
-		
-		//delete "wash the car" task
-		elementPath = "wash the car";
-		errorCtr += deleteItem(driver, elementPath);
-		
-		//confirm correct task was clicked and deleted
-		
-		//relay error count
-		System.out.print("Testing complete. Found " + errorCtr + " error" + ((errorCtr != 1) ? "s" : "") + " in the test run.");
-		
-		//end the session ALWAYS NEEDED
-		endSession(driver);
+		//serve the vendored copy of the site locally if there is one, otherwise test the live site
+		MirrorServer mirror = startMirror(args);
+		String page = (mirror != null) ? mirror.getUrl() : REMOTE_PAGE;
+		ResultReporter reporter = null;
+		DriverPool pool = null;
+		try {
+			System.out.println("Testing the page at " + page);
+			//run up to one scenario per core at the same time, each on its own session
+			List<Scenario> scenarios = Scenarios.all();
+			//seed a large list too when --seed-size is given
+			int seedSize = Settings.getInt(args, "seed-size", 0);
+			if(seedSize > 0) {
+				scenarios.add(Scenarios.largeList(seedSize, Settings.getFlag(args, "seed-reload", true)));
+			}//if
+			else {}//else
+			//run random operations against a model of the list when --fuzz-ops is given, --fuzz-seed repeats a run
+			int fuzzOps = Settings.getInt(args, "fuzz-ops", 0);
+			if(fuzzOps > 0) {
+				String fuzzSeed = Settings.get(args, "fuzz-seed");
+				try {
+					scenarios.add(ModelFuzzer.scenario(fuzzOps, (fuzzSeed != null) ? Long.parseLong(fuzzSeed.trim()) : System.currentTimeMillis()));
+				}//try
+				catch(NumberFormatException e) {
+					System.out.println("ERROR- The fuzz-seed setting must be a whole number, was \"" + fuzzSeed + "\". The fuzz scenario is not run.");
+				}//catch
+			}//if
+			else {}//else
+			//soak the page for --soak-minutes to look for leaks, --soak-report writes the samples
+			int soakMinutes = Settings.getInt(args, "soak-minutes", 0);
+			if(soakMinutes > 0) {
+				scenarios.add(SoakTest.scenario(soakMinutes, Settings.get(args, "soak-report")));
+			}//if
+			else {}//else
+			//add the scenarios written in scenario files, when --scenarios points at a file or folder of them
+			String scenarioPath = Settings.get(args, "scenarios");
+			if(scenarioPath != null) {
+				try {
+					scenarios.addAll(ScenarioFile.load(Paths.get(scenarioPath)));
+				}//try
+				catch(IOException e) {
+					System.out.println("ERROR- Could not read the scenario files. " + e.getMessage());
+				}//catch
+				catch(IllegalArgumentException e) {
+					//the message names the file and line that could not be compiled
+					System.out.println("ERROR- Could not compile the scenario files. " + e.getMessage());
+				}//catch
+			}//if
+			else {}//else
+			int parallelism = Integer.getInteger("parallel", Runtime.getRuntime().availableProcessors());
+			parallelism = Math.min(parallelism, scenarios.size());
+			//record every error as a structured result, written on its own thread
+			reporter = startReporter(args);
+			//launch firefox with the profile picked on the command line or environment, lean by default
+			LaunchProfile profile = LaunchProfile.fromConfig(args);
+			//time every WebDriver command, by the helper that sent it
+			DriverMetrics metrics = new DriverMetrics();
+			MetricsSink metricsSink = MetricsSink.fromConfig(args);
+			//start a pool of warm firefox sessions already showing the page, one per worker
+			//run on firefox, or in process on htmlunit with --backend=htmlunit
+			DriverBackend backend = DriverBackend.fromConfig(args);
+			String compareWith = Settings.get(args, "compare-backend");
+			pool = new DriverPool(parallelism, page, profile, metrics, backend);
+			//profile the site itself while the scenarios run, when --perf=true is given
+			PerfProfiler perf = PerfProfiler.fromConfig(args);
+			if(perf != null && !backend.isRendering()) {
+				System.out.println("Not profiling: the " + backend + " backend has no paint timings or performance entries.");
+				perf = null;
+			}//if
+			else {}//else
+			//track which steps and scenarios are flaky across runs, and retry the steps that act on the page
+			FlakyHistory history = loadFlakyHistory(args);
+			Retry.install(history);
+			//with --state-mirror=true, the checks read a copy of the page kept up to date from its changes
+			boolean stateMirror = Settings.getFlag(args, "state-mirror", false);
+			StateMirror.install(stateMirror);
+			
+			//with --impact=true, run only the scenarios affected by what changed on the site since the last run
+			ImpactMap impact = Settings.getFlag(args, "impact", false) ? loadImpactMap(args) : null;
+			//record the time of every step in the run history, and compare it with the runs before
+			RunHistory runHistory = RunHistory.fromConfig(args);
+			//fingerprint the site once, to select the impacted scenarios and to key the run history
+			SiteFingerprint fingerprint = null;
+			if(impact != null || runHistory != null) {
+				WebDriver driver = pool.borrow();
+				try {
+					fingerprint = SiteFingerprint.take(driver);
+				}//try
+				catch(WebDriverException | ClassCastException e) {
+					//a timed out or broken fetch runs every scenario, and the run history records the site as "unknown"
+					System.out.println("ERROR- Could not fingerprint the site, its version is unknown. " + e.getMessage());
+				}//catch
+				finally {
+					pool.giveBack(driver);
+				}//finally
+			}//if
+			else {}//else
+			if(impact != null) {
+				scenarios = impact.select(scenarios, fingerprint);
+				ImpactMap.install(impact);
+			}//if
+			else {}//else
+			//run every scenario, then run the failed ones again, and gather the errors into one report
+			int reruns = Settings.getInt(args, "reruns", 1);
+			ScenarioReport report = new ScenarioRunner(pool, parallelism, perf, history, reruns).run(scenarios);
+			//with --compare-backend, run the same scenarios on the other backend and check they find the same errors
+			int differences = 0;
+			if(compareWith != null) {
+				differences = compareBackends(report, scenarios, backend, DriverBackend.forName(compareWith), parallelism, page,
+						LaunchProfile.fromConfig(args), reruns);
+			}//if
+			else {}//else
+			//let the reporter finish writing, so its output comes before the totals
+			if(reporter != null) {
+				reporter.close();
+			}//if
+			else {}//else
+			report.print();
+			//the error count is added up from the recorded results
+			int errorCtr = report.getTotalErrors() + differences;
+			
+			//relay error count
+			System.out.println("Testing complete. Found " + errorCtr + " error" + ((errorCtr != 1) ? "s" : "") + " in the test run.");
+			if(!report.getQuarantined().isEmpty()) {
+				System.out.println("Not counted: " + report.getQuarantinedErrors() + " error"
+						+ ((report.getQuarantinedErrors() != 1) ? "s" : "") + " in quarantined scenarios.");
+			}//if
+			else {}//else
+			if(perf != null) {
+				System.out.println((perf.isBudgetErrors() ? "Counted: " : "Not counted: ") + report.getTotalBudgetsExceeded()
+						+ " performance budget" + ((report.getTotalBudgetsExceeded() != 1) ? "s" : "") + " exceeded.");
+			}//if
+			else {}//else
+			//save what each scenario touched and the fingerprint of the site, for the next impact run
+			if(impact != null) {
+				saveImpactMap(impact);
+			}//if
+			else {}//else
+			//relay which steps and scenarios needed retries, and save their history for the next run
+			if(history != null) {
+				history.printReport();
+				saveFlakyHistory(history);
+			}//if
+			else {}//else
+			//relay how long each wait took, and how fast firefox started and painted
+			Waits.printSummary();
+			profile.printTimings();
+			//relay which helpers the time went to, and save the histograms
+			metrics.printTop(10);
+			writeMetrics(metricsSink, metrics);
+			//relay which locators needed a fallback selector
+			Locators.printSummary();
+			if(stateMirror) {
+				StateMirror.printSummary();
+			}//if
+			else {}//else
+			//relay how many failures were captured, and how many captures were the same
+			if(Results.getArtifacts() != null) {
+				Results.getArtifacts().printSummary();
+			}//if
+			else {}//else
+			//save the time of every step, and relay the ones that got slower than usual
+			if(runHistory != null) {
+				recordRunHistory(runHistory, RunHistory.of(report, metrics, RunHistory.getSiteVersion(fingerprint), RunHistory.getCommit(args)));
+			}//if
+			else {}//else
+			//relay how fast the site was at each step, and save the report
+			if(perf != null) {
+				perf.printReport();
+				writePerfReport(perf, Settings.get(args, "perf-report", "perf-report.csv"));
+			}//if
+			else {}//else
+		}//try
+		finally {
+			//end the pool and every session in it ALWAYS NEEDED
+			if(pool != null) {
+				pool.close();
+			}//if
+			else {}//else
+			Retry.install(null);
+			ImpactMap.install(null);
+			StateMirror.install(false);
+			if(reporter != null) {
+				reporter.close();
+				Results.install(null, null);
+			}//if
+			else {}//else
+			if(mirror != null) {
+				mirror.close();
+			}//if
+			else {}//else
+		}//finally
 		
 	}//main
 
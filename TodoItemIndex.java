@@ -0,0 +1,239 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * This class keeps an index of the todo list items for one WebDriver session, keyed by item text and position.
+ * The index is built with one executeScript call and is reused until a mutating helper invalidates it,
+ * or until the MutationObserver installed on #todos-list reports that the list changed.
+ * The observer's generation is only read again once a WebDriver command has been sent since it was last known,
+ * and scripts that already read the page, like the TodoSnapshot one, report it on the way, so most lookups send nothing.
+ */
+public class TodoItemIndex {
+
+	/**
+	 * The script that installs the MutationObserver, if it is not installed yet, and reads the generation into "generation".
+	 * The observer bumps a generation counter on the window whenever the list changes. The counter starts from the time
+	 * the page installed it, so a reloaded page does not count up through the same generations as the one before it.
+	 * It goes after Locators.RESOLVER.
+	 */
+	static final String OBSERVER_SCRIPT =
+			"var list = one('todoList');"
+			+ "if (list && !window.__todoIndexObserver) {"
+			+ "  window.__todoIndexGeneration = Date.now() * 1000;"
+			+ "  window.__todoIndexObserver = new MutationObserver(function() { window.__todoIndexGeneration++; });"
+			+ "  window.__todoIndexObserver.observe(list, {childList: true, subtree: true, characterData: true});"
+			+ "}"
+			+ "var generation = window.__todoIndexGeneration === undefined ? -1 : window.__todoIndexGeneration;";
+
+	/**
+	 * The script that reads the handles of every list item and installs the MutationObserver.
+	 */
+	static final String BUILD_SCRIPT =
+			Locators.RESOLVER
+			+ OBSERVER_SCRIPT
+			+ "var items = [];"
+			+ "var lis = all('todoItems');"
+			+ "for (var i = 0; i < lis.length; i++) {"
+			+ "  items.push({element: lis[i], text: (lis[i].innerText || lis[i].textContent || '').trim(),"
+			+ "    checkbox: one('itemCheckbox', lis[i]), checkmark: one('itemCheckmark', lis[i]),"
+			+ "    deleteButton: one('itemDelete', lis[i])});"
+			+ "}"
+			+ "return {generation: generation, items: items, locators: used};";
+
+	/**
+	 * The script that reads the current generation counter. It is -1 if the page was reloaded since the index was built.
+	 */
+	static final String GENERATION_SCRIPT =
+			"return window.__todoIndexGeneration === undefined ? -1 : window.__todoIndexGeneration;";
+
+	/**
+	 * The index for each WebDriver session. Sessions that are no longer referenced drop out on their own.
+	 */
+	private static final Map<WebDriver, TodoItemIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<WebDriver, TodoItemIndex>());
+
+	/**
+	 * The generation last read from each session's page, with the round-trips of the session just after it was read.
+	 */
+	private static final Map<WebDriver, long[]> SEEN = Collections.synchronizedMap(new WeakHashMap<WebDriver, long[]>());
+
+	/** What knownGeneration returns when the generation has to be read again. */
+	static final long UNKNOWN = Long.MIN_VALUE;
+
+	/**
+	 * This class holds the handles of one todo list item.
+	 */
+	public static class Entry {
+		private final int position;
+		private final String text;
+		private final WebElement element;
+		private final WebElement checkbox;
+		private final WebElement checkmark;
+		private final WebElement deleteButton;
+
+		Entry(int position, String text, WebElement element, WebElement checkbox, WebElement checkmark, WebElement deleteButton) {
+			this.position = position;
+			this.text = text;
+			this.element = element;
+			this.checkbox = checkbox;
+			this.checkmark = checkmark;
+			this.deleteButton = deleteButton;
+		}//Entry
+
+		public int getPosition() { return position; }
+		public String getText() { return text; }
+		public WebElement getElement() { return element; }
+		public WebElement getCheckbox() { return checkbox; }
+		public WebElement getCheckmark() { return checkmark; }
+		public WebElement getDeleteButton() { return deleteButton; }
+	}//Entry
+
+	private final long generation;
+	private final List<Entry> byPosition;
+	private final Map<String, Entry> byText;
+
+	TodoItemIndex(long generation, List<Entry> byPosition, Map<String, Entry> byText) {
+		this.generation = generation;
+		this.byPosition = byPosition;
+		this.byText = byText;
+	}//TodoItemIndex
+
+	/**
+	 * This method takes a given WebDriver and returns the index for its session, building it if it is missing or out of date.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The TodoItemIndex of the current todo list.
+	 */
+	public static TodoItemIndex get(WebDriver driver) {
+		TodoItemIndex index = INDEXES.get(driver);
+		if(index == null || index.generation != currentGeneration(driver)) {
+			index = build(driver);
+			INDEXES.put(driver, index);
+		}//if
+		else {}//else the index is still valid
+		return index;
+	}//get
+
+	/**
+	 * This method takes a given WebDriver and the generation a script just read from its page, and remembers it.
+	 * Scripts that read the page anyway return the generation with their result, so the next lookup does not have to ask for it.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param generation The generation counter read, or null if the script did not return one.
+	 */
+	public static void observe(WebDriver driver, Object generation) {
+		if(generation instanceof Number) {
+			SEEN.put(driver, new long[] {((Number) generation).longValue(), roundTrips(driver)});
+		}//if
+		else {}//else
+	}//observe
+
+	/**
+	 * This method takes a given WebDriver and returns the generation of its page if it is known without asking:
+	 * it was read, and no command was sent through the session since, so lookups in a row between two commands share one read.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The generation counter, -1 if the observer is not installed, or UNKNOWN if it has to be read again.
+	 */
+	static long knownGeneration(WebDriver driver) {
+		long[] seen = SEEN.get(driver);
+		long now = roundTrips(driver);
+		return (seen != null && now >= 0 && seen[1] == now) ? seen[0] : UNKNOWN;
+	}//knownGeneration
+
+	/**
+	 * This method takes a given WebDriver and returns how many commands have been sent through it, or -1 if it does not count them.
+	 */
+	private static long roundTrips(WebDriver driver) {
+		return InstrumentedDriver.isInstrumented(driver) ? InstrumentedDriver.getRoundTrips(driver) : -1;
+	}//roundTrips
+
+	/**
+	 * This method takes a given WebDriver and drops its index. Helpers that change the list call this after they act.
+	 * @param driver The WebDriver being used for the automation.
+	 */
+	public static void invalidate(WebDriver driver) {
+		INDEXES.remove(driver);
+		SEEN.remove(driver);
+		Locators.invalidate(driver);
+	}//invalidate
+
+	/**
+	 * This method takes a given String and returns the first item with matching text.
+	 * @param givenItem The text of the todo item being searched for in String format.
+	 * @return The matching Entry. If no item matches, returns null.
+	 */
+	public Entry getItem(String givenItem) {
+		return byText.get(givenItem);
+	}//getItem
+
+	/**
+	 * This method takes a given position and returns the item at that position in the list.
+	 * @param position The position of the todo item, starting at 0.
+	 * @return The matching Entry. If the position is out of range, returns null.
+	 */
+	public Entry getItem(int position) {
+		if(position >= 0 && position < byPosition.size()) {
+			return byPosition.get(position);
+		}//if
+		else {
+			return null;
+		}//else
+	}//getItem
+
+	/**
+	 * This method returns the number of items in the index.
+	 * @return The size of the task list in int format.
+	 */
+	public int size() {
+		return byPosition.size();
+	}//size
+
+	/**
+	 * This method takes a given WebDriver and returns the current generation counter of its page, reading it only if it is not known.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The generation counter, or -1 if the observer is not installed on this page.
+	 */
+	private static long currentGeneration(WebDriver driver) {
+		long known = knownGeneration(driver);
+		if(known != UNKNOWN) {
+			return known;
+		}//if
+		else {}//else
+		Object generation = ((JavascriptExecutor) driver).executeScript(GENERATION_SCRIPT);
+		observe(driver, generation);
+		return ((Number) generation).longValue();
+	}//currentGeneration
+
+	/**
+	 * This method takes a given WebDriver and builds a new index from one read of the todo list.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The new TodoItemIndex.
+	 */
+	@SuppressWarnings("unchecked")
+	private static TodoItemIndex build(WebDriver driver) {
+		Map<String, Object> raw = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(BUILD_SCRIPT, Locators.asScriptArgument());
+		Locators.recordUsage((Map<String, Object>) raw.get("locators"));
+		observe(driver, raw.get("generation"));
+		List<Object> rawItems = (List<Object>) raw.get("items");
+		List<Entry> byPosition = new ArrayList<Entry>(rawItems.size());
+		Map<String, Entry> byText = new HashMap<String, Entry>();
+		for(int i = 0; i < rawItems.size(); i++) {
+			Map<String, Object> item = (Map<String, Object>) rawItems.get(i);
+			Entry entry = new Entry(i, (String) item.get("text"), (WebElement) item.get("element"),
+					(WebElement) item.get("checkbox"), (WebElement) item.get("checkmark"), (WebElement) item.get("deleteButton"));
+			byPosition.add(entry);
+			//keep the first item for each text, the same one a scan from the top would find
+			if(!byText.containsKey(entry.getText())) {
+				byText.put(entry.getText(), entry);
+			}//if
+			else {}//else
+		}//for
+		return new TodoItemIndex(((Number) raw.get("generation")).longValue(), byPosition, byText);
+	}//build
+
+}//TodoItemIndex
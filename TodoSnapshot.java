@@ -0,0 +1,291 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * This class holds everything the helpers check on the todo page, read in a single round-trip.
+ * The snapshot has the todo items (text, checkbox state, index), the filter tabs, the items left text and the empty state.
+ */
+public class TodoSnapshot {
+
+	/**
+	 * The script that reads the whole page state at once. Elements are found through the Locators registry.
+	 */
+	static final String SNAPSHOT_SCRIPT =
+			Locators.RESOLVER
+			+ "var text = function(e) { return e ? (e.innerText || e.textContent || '').trim() : null; };"
+			+ "var shown = function(e) { return !!(e && e.getClientRects().length > 0); };"
+			+ "var items = [];"
+			+ "var lis = all('todoItems');"
+			+ "for (var i = 0; i < lis.length; i++) {"
+			+ "  var box = one('itemCheckbox', lis[i]);"
+			+ "  items.push({element: lis[i], text: text(lis[i]), hasCheckbox: box != null,"
+			+ "    checked: !!(box && box.checked), displayed: shown(lis[i])});"
+			+ "}"
+			+ "var tabs = [];"
+			+ "var spans = all('filterTabs');"
+			+ "for (var j = 0; j < spans.length; j++) {"
+			+ "  tabs.push({element: spans[j], text: text(spans[j]),"
+			+ "    filter: spans[j].getAttribute('data-filter'), className: spans[j].getAttribute('class')});"
+			+ "}"
+			+ "var empty = one('emptyState');"
+			+ "var icon = one('emptyStateIcon');"
+			+ "var message = one('emptyStateMessage');"
+			+ "var left = one('itemsLeft');"
+			+ "return {items: items, tabs: tabs, locators: used,"
+			+ "  generation: window.__todoIndexGeneration === undefined ? -1 : window.__todoIndexGeneration,"
+			+ "  emptyStateClass: empty ? empty.getAttribute('class') : null,"
+			+ "  iconClass: icon ? icon.getAttribute('class') : null,"
+			+ "  messageId: message ? message.getAttribute('id') : null,"
+			+ "  messageText: text(message),"
+			+ "  itemsLeftText: text(left)};";
+
+	/**
+	 * This class holds one todo list item as it was read in the snapshot.
+	 */
+	public static class TodoItem {
+		private final int index;
+		private final String text;
+		private final boolean hasCheckbox;
+		private final boolean checked;
+		private final boolean displayed;
+		private final WebElement element;
+
+		TodoItem(int index, String text, boolean hasCheckbox, boolean checked, boolean displayed, WebElement element) {
+			this.index = index;
+			this.text = text;
+			this.hasCheckbox = hasCheckbox;
+			this.checked = checked;
+			this.displayed = displayed;
+			this.element = element;
+		}//TodoItem
+
+		public int getIndex() { return index; }
+		public String getText() { return text; }
+		public boolean hasCheckbox() { return hasCheckbox; }
+		public boolean isChecked() { return checked; }
+		public boolean isDisplayed() { return displayed; }
+		public WebElement getElement() { return element; }
+	}//TodoItem
+
+	/**
+	 * This class holds one filter tab as it was read in the snapshot.
+	 */
+	public static class FilterTab {
+		private final String text;
+		private final String filter;
+		private final String className;
+		private final WebElement element;
+
+		FilterTab(String text, String filter, String className, WebElement element) {
+			this.text = text;
+			this.filter = filter;
+			this.className = className;
+			this.element = element;
+		}//FilterTab
+
+		public String getText() { return text; }
+		public String getFilter() { return filter; }
+		public String getClassName() { return className; }
+		public WebElement getElement() { return element; }
+
+		/**
+		 * This method checks if the tab is the active filter tab.
+		 * @return True if the class of the tab is "filter active", false otherwise.
+		 */
+		public boolean isActive() {
+			ImpactMap.touchClass("filter active");
+			return "filter active".equals(className);
+		}//isActive
+	}//FilterTab
+
+	private List<TodoItem> items;
+	/** Builds the items on first read, for a snapshot whose items are not read yet. Null once they are built. */
+	private Supplier<List<TodoItem>> pendingItems;
+	private final List<FilterTab> tabs;
+	private final String emptyStateClass;
+	private final String iconClass;
+	private final String messageId;
+	private final String messageText;
+	private final String itemsLeftText;
+
+	TodoSnapshot(List<TodoItem> items, List<FilterTab> tabs, String emptyStateClass, String iconClass,
+			String messageId, String messageText, String itemsLeftText) {
+		this.items = Collections.unmodifiableList(items);
+		this.tabs = Collections.unmodifiableList(tabs);
+		this.emptyStateClass = emptyStateClass;
+		this.iconClass = iconClass;
+		this.messageId = messageId;
+		this.messageText = messageText;
+		this.itemsLeftText = itemsLeftText;
+	}//TodoSnapshot
+
+	/**
+	 * This constructor creates a snapshot whose items are only built when they are first read, so a check that does not
+	 * read them does not pay for them.
+	 */
+	TodoSnapshot(Supplier<List<TodoItem>> items, List<FilterTab> tabs, String emptyStateClass, String iconClass,
+			String messageId, String messageText, String itemsLeftText) {
+		this(Collections.<TodoItem>emptyList(), tabs, emptyStateClass, iconClass, messageId, messageText, itemsLeftText);
+		this.items = null;
+		this.pendingItems = items;
+	}//TodoSnapshot
+
+	/**
+	 * This method takes a given WebDriver and returns the todo page state. It is read in one executeScript call,
+	 * or brought up to date from the changes since the last call when the StateMirror is installed.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The TodoSnapshot of the current page.
+	 */
+	public static TodoSnapshot take(WebDriver driver) {
+		if(StateMirror.isInstalled()) {
+			return StateMirror.snapshot(driver);
+		}//if
+		else {
+			return read(driver);
+		}//else
+	}//take
+
+	/**
+	 * This method takes a given WebDriver and reads the whole todo page state in one executeScript call.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return The TodoSnapshot of the current page.
+	 */
+	@SuppressWarnings("unchecked")
+	static TodoSnapshot read(WebDriver driver) {
+		Map<String, Object> raw = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(SNAPSHOT_SCRIPT, Locators.asScriptArgument());
+		Locators.recordUsage((Map<String, Object>) raw.get("locators"));
+		//the list generation comes back with the page, so the item index need not ask for it
+		TodoItemIndex.observe(driver, raw.get("generation"));
+
+		//read the todo items in list order
+		List<TodoItem> items = new ArrayList<TodoItem>();
+		List<Object> rawItems = (List<Object>) raw.get("items");
+		for(int i = 0; i < rawItems.size(); i++) {
+			Map<String, Object> item = (Map<String, Object>) rawItems.get(i);
+			items.add(new TodoItem(i, (String) item.get("text"), Boolean.TRUE.equals(item.get("hasCheckbox")),
+					Boolean.TRUE.equals(item.get("checked")), Boolean.TRUE.equals(item.get("displayed")),
+					(WebElement) item.get("element")));
+		}//for
+
+		//read the filter tabs in page order
+		List<FilterTab> tabs = new ArrayList<FilterTab>();
+		List<Object> rawTabs = (List<Object>) raw.get("tabs");
+		for(Object rawTab : rawTabs) {
+			Map<String, Object> tab = (Map<String, Object>) rawTab;
+			tabs.add(new FilterTab((String) tab.get("text"), (String) tab.get("filter"),
+					(String) tab.get("className"), (WebElement) tab.get("element")));
+		}//for
+
+		return new TodoSnapshot(items, tabs, (String) raw.get("emptyStateClass"), (String) raw.get("iconClass"),
+				(String) raw.get("messageId"), (String) raw.get("messageText"), (String) raw.get("itemsLeftText"));
+	}//read
+
+	/**
+	 * This method returns the todo items in list order, building them first if the snapshot was taken without them.
+	 * @return The List<TodoItem> of the snapshot.
+	 */
+	public synchronized List<TodoItem> getItems() {
+		if(items == null) {
+			items = Collections.unmodifiableList(pendingItems.get());
+			pendingItems = null;
+		}//if
+		else {}//else
+		return items;
+	}//getItems
+
+	public List<FilterTab> getTabs() { return tabs; }
+	public String getEmptyStateClass() { return emptyStateClass; }
+	public String getIconClass() { return iconClass; }
+	public String getMessageId() { return messageId; }
+	public String getMessageText() { return messageText; }
+	public String getItemsLeftText() { return itemsLeftText; }
+
+	/**
+	 * This method returns the number of todo items in the snapshot.
+	 * @return The size of the task list in int format.
+	 */
+	public int getTaskListSize() {
+		return getItems().size();
+	}//getTaskListSize
+
+	/**
+	 * This method counts the todo items in the snapshot whose checkbox is not checked.
+	 * @return The size of the active task list in int format.
+	 */
+	public int getActiveTaskListSize() {
+		int size = 0;
+		for(TodoItem item : getItems()) {
+			if(item.hasCheckbox() && !item.isChecked()) {
+				size++;
+			}//if
+			else {}//else not active, skip
+		}//for
+		return size;
+	}//getActiveTaskListSize
+
+	/**
+	 * This method takes a given String and returns the first todo item with matching text.
+	 * @param givenItem The text of the todo item being searched for in String format.
+	 * @return The matching TodoItem. If no item matches, returns null.
+	 */
+	public TodoItem getItem(String givenItem) {
+		for(TodoItem item : getItems()) {
+			if(item.getText().equals(givenItem)) {
+				return item;
+			}//if
+			else {}//else
+		}//for
+		return null;
+	}//getItem
+
+	/**
+	 * This method returns the last todo item in the snapshot.
+	 * @return The last TodoItem. If the list is empty, returns null.
+	 */
+	public TodoItem getLastItem() {
+		List<TodoItem> items = getItems();
+		if(items.size() > 0) {
+			return items.get(items.size() - 1);
+		}//if
+		else {
+			return null;
+		}//else
+	}//getLastItem
+
+	/**
+	 * This method returns the filter tab whose data-filter attribute matches the given String.
+	 * @param tab The data-filter of the tab being searched for in String format.
+	 * @return The matching FilterTab. If no tab matches, returns null.
+	 */
+	public FilterTab getTab(String tab) {
+		for(FilterTab filterTab : tabs) {
+			if(tab.equals(filterTab.getFilter())) {
+				return filterTab;
+			}//if
+			else {}//else
+		}//for
+		return null;
+	}//getTab
+
+	/**
+	 * This method returns the name of the active filter tab.
+	 * @return The name of the active tab in String format. If no active filter is found, ERROR is returned in String format.
+	 */
+	public String getActiveFilterTab() {
+		for(FilterTab filterTab : tabs) {
+			if(filterTab.isActive()) {
+				return filterTab.getText();
+			}//if
+			else {}//else
+		}//for
+		return "ERROR";
+	}//getActiveFilterTab
+
+}//TodoSnapshot
@@ -0,0 +1,219 @@
+package todo_website_testing;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * This class waits for the page to reach a condition instead of sleeping for a fixed time.
+ * Conditions are polled with a short backoff, or resolved in the browser from DOM signals, and how long every wait
+ * actually took is added to the totals of its condition, so a long run keeps one entry per condition rather than per wait.
+ * Timeouts can be changed with system properties, for example -Dwait.ready.ms=20000.
+ */
+public class Waits {
+
+	/** The timeout for the document to be parsed. */
+	public static final long READY_TIMEOUT_MS = Long.getLong("wait.ready.ms", 10000);
+	/** The timeout for an element to be present. */
+	public static final long ELEMENT_TIMEOUT_MS = Long.getLong("wait.element.ms", 10000);
+	/** The timeout for #todos-list to stop changing. */
+	public static final long LIST_TIMEOUT_MS = Long.getLong("wait.list.ms", 5000);
+	/** The timeout for the page to settle after a click. */
+	public static final long SETTLE_TIMEOUT_MS = Long.getLong("wait.settle.ms", 2000);
+	/** How long the page must go without DOM mutations to count as settled. */
+	public static final long SETTLE_QUIET_MS = Long.getLong("wait.settle.quiet.ms", 50);
+
+	/** The first poll delay, doubled after each failed poll up to the max. */
+	private static final long FIRST_POLL_MS = 10;
+	private static final long MAX_POLL_MS = 250;
+
+	/**
+	 * The script that resolves once the page has gone SETTLE_QUIET_MS without a DOM mutation, or the timeout runs out.
+	 * It returns true if the page settled and false if it timed out.
+	 */
+	static final String SETTLE_SCRIPT =
+			"var quiet = arguments[0], timeout = arguments[1], done = arguments[arguments.length - 1];"
+			+ "var start = Date.now(), timer;"
+			+ "var observer = new MutationObserver(function() { clearTimeout(timer); timer = setTimeout(finish, quiet); });"
+			+ "var finish = function() { observer.disconnect(); done(Date.now() - start < timeout); };"
+			+ "observer.observe(document.body, {childList: true, subtree: true, attributes: true, characterData: true});"
+			+ "timer = setTimeout(finish, quiet);"
+			+ "setTimeout(function() { observer.disconnect(); done(false); }, timeout);";
+
+	/**
+	 * This class holds the totals of every wait for one condition.
+	 */
+	public static class WaitRecord {
+		private final String condition;
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong timedOut = new AtomicLong();
+		private final AtomicLong totalMillis = new AtomicLong();
+		private final AtomicLong maxMillis = new AtomicLong();
+
+		WaitRecord(String condition) {
+			this.condition = condition;
+		}//WaitRecord
+
+		void add(long elapsedMillis, boolean met) {
+			count.incrementAndGet();
+			if(!met) {
+				timedOut.incrementAndGet();
+			}//if
+			else {}//else
+			totalMillis.addAndGet(elapsedMillis);
+			maxMillis.accumulateAndGet(elapsedMillis, Math::max);
+		}//add
+
+		public String getCondition() { return condition; }
+		public long getCount() { return count.get(); }
+		public long getTimedOut() { return timedOut.get(); }
+		public long getTotalMillis() { return totalMillis.get(); }
+		public long getMaxMillis() { return maxMillis.get(); }
+
+		@Override
+		public String toString() {
+			return condition + " " + getCount() + " time" + ((getCount() != 1) ? "s" : "") + ", " + getTotalMillis() + " ms total, "
+					+ getMaxMillis() + " ms max" + ((getTimedOut() > 0) ? ", TIMED OUT " + getTimedOut() + " time" + ((getTimedOut() != 1) ? "s" : "") : "");
+		}//toString
+	}//WaitRecord
+
+	private static final Map<String, WaitRecord> RECORDS = new ConcurrentHashMap<String, WaitRecord>();
+
+	/**
+	 * This method polls the given condition with backoff until it is true or the timeout runs out.
+	 * A WebDriverException thrown by the condition counts as the condition not being met yet.
+	 * @param condition The name of the condition, used in the wait record.
+	 * @param timeoutMillis The longest time to wait in milliseconds.
+	 * @param check The condition being waited for.
+	 * @return True if the condition was met before the timeout, false otherwise.
+	 */
+	public static boolean waitFor(String condition, long timeoutMillis, BooleanSupplier check) {
+		long start = System.nanoTime();
+		long deadline = start + timeoutMillis * 1000000L;
+		long delay = FIRST_POLL_MS;
+		boolean met = false;
+		while(true) {
+			try {
+				met = check.getAsBoolean();
+			}//try
+			catch(WebDriverException e) {
+				met = false;
+			}//catch
+			long remaining = (deadline - System.nanoTime()) / 1000000L;
+			if(met || remaining <= 0) {
+				break;
+			}//if
+			else {
+				try {
+					Thread.sleep(Math.min(delay, remaining));
+				}//try
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}//catch
+				delay = Math.min(delay * 2, MAX_POLL_MS);
+			}//else
+		}//while
+		return record(condition, start, met);
+	}//waitFor
+
+	/**
+	 * This method takes a given WebDriver and waits for document.readyState to leave "loading".
+	 * The eager and none page-load strategies hand the page back before it is complete, so "interactive" is enough here;
+	 * the element and list waits cover the rest.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return True if the document was parsed before the timeout, false otherwise.
+	 */
+	public static boolean waitForDocumentReady(WebDriver driver) {
+		return waitFor("document ready", READY_TIMEOUT_MS,
+				() -> {
+					Object state = ((JavascriptExecutor) driver).executeScript("return document.readyState;");
+					return "interactive".equals(state) || "complete".equals(state);
+				});
+	}//waitForDocumentReady
+
+	/**
+	 * This method takes a given WebDriver and waits for the element with the given id to be present.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param elementId The String of the ID being waited for.
+	 * @return True if the element was present before the timeout, false otherwise.
+	 */
+	public static boolean waitForElementPresent(WebDriver driver, String elementId) {
+		ImpactMap.touchId(elementId);
+		return waitFor("#" + elementId + " present", ELEMENT_TIMEOUT_MS,
+				() -> Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript(
+						"return document.getElementById(arguments[0]) != null;", elementId)));
+	}//waitForElementPresent
+
+	/**
+	 * This method takes a given WebDriver and waits for #todos-list to read the same on two polls in a row.
+	 * @param driver The WebDriver being used for the automation.
+	 * @return True if the list was stable before the timeout, false otherwise.
+	 */
+	public static boolean waitForListStable(WebDriver driver) {
+		String[] last = new String[1];
+		ImpactMap.touchId("todos-list");
+		return waitFor("#todos-list stable", LIST_TIMEOUT_MS, () -> {
+			Object current = ((JavascriptExecutor) driver).executeScript(
+					"var list = document.getElementById('todos-list');"
+					+ "return list ? list.children.length + ':' + list.innerHTML.length : null;");
+			boolean stable = current != null && current.equals(last[0]);
+			last[0] = (String) current;
+			return stable;
+		});
+	}//waitForListStable
+
+	/**
+	 * This method takes a given WebDriver and waits, inside the browser, for the DOM to stop changing after an action.
+	 * @param driver The WebDriver being used for the automation.
+	 * @param action The name of the action that was just done, used in the wait record.
+	 * @return True if the page settled before the timeout, false otherwise.
+	 */
+	public static boolean waitForSettle(WebDriver driver, String action) {
+		long start = System.nanoTime();
+		boolean met;
+		try {
+			met = Boolean.TRUE.equals(((JavascriptExecutor) driver).executeAsyncScript(SETTLE_SCRIPT, SETTLE_QUIET_MS, SETTLE_TIMEOUT_MS));
+		}//try
+		catch(WebDriverException e) {
+			met = false;
+		}//catch
+		return record(action + " settled", start, met);
+	}//waitForSettle
+
+	/**
+	 * This method returns the totals of every condition waited for so far, the most time spent first.
+	 * @return The List<WaitRecord>, one per condition.
+	 */
+	public static List<WaitRecord> getRecords() {
+		List<WaitRecord> records = new ArrayList<WaitRecord>(RECORDS.values());
+		records.sort((a, b) -> Long.compare(b.getTotalMillis(), a.getTotalMillis()));
+		return records;
+	}//getRecords
+
+	/**
+	 * This method prints the totals of every condition waited for and the total time spent waiting.
+	 */
+	public static void printSummary() {
+		long total = 0;
+		for(WaitRecord waitRecord : getRecords()) {
+			System.out.println("Wait: " + waitRecord);
+			total += waitRecord.getTotalMillis();
+		}//for
+		System.out.println("Total time spent waiting: " + total + " ms.");
+	}//printSummary
+
+	/**
+	 * This method adds a wait to the totals of its condition and passes the result back.
+	 */
+	private static boolean record(String condition, long startNanos, boolean met) {
+		RECORDS.computeIfAbsent(condition, WaitRecord::new).add((System.nanoTime() - startNanos) / 1000000L, met);
+		return met;
+	}//record
+
+}//Waits
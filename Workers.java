@@ -0,0 +1,86 @@
+package todo_website_testing;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates the executors the scenarios, the pool and the async helpers run on.
+ * On Java 21 and later every task gets its own virtual thread, so a task waiting on geckodriver holds no platform thread
+ * and hundreds of sessions can be in flight with a flat thread count. On older Java, the tasks share a fixed number of
+ * platform threads instead. -Dworkers.virtual=false turns virtual threads off.
+ */
+public class Workers {
+
+	/** True to use virtual threads when the running Java has them. */
+	public static final boolean VIRTUAL_ENABLED = Boolean.parseBoolean(System.getProperty("workers.virtual", "true"));
+
+	/** The platform threads the shared executor uses when virtual threads are not available. */
+	public static final int PLATFORM_THREADS = Integer.getInteger("workers.threads", Runtime.getRuntime().availableProcessors() * 4);
+
+	/** Executors.newVirtualThreadPerTaskExecutor, looked up once, or null if this Java does not have it. */
+	private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+	private static volatile ExecutorService shared;
+
+	private static Method findVirtualExecutor() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		}//try
+		catch(NoSuchMethodException e) {
+			return null;
+		}//catch
+	}//findVirtualExecutor
+
+	/**
+	 * This method checks if tasks run on virtual threads.
+	 * @return True if virtual threads are available and enabled, false otherwise.
+	 */
+	public static boolean isVirtual() {
+		return VIRTUAL_ENABLED && VIRTUAL_EXECUTOR != null;
+	}//isVirtual
+
+	/**
+	 * This method creates an executor for a group of tasks. It starts a virtual thread per task if it can,
+	 * otherwise it runs them on the given number of daemon platform threads.
+	 * @param name The name given to the platform threads, followed by their number.
+	 * @param platformThreads The number of platform threads used when virtual threads are not available.
+	 * @return The new ExecutorService. The caller shuts it down.
+	 */
+	public static ExecutorService newExecutor(String name, int platformThreads) {
+		if(isVirtual()) {
+			try {
+				return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+			}//try
+			catch(ReflectiveOperationException e) {
+				//fall back to platform threads below
+			}//catch
+		}//if
+		else {}//else
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newFixedThreadPool(Math.max(1, platformThreads), runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}//newExecutor
+
+	/**
+	 * This method returns the executor the async helpers run on, created the first time it is needed.
+	 * It lives as long as the JVM, so it is never shut down.
+	 * @return The shared ExecutorService.
+	 */
+	public static ExecutorService shared() {
+		if(shared == null) {
+			synchronized(Workers.class) {
+				if(shared == null) {
+					shared = newExecutor("async", PLATFORM_THREADS);
+				}//if
+				else {}//else
+			}//synchronized
+		}//if
+		else {}//else
+		return shared;
+	}//shared
+
+}//Workers
@@ -0,0 +1,177 @@
+package todo_website_testing.benchmarks;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import todo_website_testing.InstrumentedDriver;
+import todo_website_testing.LaunchProfile;
+import todo_website_testing.MirrorServer;
+import todo_website_testing.TaskSeeder;
+import todo_website_testing.Testing;
+
+/**
+ * This class measures the Testing helpers against the local mirror of the site, preloaded with 10 to 10 000 todos.
+ * Mean and percentile latencies come from the AverageTime and SampleTime modes, and the round-trips and operations
+ * of each iteration come from the RoundTrips counters. The mirror is read from -Dtodo.site-dir, or the todo_website/ classpath folder.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestingBenchmark {
+
+	/**
+	 * This class holds a browser showing the mirrored page with the given number of active todos on the "All" tab.
+	 */
+	@State(Scope.Benchmark)
+	public static class TodoPage {
+		@Param({"10", "100", "1000", "10000"})
+		public int todos;
+
+		public MirrorServer mirror;
+		public WebDriver driver;
+
+		@Setup(Level.Trial)
+		public void start() {
+			String siteDir = System.getProperty("todo.site-dir");
+			if(!MirrorServer.isAvailable(siteDir)) {
+				throw new IllegalStateException("The benchmarks need a vendored copy of the site, see the README.");
+			}//if
+			else {}//else
+			mirror = MirrorServer.start(siteDir);
+			driver = InstrumentedDriver.wrap(Testing.startSession(LaunchProfile.lean()));
+		}//start
+
+		@Setup(Level.Iteration)
+		public void load() {
+			//reload and reseed every iteration, so helpers that add items do not grow the list across iterations
+			((JavascriptExecutor) driver).executeScript("try { window.localStorage.clear(); } catch (e) {}");
+			Testing.openWebPage(driver, mirror.getUrl());
+			Testing.waitForPageReady(driver);
+			TaskSeeder.seed(driver, TaskSeeder.generate(todos, "todo "), 0, false);
+			prepare();
+		}//load
+
+		/**
+		 * This method gets the page into the state the benchmark needs after it is seeded.
+		 */
+		protected void prepare() {}
+
+		@TearDown(Level.Trial)
+		public void stop() {
+			Testing.endSession(driver);
+			mirror.close();
+		}//stop
+	}//TodoPage
+
+	/**
+	 * This class holds a page with active todos that is showing the "Completed" tab, so the empty state is shown.
+	 */
+	@State(Scope.Benchmark)
+	public static class CompletedTabPage extends TodoPage {
+		@Override
+		protected void prepare() {
+			Testing.clickTab(driver, "completed");
+		}//prepare
+	}//CompletedTabPage
+
+	/**
+	 * This class holds a page for the addTask benchmark, and deletes the added task after every call so the list
+	 * stays at the seeded size for the whole iteration. The delete is not part of the measured time.
+	 */
+	@State(Scope.Benchmark)
+	public static class AddTaskPage extends TodoPage {
+		public static final String TASK = "benchmark task";
+
+		@TearDown(Level.Invocation)
+		public void removeAdded() {
+			Testing.deleteItem(driver, TASK);
+		}//removeAdded
+	}//AddTaskPage
+
+	/**
+	 * This class counts the round-trips the operations send to the browser, and the operations, in each iteration.
+	 * JMH adds EVENTS counters up over the threads, so only the raw counts are reported;
+	 * the round-trips per operation is roundTrips divided by operations.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class RoundTrips {
+		public long roundTrips;
+		public long operations;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			roundTrips = 0;
+			operations = 0;
+		}//reset
+
+		void add(long before, WebDriver driver) {
+			roundTrips += InstrumentedDriver.getRoundTrips(driver) - before;
+			operations++;
+		}//add
+	}//RoundTrips
+
+	@Benchmark
+	public Object getSpecificTodoListItem(TodoPage page, RoundTrips counters) {
+		long before = InstrumentedDriver.getRoundTrips(page.driver);
+		//look up the item in the middle of the list
+		Object item = Testing.getSpecificTodoListItem(page.driver, "todo " + (page.todos / 2));
+		counters.add(before, page.driver);
+		return item;
+	}//getSpecificTodoListItem
+
+	@Benchmark
+	public int getActiveTaskListSize(TodoPage page, RoundTrips counters) {
+		long before = InstrumentedDriver.getRoundTrips(page.driver);
+		int size = Testing.getActiveTaskListSize(page.driver);
+		counters.add(before, page.driver);
+		return size;
+	}//getActiveTaskListSize
+
+	@Benchmark
+	public String getActiveFilterTab(TodoPage page, RoundTrips counters) {
+		long before = InstrumentedDriver.getRoundTrips(page.driver);
+		String tab = Testing.getActiveFilterTab(page.driver);
+		counters.add(before, page.driver);
+		return tab;
+	}//getActiveFilterTab
+
+	@Benchmark
+	public int confirmEmptyState(CompletedTabPage page, RoundTrips counters) {
+		long before = InstrumentedDriver.getRoundTrips(page.driver);
+		int errors = Testing.confirmEmptyState(page.driver, "There are currently no completed tasks.");
+		counters.add(before, page.driver);
+		return errors;
+	}//confirmEmptyState
+
+	@Benchmark
+	public int addTask(AddTaskPage page, RoundTrips counters) {
+		long before = InstrumentedDriver.getRoundTrips(page.driver);
+		int errors = Testing.addTask(page.driver, AddTaskPage.TASK);
+		counters.add(before, page.driver);
+		return errors;
+	}//addTask
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TestingBenchmark.class.getSimpleName()).build()).run();
+	}//main
+
+}//TestingBenchmark